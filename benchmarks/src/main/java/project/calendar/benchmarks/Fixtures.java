@@ -0,0 +1,158 @@
+package project.calendar.benchmarks;
+
+import project.calendar.BatchOperation;
+import project.calendar.ConnectionPool;
+import project.calendar.JsonWriter;
+import project.calendar.SchemaMigrations;
+import project.calendar.Task;
+import project.calendar.TaskDatabase;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Общие данные замеров: временная база данных, заполненная задачами, и типичные тела запросов и ответов.
+ */
+final class Fixtures {
+    /**
+     * Первая дата, на которую заполняются задачи.
+     */
+    static final LocalDate FIRST_DATE = LocalDate.of(2024, 1, 1);
+    /**
+     * Количество задач на одну дату при заполнении базы данных.
+     */
+    static final int TASKS_PER_DAY = 20;
+    /**
+     * Количество операций в одной транзакции заполнения.
+     */
+    private static final int FILL_BATCH = 10_000;
+
+    private Fixtures() {
+    }
+
+    /**
+     * Создает временный каталог для базы данных замера.
+     *
+     * @return Путь к каталогу.
+     * @throws IOException Если каталог не удалось создать.
+     */
+    static Path createTempDir() throws IOException {
+        return Files.createTempDirectory("calendar-bench");
+    }
+
+    /**
+     * Возвращает URL базы данных SQLite в указанном каталоге.
+     *
+     * @param dir Каталог.
+     * @return URL базы данных.
+     */
+    static String dbUrl(Path dir) {
+        return "jdbc:sqlite:" + dir.resolve("tasks.db");
+    }
+
+    /**
+     * Открывает пул соединений и приводит схему базы данных к актуальной версии.
+     *
+     * @param dir Каталог базы данных.
+     * @return Пул соединений.
+     * @throws SQLException Если схему не удалось обновить.
+     */
+    static ConnectionPool openPool(Path dir) throws SQLException {
+        ConnectionPool pool = new ConnectionPool(dbUrl(dir), 4, 5000);
+        new SchemaMigrations(pool).migrate();
+        return pool;
+    }
+
+    /**
+     * Заполняет базу данных задачами по {@link #TASKS_PER_DAY} на дату, начиная с {@link #FIRST_DATE}.
+     *
+     * @param db    База данных задач.
+     * @param count Общее количество задач.
+     * @return Количество заполненных дат.
+     * @throws IOException Если задачи не удалось записать.
+     */
+    static int fill(TaskDatabase db, int count) throws IOException {
+        List<BatchOperation> batch = new ArrayList<>(FILL_BATCH);
+        for (int i = 0; i < count; i++) {
+            batch.add(BatchOperation.create(FIRST_DATE.plusDays(i / TASKS_PER_DAY), text(i)));
+            if (batch.size() == FILL_BATCH) {
+                db.applyBatch(batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            db.applyBatch(batch);
+        }
+        return (count + TASKS_PER_DAY - 1) / TASKS_PER_DAY;
+    }
+
+    /**
+     * Создает список задач на одну дату.
+     *
+     * @param count Количество задач.
+     * @return Задачи.
+     */
+    static List<Task> tasks(int count) {
+        List<Task> tasks = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            tasks.add(new Task(i + 1, FIRST_DATE, i + 1, text(i)));
+        }
+        return tasks;
+    }
+
+    /**
+     * Формирует тело ответа /getList так же, как его формирует сервер.
+     *
+     * @param tasks Задачи.
+     * @return Тело ответа в кодировке UTF-8.
+     */
+    static String getListBody(List<Task> tasks) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (JsonWriter json = new JsonWriter(out)) {
+            json.beginObject().name("type").value("Рабочий день").name("tasks").beginArray();
+            for (Task task : tasks) {
+                json.task(task);
+            }
+            json.endArray().endObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Возвращает текст задачи с кириллицей, как в реальных заметках.
+     *
+     * @param i Номер задачи.
+     * @return Текст задачи.
+     */
+    static String text(int i) {
+        return "Заметка №" + i + ": позвонить в \"сервис\" и уточнить сроки";
+    }
+
+    /**
+     * Удаляет каталог замера вместе с содержимым.
+     *
+     * @param dir Каталог.
+     */
+    static void deleteDir(Path dir) {
+        if (dir == null) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(dir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        } catch (IOException ignored) {
+            // Временные файлы удалит система.
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package project.calendar.benchmarks;
+
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import project.calendar.Convertor;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Замеры разбора тел запросов /create и /delete: через {@link Convertor#stringToJson(String)}
+ * и через типизированные декодеры {@link Convertor}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RequestDecodingBenchmark {
+    /**
+     * Наибольший размер тела запроса, как на сервере по умолчанию.
+     */
+    private static final int MAX_BYTES = 64 * 1024;
+
+    /**
+     * Тело запроса /create.
+     */
+    private final String createBody = "{\"date\":\"2024-12-17\",\"text\":" + JSONObject.quote(Fixtures.text(1)) + "}";
+    /**
+     * Тело запроса /create в кодировке UTF-8.
+     */
+    private final byte[] createBytes = createBody.getBytes(StandardCharsets.UTF_8);
+    /**
+     * Тело запроса /delete в кодировке UTF-8.
+     */
+    private final byte[] deleteBytes = "{\"date\":\"2024-12-17\",\"position\":3}".getBytes(StandardCharsets.UTF_8);
+
+    @Benchmark
+    public LocalDate stringToJsonCreate() {
+        JSONObject json = Convertor.stringToJson(new String(createBytes, StandardCharsets.UTF_8));
+        json.getString("text");
+        return LocalDate.parse(json.getString("date"));
+    }
+
+    @Benchmark
+    public Convertor.CreateRequest decodeCreate() throws Convertor.RequestFormatException, IOException {
+        return Convertor.decodeCreate(new ByteArrayInputStream(createBytes), MAX_BYTES);
+    }
+
+    @Benchmark
+    public Convertor.DeleteRequest decodeDelete() throws Convertor.RequestFormatException, IOException {
+        return Convertor.decodeDelete(new ByteArrayInputStream(deleteBytes), MAX_BYTES);
+    }
+}
@@ -0,0 +1,107 @@
+package project.calendar.benchmarks;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import project.calendar.Client;
+import project.calendar.Day;
+import project.calendar.JsonWriter;
+import project.calendar.Task;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Замеры формирования и разбора ответа /getList: прежний путь через {@link Task#toJson()} и
+ * {@link JSONArray}, потоковая запись {@link JsonWriter} и разбор ответа клиентом.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SerializationBenchmark {
+    /**
+     * Количество задач в ответе.
+     */
+    @Param({"1", "20", "200"})
+    public int taskCount;
+
+    /**
+     * Задачи ответа.
+     */
+    private List<Task> tasks;
+    /**
+     * Тело ответа /getList.
+     */
+    private String body;
+    /**
+     * Буфер, в который пишется ответ; очищается перед каждой записью.
+     */
+    private final ByteArrayOutputStream sink = new ByteArrayOutputStream(64 * 1024);
+    /**
+     * Обертка буфера, которую {@link JsonWriter#close()} не закрывает.
+     */
+    private final OutputStream unclosable = new FilterOutputStream(sink) {
+        @Override
+        public void write(byte[] b, int off, int len) {
+            sink.write(b, off, len);
+        }
+
+        @Override
+        public void close() {
+        }
+    };
+
+    @Setup
+    public void setUp() {
+        tasks = Fixtures.tasks(taskCount);
+        body = Fixtures.getListBody(tasks);
+    }
+
+    @Benchmark
+    public byte[] taskToJsonArray() {
+        JSONArray array = new JSONArray();
+        for (Task task : tasks) {
+            array.put(task.toJson());
+        }
+        JSONObject json = new JSONObject();
+        json.put("type", "Рабочий день");
+        json.put("tasks", array);
+        return json.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public int jsonWriter() throws IOException {
+        sink.reset();
+        try (JsonWriter json = new JsonWriter(unclosable)) {
+            json.beginObject().name("type").value("Рабочий день").name("tasks").beginArray();
+            for (Task task : tasks) {
+                json.task(task);
+            }
+            json.endArray().endObject();
+        }
+        return sink.size();
+    }
+
+    @Benchmark
+    public Day parseTasksFromJson() {
+        return Client.parseTasksFromJson(body);
+    }
+}
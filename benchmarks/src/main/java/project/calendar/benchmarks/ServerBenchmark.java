@@ -0,0 +1,199 @@
+package project.calendar.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import project.calendar.BatchOperation;
+import project.calendar.HolidayStub;
+import project.calendar.Server;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.json.JSONArray;
+
+/**
+ * Замеры обработчиков {@link Server} целиком: сервер запускается в том же процессе на свободном
+ * порту с временной базой данных, а сервис isdayoff.ru заменяется заглушкой {@link HolidayStub}.
+ * Запросы отправляются по HTTP/1.1 через постоянное соединение; количество одновременных
+ * клиентов задается ключом JMH {@code -t}, режим обработки запросов сервером - параметром
+ * {@code executor}, например {@code -p executor=pool,legacy -t 16}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ServerBenchmark {
+    /**
+     * Количество заполненных дат.
+     */
+    private static final int DAYS = 31;
+
+    /**
+     * Режим обработки запросов сервером, значение свойства {@code server.executor}.
+     */
+    @Param({"pool", "virtual", "legacy"})
+    public String executor;
+
+    /**
+     * Каталог временной базы данных.
+     */
+    private Path dir;
+    /**
+     * Заглушка сервиса isdayoff.ru.
+     */
+    private HolidayStub stub;
+    /**
+     * HTTP-клиент замера.
+     */
+    private HttpClient http;
+    /**
+     * Базовый URL сервера.
+     */
+    private String baseUrl;
+    /**
+     * Запросы /getList по заполненным датам.
+     */
+    private HttpRequest[] getList;
+    /**
+     * Запрос /getList с ETag предыдущего ответа.
+     */
+    private HttpRequest getListConditional;
+    /**
+     * Запрос /getRange за неделю.
+     */
+    private HttpRequest getRange;
+    /**
+     * Запрос /create на дату, не пересекающуюся с заполненными.
+     */
+    private HttpRequest create;
+    /**
+     * Запрос /clean той же даты.
+     */
+    private HttpRequest clean;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, InterruptedException {
+        dir = Fixtures.createTempDir();
+        stub = new HolidayStub(0, 0);
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        System.setProperty("server.port", Integer.toString(port));
+        System.setProperty("db.url", Fixtures.dbUrl(dir));
+        System.setProperty("holiday.url", stub.getUrl());
+        System.setProperty("server.executor", executor);
+        Server.startServer();
+
+        baseUrl = "http://localhost:" + port;
+        http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+        JSONArray operations = new JSONArray();
+        for (int i = 0; i < DAYS * Fixtures.TASKS_PER_DAY; i++) {
+            operations.put(BatchOperation.create(Fixtures.FIRST_DATE.plusDays(i / Fixtures.TASKS_PER_DAY),
+                    Fixtures.text(i)).toJson());
+        }
+        send(post("/batch", operations.toString()), 200);
+
+        getList = new HttpRequest[DAYS];
+        for (int i = 0; i < DAYS; i++) {
+            getList[i] = get("/getList?date=" + Fixtures.FIRST_DATE.plusDays(i));
+        }
+        String etag = send(getList[0], 200).headers().firstValue("ETag").orElseThrow();
+        getListConditional = HttpRequest.newBuilder(getList[0].uri()).header("If-None-Match", etag).GET().build();
+        getRange = get("/getRange?from=" + Fixtures.FIRST_DATE + "&to=" + Fixtures.FIRST_DATE.plusDays(6));
+        LocalDate writeDate = Fixtures.FIRST_DATE.minusDays(1);
+        create = post("/create", "{\"date\":\"" + writeDate + "\",\"text\":\"Новая заметка\"}");
+        clean = post("/clean", "{\"date\":\"" + writeDate + "\"}");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        Server.stopServer();
+        stub.stop();
+        Fixtures.deleteDir(dir);
+    }
+
+    @Benchmark
+    public HttpResponse<byte[]> getList() throws IOException, InterruptedException {
+        return send(getList[ThreadLocalRandom.current().nextInt(DAYS)], 200);
+    }
+
+    @Benchmark
+    public HttpResponse<byte[]> getListNotModified() throws IOException, InterruptedException {
+        return send(getListConditional, 304);
+    }
+
+    @Benchmark
+    public HttpResponse<byte[]> getRangeWeek() throws IOException, InterruptedException {
+        return send(getRange, 200);
+    }
+
+    @Benchmark
+    public HttpResponse<byte[]> createThenClean() throws IOException, InterruptedException {
+        send(create, 200);
+        return send(clean, 200);
+    }
+
+    /**
+     * Создает GET запрос.
+     *
+     * @param path Путь и параметры запроса.
+     * @return Запрос.
+     */
+    private HttpRequest get(String path) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path)).GET().build();
+    }
+
+    /**
+     * Создает POST запрос с телом JSON.
+     *
+     * @param path Путь запроса.
+     * @param json Тело запроса.
+     * @return Запрос.
+     */
+    private HttpRequest post(String path, String json) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .build();
+    }
+
+    /**
+     * Отправляет запрос и проверяет код ответа, чтобы замер не засчитывал ошибки как быстрые ответы.
+     *
+     * @param request  Запрос.
+     * @param expected Ожидаемый код ответа.
+     * @return Ответ.
+     * @throws IOException          Если возникает ошибка ввода-вывода или код ответа не совпадает с ожидаемым.
+     * @throws InterruptedException Если поток прерван.
+     */
+    private HttpResponse<byte[]> send(HttpRequest request, int expected) throws IOException, InterruptedException {
+        HttpResponse<byte[]> response = http.send(request, HttpResponse.BodyHandlers.ofByteArray());
+        if (response.statusCode() != expected) {
+            throw new IOException(request.uri() + " returned " + response.statusCode() + " instead of " + expected);
+        }
+        return response;
+    }
+}
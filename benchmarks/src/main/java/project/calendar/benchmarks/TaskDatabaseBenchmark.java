@@ -0,0 +1,136 @@
+package project.calendar.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import project.calendar.ConnectionPool;
+import project.calendar.Metrics;
+import project.calendar.Task;
+import project.calendar.TaskDatabase;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Замеры операций {@link TaskDatabase} на таблицах разного размера.
+ * Чтение по дате замеряется с кэшем задач и без него: второй вариант показывает стоимость самого
+ * запроса к SQLite по индексу на целочисленной дате.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TaskDatabaseBenchmark {
+    /**
+     * Количество дат, которые читаются из кэша; меньше размера кэша, чтобы все чтения были попаданиями.
+     */
+    private static final int HOT_DAYS = 64;
+
+    /**
+     * Количество задач в таблице.
+     */
+    @Param({"1000", "10000", "100000"})
+    public int tableSize;
+
+    /**
+     * Каталог временной базы данных.
+     */
+    private Path dir;
+    /**
+     * Пул соединений.
+     */
+    private ConnectionPool pool;
+    /**
+     * База данных с кэшем задач по дате.
+     */
+    private TaskDatabase cached;
+    /**
+     * База данных, записи кэша которой сразу устаревают.
+     */
+    private TaskDatabase uncached;
+    /**
+     * Количество заполненных дат.
+     */
+    private int days;
+    /**
+     * Номер очередной читаемой даты.
+     */
+    private int next;
+    /**
+     * Дата, на которую добавляются и удаляются задачи; не пересекается с заполненными.
+     */
+    private LocalDate writeDate;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, SQLException {
+        dir = Fixtures.createTempDir();
+        pool = Fixtures.openPool(dir);
+        cached = new TaskDatabase(pool, 512, TimeUnit.MINUTES.toMillis(5), new Metrics());
+        uncached = new TaskDatabase(pool, 512, 0, new Metrics());
+        days = Fixtures.fill(uncached, tableSize);
+        writeDate = Fixtures.FIRST_DATE.minusDays(1);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pool.close();
+        Fixtures.deleteDir(dir);
+    }
+
+    @Benchmark
+    public List<Task> listTasksByDateCached() {
+        return cached.listTasksByDate(Fixtures.FIRST_DATE.plusDays(next++ % Math.min(days, HOT_DAYS)));
+    }
+
+    @Benchmark
+    public List<Task> listTasksByDateUncached() {
+        return uncached.listTasksByDate(nextDate());
+    }
+
+    @Benchmark
+    public void forEachTaskInMonth(Blackhole blackhole) throws IOException {
+        LocalDate from = nextDate();
+        uncached.forEachTaskInRange(from, from.plusDays(30), blackhole::consume);
+    }
+
+    @Benchmark
+    public int findFreePosition() {
+        return uncached.findFreePosition(nextDate());
+    }
+
+    /**
+     * Добавление задачи с поиском свободной позиции и последующая очистка даты,
+     * чтобы размер таблицы не менялся за время замера.
+     */
+    @Benchmark
+    public void addTaskThenClean() {
+        uncached.addTask(writeDate, "Новая заметка");
+        uncached.deleteAllTasksByDate(writeDate);
+    }
+
+    /**
+     * Возвращает следующую заполненную дату по кругу.
+     *
+     * @return Дата.
+     */
+    private LocalDate nextDate() {
+        return Fixtures.FIRST_DATE.plusDays(next++ % days);
+    }
+}
@@ -0,0 +1,113 @@
+package project.calendar;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Операция пакетного изменения задач: создание задачи, удаление задачи по позиции
+ * или удаление всех задач на дату.
+ *
+ * @param type     Вид операции.
+ * @param date     Дата, к которой относится операция.
+ * @param text     Текст задачи для операции создания, иначе null.
+ * @param position Позиция задачи для операции удаления, иначе 0.
+ */
+public record BatchOperation(Type type, LocalDate date, String text, int position) {
+
+    /**
+     * Вид операции.
+     */
+    public enum Type {
+        /**
+         * Создание задачи.
+         */
+        CREATE,
+        /**
+         * Удаление задачи по позиции.
+         */
+        DELETE,
+        /**
+         * Удаление всех задач на дату.
+         */
+        CLEAN
+    }
+
+    /**
+     * Создает операцию добавления задачи.
+     *
+     * @param date Дата задачи.
+     * @param text Текст задачи.
+     * @return Операция создания.
+     */
+    public static BatchOperation create(LocalDate date, String text) {
+        return new BatchOperation(Type.CREATE, date, text, 0);
+    }
+
+    /**
+     * Создает операцию удаления задачи по позиции.
+     *
+     * @param date     Дата задачи.
+     * @param position Позиция задачи.
+     * @return Операция удаления.
+     */
+    public static BatchOperation delete(LocalDate date, int position) {
+        return new BatchOperation(Type.DELETE, date, null, position);
+    }
+
+    /**
+     * Создает операцию удаления всех задач на дату.
+     *
+     * @param date Дата.
+     * @return Операция очистки.
+     */
+    public static BatchOperation clean(LocalDate date) {
+        return new BatchOperation(Type.CLEAN, date, null, 0);
+    }
+
+    /**
+     * Создает операцию из JSON-объекта вида {@code {"op":"create|delete|clean","date":"yyyy-MM-dd","text":...,"position":...}}.
+     *
+     * @param json JSON-объект операции.
+     * @return Операция.
+     * @throws JSONException Если объект не описывает корректную операцию.
+     */
+    public static BatchOperation fromJson(JSONObject json) throws JSONException {
+        String op = json.getString("op");
+        LocalDate date;
+        try {
+            date = LocalDate.parse(json.getString("date"));
+        } catch (DateTimeParseException e) {
+            throw new JSONException("Incorrect date: " + json.getString("date"));
+        }
+        switch (op) {
+            case "create":
+                return create(date, json.getString("text"));
+            case "delete":
+                return delete(date, json.getInt("position"));
+            case "clean":
+                return clean(date);
+            default:
+                throw new JSONException("Unknown operation: " + op);
+        }
+    }
+
+    /**
+     * Возвращает JSON-представление операции.
+     *
+     * @return {@link JSONObject}, представляющий операцию.
+     */
+    public JSONObject toJson() {
+        JSONObject json = new JSONObject();
+        json.put("op", type.name().toLowerCase());
+        json.put("date", date.toString());
+        if (type == Type.CREATE) {
+            json.put("text", text);
+        } else if (type == Type.DELETE) {
+            json.put("position", position);
+        }
+        return json;
+    }
+}
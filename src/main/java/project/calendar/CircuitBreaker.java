@@ -0,0 +1,150 @@
+package project.calendar;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Класс CircuitBreaker защищает сервер от медленного или недоступного внешнего сервиса.
+ * После заданного количества ошибок подряд запросы отклоняются без обращения к сервису,
+ * а по истечении паузы пропускается один пробный запрос для проверки восстановления.
+ */
+public class CircuitBreaker {
+    /**
+     * Поле для логирования
+     */
+    private static final Logger logger = LogManager.getLogger(CircuitBreaker.class);
+
+    /**
+     * Состояние предохранителя.
+     */
+    public enum State {
+        /**
+         * Запросы проходят к сервису.
+         */
+        CLOSED,
+        /**
+         * Запросы отклоняются без обращения к сервису.
+         */
+        OPEN,
+        /**
+         * Выполняется пробный запрос.
+         */
+        HALF_OPEN
+    }
+
+    /**
+     * Имя защищаемого сервиса для журнала.
+     */
+    private final String name;
+    /**
+     * Количество ошибок подряд, после которого предохранитель размыкается.
+     */
+    private final int failureThreshold;
+    /**
+     * Пауза до пробного запроса в миллисекундах.
+     */
+    private final long openMillis;
+
+    /**
+     * Текущее состояние.
+     */
+    private State state = State.CLOSED;
+    /**
+     * Количество ошибок подряд.
+     */
+    private int consecutiveFailures;
+    /**
+     * Момент последнего размыкания в миллисекундах.
+     */
+    private long openedAt;
+    /**
+     * Количество размыканий за время работы.
+     */
+    private long openCount;
+
+    /**
+     * Конструктор класса CircuitBreaker.
+     *
+     * @param name             Имя защищаемого сервиса для журнала.
+     * @param failureThreshold Количество ошибок подряд, после которого предохранитель размыкается.
+     * @param openMillis       Пауза до пробного запроса в миллисекундах.
+     */
+    public CircuitBreaker(String name, int failureThreshold, long openMillis) {
+        this.name = name;
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.openMillis = openMillis;
+    }
+
+    /**
+     * Проверяет, можно ли выполнить запрос. В разомкнутом состоянии по истечении паузы
+     * разрешает ровно один пробный запрос.
+     *
+     * @return true, если запрос можно выполнить.
+     */
+    public synchronized boolean allowRequest() {
+        switch (state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (System.currentTimeMillis() - openedAt >= openMillis) {
+                    state = State.HALF_OPEN;
+                    logger.info("Circuit breaker " + name + " is half-open, probing");
+                    return true;
+                }
+                return false;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Отмечает успешный запрос и замыкает предохранитель.
+     */
+    public synchronized void recordSuccess() {
+        if (state != State.CLOSED) {
+            logger.info("Circuit breaker " + name + " is closed");
+        }
+        state = State.CLOSED;
+        consecutiveFailures = 0;
+    }
+
+    /**
+     * Отмечает неудачный запрос и при необходимости размыкает предохранитель.
+     */
+    public synchronized void recordFailure() {
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || (state == State.CLOSED && consecutiveFailures >= failureThreshold)) {
+            state = State.OPEN;
+            openedAt = System.currentTimeMillis();
+            openCount++;
+            logger.warn("Circuit breaker " + name + " is open after " + consecutiveFailures + " failures");
+        }
+    }
+
+    /**
+     * Возвращает текущее состояние.
+     *
+     * @return Состояние предохранителя.
+     */
+    public synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * Возвращает количество ошибок подряд.
+     *
+     * @return Количество ошибок подряд.
+     */
+    public synchronized int getConsecutiveFailures() {
+        return consecutiveFailures;
+    }
+
+    /**
+     * Возвращает количество размыканий за время работы.
+     *
+     * @return Количество размыканий.
+     */
+    public synchronized long getOpenCount() {
+        return openCount;
+    }
+}
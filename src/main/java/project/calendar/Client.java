@@ -2,13 +2,29 @@ package project.calendar;
 
 import org.json.JSONArray;
 import org.json.JSONObject;
+import org.json.JSONTokener;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.OutputStream;
-import java.net.HttpURLConnection;
-import java.net.URL;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -16,6 +32,13 @@ import org.apache.logging.log4j.Logger;
 /**
  * Класс Client предоставляет методы для взаимодействия с сервером календаря.
  * Он позволяет отправлять GET и POST запросы для получения, создания, удаления и очистки задач.
+ * Запросы выполняются через общий {@link HttpClient}, который повторно использует соединения;
+ * у каждого запроса есть асинхронный вариант, возвращающий {@link CompletableFuture}, и блокирующий.
+ * <p>
+ * Полученные дни кэшируются. Изменения, отправленные этим клиентом, сбрасывают кэш измененной даты,
+ * а ответы, полученные во время изменения, не кэшируются; изменения других клиентов становятся
+ * видны по истечении времени жизни записи. После этого день запрашивается условно, с ETag
+ * предыдущего ответа, и неизмененный день не передается повторно.
  */
 public class Client {
     /**
@@ -23,196 +46,408 @@ public class Client {
      */
     private static final Logger logger = LogManager.getLogger(Client.class);
     /**
-     * URL для GET запроса списка задач.
+     * Адрес сервера по умолчанию.
      */
-    private static final String GET_LIST_URL = "http://localhost:8000/getList";
+    public static final String DEFAULT_BASE_URL = "http://localhost:8000";
     /**
-     * URL для POST запроса создания задачи.
+     * Время ожидания ответа по умолчанию.
      */
-    private static final String POST_CREATE_URL = "http://localhost:8000/create";
+    private static final Duration DEFAULT_TIMEOUT = Duration.ofSeconds(10);
     /**
-     * URL для POST запроса удаления задачи.
+     * Максимальное количество дней в кэше клиента.
      */
-    private static final String POST_DELETE_URL = "http://localhost:8000/delete";
+    private static final int DAY_CACHE_SIZE = 256;
     /**
-     * URL для POST запроса очистки задач за день.
+     * Время жизни дня в кэше клиента в миллисекундах.
      */
-    private static final String POST_CLEAN_URL = "http://localhost:8000/clean";
+    private static final long DAY_CACHE_TTL_MILLIS = 30_000;
+    /**
+     * Максимальное количество сохраненных ответов с ETag.
+     */
+    private static final int VALIDATOR_CACHE_SIZE = 1024;
+    /**
+     * Время хранения ответа с ETag в миллисекундах.
+     */
+    private static final long VALIDATOR_TTL_MILLIS = 60 * 60 * 1000L;
+    /**
+     * HTTP-клиент, общий для всех экземпляров, созданных без собственного HTTP-клиента.
+     */
+    private static final HttpClient SHARED_HTTP = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
 
     /**
-     * Отправляет GET запрос на сервер для получения списка задач на указанную дату.
+     * Результат разбора ответа вместе с его ETag.
      *
-     * @param date Дата, для которой запрашиваются задачи, в формате "yyyy-MM-dd".
-     * @return Объект {@link Day}, содержащий список задач, или null в случае ошибки.
-     * @throws IOException Если произошла ошибка ввода-вывода при отправке или обработке запроса.
+     * @param etag  Значение заголовка ETag.
+     * @param value Результат разбора ответа.
      */
-    public static Day sendGetRequest(String date) throws IOException {
-        URL url = new URL(GET_LIST_URL + "?date=" + date);
-        logger.info("Request to - " + url);
-        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-
-        connection.setRequestMethod("GET");
-
-        int responseCode = connection.getResponseCode();
-        logger.info("GET Response Code :: " + responseCode);
+    private record Validated(String etag, Object value) {
+    }
 
-        if (responseCode == HttpURLConnection.HTTP_OK) { // success
-            BufferedReader in = new BufferedReader(new InputStreamReader(
-                    connection.getInputStream()));
-            String inputLine;
-            StringBuilder response = new StringBuilder();
+    /**
+     * Разбор тела успешного ответа.
+     *
+     * @param <T> Тип результата.
+     */
+    @FunctionalInterface
+    private interface ResponseParser<T> {
+        /**
+         * Разбирает тело ответа.
+         *
+         * @param body Тело ответа.
+         * @return Результат.
+         * @throws IOException Если тело не удалось разобрать.
+         */
+        T parse(String body) throws IOException;
+    }
 
-            while ((inputLine = in.readLine()) != null) {
-                response.append(inputLine);
-            }
-            in.close();
-
-            logger.info("Response to a GET request: " + response);
-            connection.disconnect();
-            return parseTasksFromJson(response.toString());
-        } else {
-            logger.error("The GET request failed");
-            connection.disconnect();
-            return null;
-        }
+    /**
+     * HTTP-клиент.
+     */
+    private final HttpClient http;
+    /**
+     * Адрес сервера без завершающей косой черты.
+     */
+    private final String baseUrl;
+    /**
+     * Время ожидания ответа.
+     */
+    private final Duration timeout;
+    /**
+     * Кэш полученных дней по дате.
+     */
+    private final LruCache<LocalDate, Day> dayCache = new LruCache<>(DAY_CACHE_SIZE, DAY_CACHE_TTL_MILLIS);
+    /**
+     * Запросы дней, выполняющиеся в данный момент, по дате.
+     */
+    private final ConcurrentHashMap<LocalDate, CompletableFuture<Day>> loading = new ConcurrentHashMap<>();
+    /**
+     * Последние ответы с ETag по адресу запроса.
+     */
+    private final LruCache<String, Validated> validators = new LruCache<>(VALIDATOR_CACHE_SIZE, VALIDATOR_TTL_MILLIS);
+    /**
+     * Количество ответов 304, обслуженных из сохраненных ответов.
+     */
+    private final LongAdder notModified = new LongAdder();
+    /**
+     * Счетчик начатых и завершенных изменений; ответ кэшируется, только если счетчик не менялся за время запроса.
+     */
+    private final AtomicLong mutations = new AtomicLong();
 
+    /**
+     * Создает клиент сервера по адресу {@link #DEFAULT_BASE_URL}.
+     */
+    public Client() {
+        this(DEFAULT_BASE_URL);
     }
 
     /**
-     * Отправляет POST запрос на сервер для очистки всех задач на указанную дату.
+     * Создает клиент сервера по указанному адресу на общем HTTP-клиенте.
      *
-     * @param date Дата, для которой необходимо очистить задачи, в формате "yyyy-MM-dd".
-     * @throws IOException Если произошла ошибка ввода-вывода при отправке или обработке запроса.
+     * @param baseUrl Адрес сервера, например "http://localhost:8000".
      */
-    public static void sendCleanRequest(String date) throws IOException {
-        URL url = new URL(POST_CLEAN_URL);
-        logger.info("Request to - " + url);
-        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-
-        connection.setRequestMethod("POST");
-        connection.setDoOutput(true);
-
-        String postData = "{\"date\":\"" + date + "\"}";
+    public Client(String baseUrl) {
+        this(SHARED_HTTP, baseUrl, DEFAULT_TIMEOUT);
+    }
 
-        OutputStream os = connection.getOutputStream();
-        os.write(postData.getBytes());
-        os.flush();
-        os.close();
+    /**
+     * Создает клиент сервера по указанному адресу.
+     *
+     * @param http    HTTP-клиент.
+     * @param baseUrl Адрес сервера, например "http://localhost:8000".
+     * @param timeout Время ожидания ответа.
+     */
+    public Client(HttpClient http, String baseUrl, Duration timeout) {
+        this.http = http;
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        this.timeout = timeout;
+    }
 
-        int responseCode = connection.getResponseCode();
-        logger.info("POST Response Code :: " + responseCode);
+    /**
+     * Возвращает адрес сервера.
+     *
+     * @return Адрес сервера.
+     */
+    public String getBaseUrl() {
+        return baseUrl;
+    }
 
-        if (responseCode == HttpURLConnection.HTTP_OK) {
-            BufferedReader in = new BufferedReader(new InputStreamReader(
-                    connection.getInputStream()));
-            String inputLine;
-            StringBuilder response = new StringBuilder();
+    /**
+     * Асинхронно возвращает тип дня и список задач на указанную дату из кэша или запрашивает их.
+     * Одновременные запросы одной даты объединяются в один.
+     *
+     * @param date Дата.
+     * @return Будущий объект {@link Day}, общий для всех получателей и не подлежащий изменению;
+     * завершается с {@link IOException}, если запрос не удался.
+     */
+    public CompletableFuture<Day> getDay(LocalDate date) {
+        Day cached = dayCache.get(date);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+        CompletableFuture<Day> existing = loading.get(date);
+        if (existing != null) {
+            return existing;
+        }
 
-            while ((inputLine = in.readLine()) != null) {
-                response.append(inputLine);
+        long stamp = mutations.get();
+        CompletableFuture<Day> future = new CompletableFuture<>();
+        existing = loading.putIfAbsent(date, future);
+        if (existing != null) {
+            return existing;
+        }
+        fetch("/getList?date=" + date, Client::parseDay).whenComplete((day, error) -> {
+            loading.remove(date, future);
+            if (error != null) {
+                future.completeExceptionally(error);
+                return;
             }
-            in.close();
-
-            logger.info("Response to a POST request: " + response);
-
+            cacheIfUnchanged(stamp, date, day);
+            future.complete(day);
+        });
+        return future;
+    }
 
-        } else {
-            logger.error("The POST request failed");
+    /**
+     * Запрашивает в фоне дни вокруг указанной даты одним запросом диапазона, если часть из них отсутствует в кэше.
+     *
+     * @param date   Центральная дата.
+     * @param radius Количество дней до и после центральной даты.
+     * @return Будущее завершение предзагрузки; ошибки записываются в журнал и не пробрасываются.
+     */
+    public CompletableFuture<Void> prefetch(LocalDate date, int radius) {
+        LocalDate from = date.minusDays(radius);
+        LocalDate to = date.plusDays(radius);
+        boolean missing = false;
+        for (LocalDate day = from; !day.isAfter(to) && !missing; day = day.plusDays(1)) {
+            missing = !dayCache.contains(day);
+        }
+        if (!missing) {
+            return CompletableFuture.completedFuture(null);
         }
 
-        connection.disconnect();
+        long stamp = mutations.get();
+        return getRange(from, to)
+                .thenAccept(days -> {
+                    for (Day day : days) {
+                        cacheIfUnchanged(stamp, day.getDate(), day);
+                    }
+                })
+                .exceptionally(error -> {
+                    logger.warn("Prefetch of " + from + " - " + to + " failed: " + error.getMessage());
+                    return null;
+                });
     }
 
     /**
-     * Отправляет POST запрос на сервер для удаления задачи по указанной дате и позиции.
-     *
-     * @param date     Дата, для которой необходимо удалить задачу, в формате "yyyy-MM-dd".
-     * @param position Позиция задачи в списке задач на указанную дату.
-     * @throws IOException Если произошла ошибка ввода-вывода при отправке или обработке запроса.
+     * Удаляет все дни из кэша клиента вместе с сохраненными ответами с ETag.
      */
-    public static void sendDeleteRequest(String date, int position) throws IOException {
-        URL url = new URL(POST_DELETE_URL);
-        logger.info("Request to - " + url);
-        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+    public void clearCache() {
+        mutations.incrementAndGet();
+        dayCache.clear();
+        validators.clear();
+    }
 
-        connection.setRequestMethod("POST");
-        connection.setDoOutput(true);
+    /**
+     * Возвращает количество запросов, на которые сервер ответил 304 и результат был взят из сохраненного ответа.
+     *
+     * @return Количество ответов 304.
+     */
+    public long getNotModifiedCount() {
+        return notModified.sum();
+    }
 
-        String postData = "{\"date\":\"" + date + "\"" + "," + "\"position\":\"" + position + "\"}";
+    /**
+     * Возвращает кэш дней для чтения статистики.
+     *
+     * @return Кэш дней.
+     */
+    public LruCache<LocalDate, Day> getDayCache() {
+        return dayCache;
+    }
 
-        OutputStream os = connection.getOutputStream();
-        os.write(postData.getBytes());
-        os.flush();
-        os.close();
+    /**
+     * Асинхронно запрашивает задачи за диапазон дат одним запросом.
+     *
+     * @param from Первая дата диапазона.
+     * @param to   Последняя дата диапазона.
+     * @return Будущий список объектов {@link Day} по одному на каждую дату диапазона.
+     */
+    public CompletableFuture<List<Day>> getRange(LocalDate from, LocalDate to) {
+        return fetch("/getRange?from=" + from + "&to=" + to, Client::parseDays);
+    }
 
-        int responseCode = connection.getResponseCode();
-        logger.info("POST Response Code :: " + responseCode);
+    /**
+     * Асинхронно запрашивает типы дней и количество задач за месяц одним запросом.
+     *
+     * @param month Месяц.
+     * @return Будущий список объектов {@link DaySummary} по одному на каждый день месяца.
+     */
+    public CompletableFuture<List<DaySummary>> getMonth(YearMonth month) {
+        return fetch("/getMonth?year=" + month.getYear() + "&month=" + month.getMonthValue(), Client::parseMonth);
+    }
 
-        if (responseCode == HttpURLConnection.HTTP_OK) {
-            BufferedReader in = new BufferedReader(new InputStreamReader(
-                    connection.getInputStream()));
-            String inputLine;
-            StringBuilder response = new StringBuilder();
+    /**
+     * Асинхронно создает задачу.
+     *
+     * @param date Дата задачи.
+     * @param text Текст задачи.
+     * @return Будущий ответ сервера.
+     */
+    public CompletableFuture<String> createTask(LocalDate date, String text) {
+        return mutate(List.of(date), post("/create", "{\"date\":\"" + date + "\",\"text\":" + JSONObject.quote(text) + "}"));
+    }
 
-            while ((inputLine = in.readLine()) != null) {
-                response.append(inputLine);
-            }
-            in.close();
+    /**
+     * Асинхронно удаляет задачу по позиции.
+     *
+     * @param date     Дата задачи.
+     * @param position Позиция задачи.
+     * @return Будущий ответ сервера.
+     */
+    public CompletableFuture<String> deleteTask(LocalDate date, int position) {
+        return mutate(List.of(date), post("/delete", "{\"date\":\"" + date + "\",\"position\":" + position + "}"));
+    }
 
-            logger.info("Response to a POST request: " + response);
+    /**
+     * Асинхронно удаляет все задачи на дату.
+     *
+     * @param date Дата.
+     * @return Будущий ответ сервера.
+     */
+    public CompletableFuture<String> cleanDay(LocalDate date) {
+        return mutate(List.of(date), post("/clean", "{\"date\":\"" + date + "\"}"));
+    }
 
-        } else {
-            logger.error("The POST request failed");
+    /**
+     * Асинхронно отправляет пакет операций, применяемых одной транзакцией.
+     *
+     * @param operations Операции в порядке применения.
+     * @return Будущий ответ сервера; завершается с {@link IOException}, если сервер отклонил пакет.
+     */
+    public CompletableFuture<String> applyBatch(List<BatchOperation> operations) {
+        JSONArray postData = new JSONArray();
+        Set<LocalDate> dates = new HashSet<>();
+        for (BatchOperation operation : operations) {
+            postData.put(operation.toJson());
+            dates.add(operation.date());
         }
+        return mutate(dates, post("/batch", postData.toString()));
+    }
 
-        connection.disconnect();
+    /**
+     * Отправляет GET запрос на сервер для получения списка задач на указанную дату.
+     *
+     * @param date Дата, для которой запрашиваются задачи.
+     * @return Объект {@link Day}, содержащий список задач.
+     * @throws IOException Если произошла ошибка ввода-вывода при отправке или обработке запроса.
+     */
+    public Day sendGetRequest(LocalDate date) throws IOException {
+        return await(getDay(date));
     }
 
     /**
-     * Отправляет POST запрос на сервер для создания новой задачи.
+     * Отправляет GET запрос на сервер для получения задач за диапазон дат одним запросом.
      *
-     * @param date Дата, на которую создается задача, в формате "yyyy-MM-dd".
-     * @param text Текст задачи.
+     * @param from Первая дата диапазона.
+     * @param to   Последняя дата диапазона.
+     * @return Список объектов {@link Day} по одному на каждую дату диапазона.
      * @throws IOException Если произошла ошибка ввода-вывода при отправке или обработке запроса.
      */
-    public static void sendCreateRequest(String date, String text) throws IOException {
-        URL url = new URL(POST_CREATE_URL);
-        logger.info("Request to - " + url);
-        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+    public List<Day> sendGetRangeRequest(LocalDate from, LocalDate to) throws IOException {
+        return await(getRange(from, to));
+    }
 
-        connection.setRequestMethod("POST");
-        connection.setDoOutput(true);
+    /**
+     * Отправляет GET запрос на сервер для получения типов дней и количества задач за месяц.
+     *
+     * @param month Месяц.
+     * @return Список объектов {@link DaySummary} по одному на каждый день месяца.
+     * @throws IOException Если произошла ошибка ввода-вывода при отправке или обработке запроса.
+     */
+    public List<DaySummary> sendGetMonthRequest(YearMonth month) throws IOException {
+        return await(getMonth(month));
+    }
 
-        String postData = "{\"date\":\"" + date + "\"" + "," + "\"text\":\"" + text + "\"}";
+    /**
+     * Отправляет POST запрос на сервер для очистки всех задач на указанную дату.
+     *
+     * @param date Дата, для которой необходимо очистить задачи.
+     * @throws IOException Если произошла ошибка ввода-вывода при отправке или обработке запроса.
+     */
+    public void sendCleanRequest(LocalDate date) throws IOException {
+        await(cleanDay(date));
+    }
 
-        OutputStream os = connection.getOutputStream();
-        os.write(postData.getBytes());
-        os.flush();
-        os.close();
+    /**
+     * Отправляет POST запрос на сервер для удаления задачи по указанной дате и позиции.
+     *
+     * @param date     Дата, для которой необходимо удалить задачу.
+     * @param position Позиция задачи в списке задач на указанную дату.
+     * @throws IOException Если произошла ошибка ввода-вывода при отправке или обработке запроса.
+     */
+    public void sendDeleteRequest(LocalDate date, int position) throws IOException {
+        await(deleteTask(date, position));
+    }
 
-        int responseCode = connection.getResponseCode();
-        System.out.println("POST Response Code :: " + responseCode);
+    /**
+     * Отправляет POST запрос на сервер для создания новой задачи.
+     *
+     * @param date Дата, на которую создается задача.
+     * @param text Текст задачи.
+     * @throws IOException Если произошла ошибка ввода-вывода при отправке или обработке запроса.
+     */
+    public void sendCreateRequest(LocalDate date, String text) throws IOException {
+        await(createTask(date, text));
+    }
 
-        if (responseCode == HttpURLConnection.HTTP_OK) {
-            BufferedReader in = new BufferedReader(new InputStreamReader(
-                    connection.getInputStream()));
-            String inputLine;
-            StringBuilder response = new StringBuilder();
+    /**
+     * Отправляет POST запрос на сервер с пакетом операций, применяемых одной транзакцией.
+     *
+     * @param operations Операции в порядке применения.
+     * @return true, если сервер применил пакет.
+     */
+    public boolean sendBatch(List<BatchOperation> operations) {
+        try {
+            await(applyBatch(operations));
+            logger.info("Batch of " + operations.size() + " operations has been applied");
+            return true;
+        } catch (IOException e) {
+            logger.error("The POST request failed: " + e.getMessage());
+            return false;
+        }
+    }
 
-            while ((inputLine = in.readLine()) != null) {
-                response.append(inputLine);
+    /**
+     * Парсит ответ на запрос диапазона дат и создает список объектов {@link Day}.
+     *
+     * @param tokener Источник JSON, представляющий объект с массивом дней.
+     * @return Список объектов {@link Day} или null в случае ошибки парсинга.
+     */
+    public static List<Day> parseDaysFromJson(JSONTokener tokener) {
+        try {
+            JSONArray daysArray = new JSONObject(tokener).getJSONArray("days");
+            List<Day> days = new ArrayList<>(daysArray.length());
+
+            for (int i = 0; i < daysArray.length(); i++) {
+                JSONObject dayJson = daysArray.getJSONObject(i);
+                JSONArray tasksArray = dayJson.getJSONArray("tasks");
+                List<Task> tasks = new ArrayList<>(tasksArray.length());
+                for (int j = 0; j < tasksArray.length(); j++) {
+                    tasks.add(parseTask(tasksArray.getJSONObject(j)));
+                }
+                days.add(new Day(LocalDate.parse(dayJson.getString("date")), dayJson.getString("type"), tasks));
             }
-            in.close();
 
-            logger.info("Response to a POST request: " + response);
-        } else {
-            logger.error("The POST request failed");
+            return days;
+        } catch (Exception e) {
+            logger.error("Error when parsing days: " + e.getMessage());
+            return null;
         }
-
-        connection.disconnect();
     }
 
-
     /**
      * Парсит JSON строку и создает объект {@link Day}, содержащий список задач.
      *
@@ -225,24 +460,231 @@ public class Client {
             String type = json.getString("type");
             JSONArray tasksArray = json.getJSONArray("tasks");
 
-            Day day = new Day(String.valueOf(type));
-
+            List<Task> tasks = new ArrayList<>(tasksArray.length());
             for (int i = 0; i < tasksArray.length(); i++) {
-                JSONObject taskJson = tasksArray.getJSONObject(i);
-                Task task = new Task(
-                        taskJson.getInt("id"),
-                        taskJson.getString("date"),
-                        taskJson.getInt("position"),
-                        taskJson.getString("text")
-                );
-                day.addTask(task);
+                tasks.add(parseTask(tasksArray.getJSONObject(i)));
             }
 
-            return day;
+            return new Day(type, tasks);
         } catch (Exception e) {
             logger.error("unknown error");
             return null;
         }
     }
 
-}
\ No newline at end of file
+    /**
+     * Создает задачу из ее JSON-представления.
+     *
+     * @param taskJson JSON-представление задачи.
+     * @return Задача.
+     */
+    private static Task parseTask(JSONObject taskJson) {
+        return new Task(
+                taskJson.getInt("id"),
+                LocalDate.parse(taskJson.getString("date")),
+                taskJson.getInt("position"),
+                taskJson.getString("text")
+        );
+    }
+
+    /**
+     * Разбирает ответ на запрос списка задач.
+     *
+     * @param body Тело ответа.
+     * @return Объект {@link Day}.
+     * @throws IOException Если ответ не удалось разобрать.
+     */
+    private static Day parseDay(String body) throws IOException {
+        Day day = parseTasksFromJson(body);
+        if (day == null) {
+            throw new IOException("Malformed day response");
+        }
+        return day;
+    }
+
+    /**
+     * Разбирает ответ на запрос диапазона дат.
+     *
+     * @param body Тело ответа.
+     * @return Список объектов {@link Day}.
+     * @throws IOException Если ответ не удалось разобрать.
+     */
+    private static List<Day> parseDays(String body) throws IOException {
+        List<Day> days = parseDaysFromJson(new JSONTokener(body));
+        if (days == null) {
+            throw new IOException("Malformed range response");
+        }
+        return days;
+    }
+
+    /**
+     * Разбирает ответ на запрос месяца.
+     *
+     * @param body Тело ответа.
+     * @return Список объектов {@link DaySummary}.
+     * @throws IOException Если ответ не удалось разобрать.
+     */
+    private static List<DaySummary> parseMonth(String body) throws IOException {
+        try {
+            JSONObject json = new JSONObject(body);
+            LocalDate date = YearMonth.parse(json.getString("month")).atDay(1);
+            JSONArray daysArray = json.getJSONArray("days");
+            List<DaySummary> days = new ArrayList<>(daysArray.length());
+            for (int i = 0; i < daysArray.length(); i++, date = date.plusDays(1)) {
+                JSONArray day = daysArray.getJSONArray(i);
+                days.add(new DaySummary(date, day.isNull(0) ? null : day.getString(0), day.getInt(1)));
+            }
+            return days;
+        } catch (RuntimeException e) {
+            throw new IOException("Malformed month response", e);
+        }
+    }
+
+    /**
+     * Отправляет GET запрос с ETag предыдущего ответа на тот же адрес. Если сервер отвечает 304,
+     * возвращается результат разбора предыдущего ответа без передачи и разбора тела.
+     *
+     * @param path   Путь и параметры запроса.
+     * @param parser Разбор тела ответа.
+     * @param <T>    Тип результата; один адрес всегда разбирается в один и тот же тип.
+     * @return Будущий результат; завершается с {@link IOException}, если код ответа отличен от 200 и 304.
+     */
+    @SuppressWarnings("unchecked")
+    private <T> CompletableFuture<T> fetch(String path, ResponseParser<T> parser) {
+        Validated validated = validators.get(path);
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(timeout)
+                .GET();
+        if (validated != null) {
+            builder.header("If-None-Match", validated.etag());
+        }
+        HttpRequest request = builder.build();
+        logger.info("Request to - " + request.uri());
+        return http.sendAsync(request, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8))
+                .thenApply(response -> {
+                    logger.info("GET Response Code :: " + response.statusCode());
+                    if (response.statusCode() == 304 && validated != null) {
+                        notModified.increment();
+                        return (T) validated.value();
+                    }
+                    if (response.statusCode() != 200) {
+                        throw new CompletionException(new IOException("The GET request failed: " + response.statusCode()));
+                    }
+                    T value;
+                    try {
+                        value = parser.parse(response.body());
+                    } catch (IOException e) {
+                        throw new CompletionException(e);
+                    }
+                    Optional<String> etag = response.headers().firstValue("ETag");
+                    if (etag.isPresent()) {
+                        validators.put(path, new Validated(etag.get(), value));
+                    } else {
+                        validators.invalidate(path);
+                    }
+                    return value;
+                });
+    }
+
+    /**
+     * Создает POST запрос с JSON-телом.
+     *
+     * @param path Путь запроса.
+     * @param json Тело запроса.
+     * @return Запрос.
+     */
+    private HttpRequest post(String path, String json) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(timeout)
+                .header("Content-Type", "application/json; charset=utf-8")
+                .POST(HttpRequest.BodyPublishers.ofString(json, StandardCharsets.UTF_8))
+                .build();
+    }
+
+    /**
+     * Отправляет изменяющий запрос, сбрасывая кэш затронутых дат до отправки и после ответа.
+     *
+     * @param dates   Затронутые даты.
+     * @param request Запрос.
+     * @return Будущий ответ сервера.
+     */
+    private CompletableFuture<String> mutate(Collection<LocalDate> dates, HttpRequest request) {
+        invalidate(dates);
+        return send(request, body -> body).whenComplete((body, error) -> invalidate(dates));
+    }
+
+    /**
+     * Сбрасывает кэш дат и отмечает изменение, чтобы выполняющиеся запросы не закэшировали устаревшие дни,
+     * а новые запросы не присоединялись к ним.
+     *
+     * @param dates Даты.
+     */
+    private void invalidate(Collection<LocalDate> dates) {
+        mutations.incrementAndGet();
+        for (LocalDate date : dates) {
+            dayCache.invalidate(date);
+            loading.remove(date);
+        }
+    }
+
+    /**
+     * Кэширует день, если с начала его запроса этим клиентом не было отправлено изменений.
+     *
+     * @param stamp Значение счетчика изменений в начале запроса.
+     * @param date  Дата.
+     * @param day   День.
+     */
+    private void cacheIfUnchanged(long stamp, LocalDate date, Day day) {
+        if (date != null && mutations.get() == stamp) {
+            dayCache.put(date, day);
+        }
+    }
+
+    /**
+     * Отправляет запрос и разбирает тело успешного ответа.
+     *
+     * @param request Запрос.
+     * @param parser  Разбор тела ответа.
+     * @param <T>     Тип результата.
+     * @return Будущий результат; завершается с {@link IOException}, если код ответа отличен от 200.
+     */
+    private <T> CompletableFuture<T> send(HttpRequest request, ResponseParser<T> parser) {
+        logger.info("Request to - " + request.uri());
+        return http.sendAsync(request, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8))
+                .thenApply(response -> {
+                    logger.info(request.method() + " Response Code :: " + response.statusCode());
+                    if (response.statusCode() != 200) {
+                        throw new CompletionException(new IOException(
+                                "The " + request.method() + " request failed: " + response.statusCode()));
+                    }
+                    try {
+                        return parser.parse(response.body());
+                    } catch (IOException e) {
+                        throw new CompletionException(e);
+                    }
+                });
+    }
+
+    /**
+     * Ожидает завершения асинхронного запроса.
+     *
+     * @param future Будущий результат.
+     * @param <T>    Тип результата.
+     * @return Результат.
+     * @throws IOException Если запрос не удался или ожидание прервано.
+     */
+    private static <T> T await(CompletableFuture<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for the server", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException("Request failed", cause);
+        }
+    }
+}
@@ -0,0 +1,299 @@
+package project.calendar;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Класс ConnectionPool хранит ограниченный набор долгоживущих соединений с базой данных SQLite.
+ * Соединения создаются по мере необходимости, но не более заданного максимума,
+ * и переиспользуются между запросами вместо открытия нового соединения на каждый вызов.
+ */
+public class ConnectionPool implements AutoCloseable {
+    /**
+     * Поле для логирования
+     */
+    private static final Logger logger = LogManager.getLogger(ConnectionPool.class);
+    /**
+     * Настройки, применяемые к каждому новому соединению.
+     */
+    private static final String[] PRAGMAS = {
+            "PRAGMA journal_mode=WAL;",
+            "PRAGMA busy_timeout=5000;",
+            "PRAGMA temp_store=MEMORY;",
+            "PRAGMA cache_size=-8000;"
+    };
+    /**
+     * Допустимые значения настройки synchronous.
+     */
+    private static final Set<String> SYNCHRONOUS_MODES = Set.of("OFF", "NORMAL", "FULL", "EXTRA");
+
+    /**
+     * URL-адрес базы данных.
+     */
+    private final String url;
+    /**
+     * Значение настройки synchronous для новых соединений.
+     */
+    private final String synchronous;
+    /**
+     * Максимальное количество соединений в пуле.
+     */
+    private final int maxSize;
+    /**
+     * Максимальное время ожидания свободного соединения в миллисекундах.
+     */
+    private final long borrowTimeoutMillis;
+    /**
+     * Свободные соединения, готовые к выдаче.
+     */
+    private final BlockingQueue<PooledConnection> idle;
+    /**
+     * Количество созданных соединений.
+     */
+    private final AtomicInteger created = new AtomicInteger();
+    /**
+     * Признак закрытого пула.
+     */
+    private volatile boolean closed;
+
+    /**
+     * Конструктор класса ConnectionPool.
+     *
+     * @param url                 URL-адрес базы данных.
+     * @param maxSize             Максимальное количество соединений.
+     * @param borrowTimeoutMillis Максимальное время ожидания свободного соединения в миллисекундах.
+     */
+    public ConnectionPool(String url, int maxSize, long borrowTimeoutMillis) {
+        this(url, maxSize, borrowTimeoutMillis, "NORMAL");
+    }
+
+    /**
+     * Конструктор класса ConnectionPool с указанием режима записи на диск.
+     * В режиме WAL значение NORMAL не сбрасывает журнал на диск при каждой фиксации транзакции
+     * и может потерять последние транзакции при отключении питания, FULL сбрасывает журнал
+     * при каждой фиксации, OFF не сбрасывает его никогда.
+     *
+     * @param url                 URL-адрес базы данных.
+     * @param maxSize             Максимальное количество соединений.
+     * @param borrowTimeoutMillis Максимальное время ожидания свободного соединения в миллисекундах.
+     * @param synchronous         Значение настройки synchronous: OFF, NORMAL, FULL или EXTRA.
+     */
+    public ConnectionPool(String url, int maxSize, long borrowTimeoutMillis, String synchronous) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("Pool size must be positive: " + maxSize);
+        }
+        this.synchronous = synchronous.toUpperCase(Locale.ROOT);
+        if (!SYNCHRONOUS_MODES.contains(this.synchronous)) {
+            throw new IllegalArgumentException("Unknown synchronous mode: " + synchronous);
+        }
+        this.url = url;
+        this.maxSize = maxSize;
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
+        this.idle = new ArrayBlockingQueue<>(maxSize);
+    }
+
+    /**
+     * Выдает соединение из пула. Если свободных соединений нет и лимит не исчерпан,
+     * создает новое, иначе ожидает возврата соединения другим потоком.
+     *
+     * @return Соединение, которое необходимо закрыть после использования для возврата в пул.
+     * @throws SQLException Если пул закрыт, соединение не удалось создать или истекло время ожидания.
+     */
+    public PooledConnection borrow() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+        PooledConnection connection = idle.poll();
+        if (connection != null) {
+            return connection;
+        }
+        int count;
+        while ((count = created.get()) < maxSize) {
+            if (created.compareAndSet(count, count + 1)) {
+                try {
+                    return open();
+                } catch (SQLException e) {
+                    created.decrementAndGet();
+                    throw e;
+                }
+            }
+        }
+        try {
+            connection = idle.poll(borrowTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a connection", e);
+        }
+        if (connection == null) {
+            throw new SQLException("Timed out waiting for a database connection");
+        }
+        return connection;
+    }
+
+    /**
+     * Возвращает соединение в пул. Закрытые соединения и соединения закрытого пула уничтожаются.
+     *
+     * @param connection Возвращаемое соединение.
+     */
+    void release(PooledConnection connection) {
+        if (closed || connection.isBroken() || !idle.offer(connection)) {
+            discard(connection);
+        }
+    }
+
+    /**
+     * Закрывает все свободные соединения. Выданные соединения закрываются при возврате.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        PooledConnection connection;
+        while ((connection = idle.poll()) != null) {
+            discard(connection);
+        }
+        logger.info("The connection pool is closed.");
+    }
+
+    /**
+     * Открывает новое соединение и применяет к нему настройки.
+     *
+     * @return Новое соединение.
+     * @throws SQLException Если соединение не удалось открыть.
+     */
+    private PooledConnection open() throws SQLException {
+        // Транзакции сразу берут блокировку записи: иначе транзакция, начавшаяся с чтения,
+        // при попытке записать после чужой фиксации получает SQLITE_BUSY без ожидания busy_timeout.
+        Properties properties = new Properties();
+        properties.setProperty("transaction_mode", "IMMEDIATE");
+        Connection connection = DriverManager.getConnection(url, properties);
+        try (Statement statement = connection.createStatement()) {
+            for (String pragma : PRAGMAS) {
+                statement.execute(pragma);
+            }
+            statement.execute("PRAGMA synchronous=" + synchronous + ";");
+        } catch (SQLException e) {
+            connection.close();
+            throw e;
+        }
+        logger.info("The connection to the database is established.");
+        return new PooledConnection(this, connection);
+    }
+
+    /**
+     * Закрывает соединение и уменьшает счетчик созданных соединений.
+     *
+     * @param connection Закрываемое соединение.
+     */
+    private void discard(PooledConnection connection) {
+        created.decrementAndGet();
+        connection.closePhysically();
+    }
+
+    /**
+     * Соединение, выданное пулом. Хранит кэш подготовленных запросов
+     * и возвращается в пул при вызове {@link #close()}.
+     */
+    public static class PooledConnection implements AutoCloseable {
+        /**
+         * Пул, которому принадлежит соединение.
+         */
+        private final ConnectionPool pool;
+        /**
+         * Физическое соединение с базой данных.
+         */
+        private final Connection connection;
+        /**
+         * Кэш подготовленных запросов по тексту SQL.
+         */
+        private final Map<String, PreparedStatement> statements = new HashMap<>();
+
+        /**
+         * Конструктор класса PooledConnection.
+         *
+         * @param pool       Пул, которому принадлежит соединение.
+         * @param connection Физическое соединение с базой данных.
+         */
+        private PooledConnection(ConnectionPool pool, Connection connection) {
+            this.pool = pool;
+            this.connection = connection;
+        }
+
+        /**
+         * Возвращает физическое соединение с базой данных.
+         *
+         * @return Соединение с базой данных.
+         */
+        public Connection getConnection() {
+            return connection;
+        }
+
+        /**
+         * Возвращает подготовленный запрос из кэша соединения или подготавливает новый.
+         * Возвращенный запрос нельзя закрывать: он принадлежит соединению.
+         *
+         * @param sql Текст SQL-запроса.
+         * @return Подготовленный запрос.
+         * @throws SQLException Если запрос не удалось подготовить.
+         */
+        public PreparedStatement prepare(String sql) throws SQLException {
+            PreparedStatement statement = statements.get(sql);
+            if (statement == null || statement.isClosed()) {
+                statement = connection.prepareStatement(sql);
+                statements.put(sql, statement);
+            }
+            return statement;
+        }
+
+        /**
+         * Проверяет, пригодно ли соединение для дальнейшего использования.
+         *
+         * @return true, если соединение закрыто или недоступно.
+         */
+        private boolean isBroken() {
+            try {
+                return connection.isClosed();
+            } catch (SQLException e) {
+                return true;
+            }
+        }
+
+        /**
+         * Закрывает подготовленные запросы и физическое соединение.
+         */
+        private void closePhysically() {
+            try {
+                for (PreparedStatement statement : statements.values()) {
+                    statement.close();
+                }
+                statements.clear();
+                connection.close();
+                logger.info("The connection to the database is closed.");
+            } catch (SQLException e) {
+                logger.error("Error when closing the connection: " + e.getMessage());
+            }
+        }
+
+        /**
+         * Возвращает соединение в пул.
+         */
+        @Override
+        public void close() {
+            pool.release(this);
+        }
+    }
+}
@@ -1,13 +1,81 @@
 package project.calendar;
 
+import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 /**
  * Класс Convertor предоставляет утилитарные методы для работы с JSON.
+ * Тела запросов создания, удаления и очистки задач разбираются без построения дерева JSON:
+ * из потока читаются только известные поля плоского объекта, остальные пропускаются.
  */
 public class Convertor {
 
+    /**
+     * Запрос создания задачи.
+     *
+     * @param date Дата задачи.
+     * @param text Текст задачи.
+     */
+    public record CreateRequest(LocalDate date, String text) {
+    }
+
+    /**
+     * Запрос удаления задачи по позиции.
+     *
+     * @param date     Дата задачи.
+     * @param position Позиция задачи.
+     */
+    public record DeleteRequest(LocalDate date, int position) {
+    }
+
+    /**
+     * Запрос удаления всех задач на дату.
+     *
+     * @param date Дата.
+     */
+    public record CleanRequest(LocalDate date) {
+    }
+
+    /**
+     * Исключение, описывающее некорректное тело запроса, с HTTP-кодом ответа.
+     */
+    public static class RequestFormatException extends Exception {
+        /**
+         * HTTP-код ответа.
+         */
+        private final int status;
+
+        /**
+         * Конструктор исключения.
+         *
+         * @param status  HTTP-код ответа.
+         * @param message Описание ошибки.
+         */
+        public RequestFormatException(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+
+        /**
+         * Возвращает HTTP-код ответа.
+         *
+         * @return HTTP-код ответа.
+         */
+        public int getStatus() {
+            return status;
+        }
+    }
+
     /**
      * Преобразует строку в формате JSON в объект {@link JSONObject}.
      *
@@ -18,4 +86,528 @@ public class Convertor {
     public static JSONObject stringToJson(String jsonString) throws JSONException {
         return new JSONObject(jsonString);
     }
-}
\ No newline at end of file
+
+    /**
+     * Преобразует строку в формате JSON в массив {@link JSONArray}.
+     *
+     * @param jsonString Строка в формате JSON.
+     * @return Объект {@link JSONArray}, представляющий JSON массив.
+     * @throws JSONException Если строка не является корректным JSON массивом.
+     */
+    public static JSONArray stringToJsonArray(String jsonString) throws JSONException {
+        return new JSONArray(jsonString);
+    }
+
+    /**
+     * Читает запрос создания задачи вида {@code {"date":"yyyy-MM-dd","text":"..."}}.
+     *
+     * @param in       Поток тела запроса.
+     * @param maxBytes Наибольший размер тела в байтах.
+     * @return Запрос создания задачи.
+     * @throws RequestFormatException Если тело слишком велико или не описывает запрос.
+     * @throws IOException            Если возникает ошибка ввода-вывода.
+     */
+    public static CreateRequest decodeCreate(InputStream in, int maxBytes) throws RequestFormatException, IOException {
+        BodyReader reader = new BodyReader(readBody(in, maxBytes));
+        String[] fields = reader.readFields("date", "text");
+        String text = require("text", fields[1]);
+        if (!reader.isString(1)) {
+            throw new RequestFormatException(400, "Field text must be a string");
+        }
+        return new CreateRequest(parseDate(fields[0]), text);
+    }
+
+    /**
+     * Читает запрос удаления задачи вида {@code {"date":"yyyy-MM-dd","position":3}};
+     * позиция может быть передана числом или строкой.
+     *
+     * @param in       Поток тела запроса.
+     * @param maxBytes Наибольший размер тела в байтах.
+     * @return Запрос удаления задачи.
+     * @throws RequestFormatException Если тело слишком велико или не описывает запрос.
+     * @throws IOException            Если возникает ошибка ввода-вывода.
+     */
+    public static DeleteRequest decodeDelete(InputStream in, int maxBytes) throws RequestFormatException, IOException {
+        String[] fields = new BodyReader(readBody(in, maxBytes)).readFields("date", "position");
+        String position = require("position", fields[1]);
+        try {
+            return new DeleteRequest(parseDate(fields[0]), Integer.parseInt(position));
+        } catch (NumberFormatException e) {
+            throw new RequestFormatException(400, "Incorrect position: " + position);
+        }
+    }
+
+    /**
+     * Читает запрос удаления всех задач на дату вида {@code {"date":"yyyy-MM-dd"}}.
+     *
+     * @param in       Поток тела запроса.
+     * @param maxBytes Наибольший размер тела в байтах.
+     * @return Запрос очистки.
+     * @throws RequestFormatException Если тело слишком велико или не описывает запрос.
+     * @throws IOException            Если возникает ошибка ввода-вывода.
+     */
+    public static CleanRequest decodeClean(InputStream in, int maxBytes) throws RequestFormatException, IOException {
+        String[] fields = new BodyReader(readBody(in, maxBytes)).readFields("date");
+        return new CleanRequest(parseDate(fields[0]));
+    }
+
+    /**
+     * Читает пакет операций вида {@code [{"op":"create","date":"yyyy-MM-dd","text":"..."}, ...]}.
+     *
+     * @param in            Поток тела запроса.
+     * @param maxBytes      Наибольший размер тела в байтах.
+     * @param maxOperations Наибольшее количество операций в пакете.
+     * @return Операции пакета.
+     * @throws RequestFormatException Если тело слишком велико, содержит слишком много операций
+     *                                или не описывает пакет.
+     * @throws IOException            Если возникает ошибка ввода-вывода.
+     */
+    public static List<BatchOperation> decodeBatch(InputStream in, int maxBytes, int maxOperations)
+            throws RequestFormatException, IOException {
+        Body body = readBody(in, maxBytes);
+        try {
+            JSONArray jsonArray = stringToJsonArray(new String(body.bytes(), 0, body.length(), StandardCharsets.UTF_8));
+            if (jsonArray.length() > maxOperations) {
+                throw new RequestFormatException(400, "Too many operations: " + jsonArray.length());
+            }
+            List<BatchOperation> operations = new ArrayList<>(jsonArray.length());
+            for (int i = 0; i < jsonArray.length(); i++) {
+                operations.add(BatchOperation.fromJson(jsonArray.getJSONObject(i)));
+            }
+            return operations;
+        } catch (JSONException e) {
+            throw new RequestFormatException(400, e.getMessage());
+        }
+    }
+
+    /**
+     * Читает тело запроса, не превышающее заданный размер.
+     *
+     * @param in       Поток тела запроса.
+     * @param maxBytes Наибольший размер тела в байтах.
+     * @return Тело запроса.
+     * @throws RequestFormatException Если тело больше заданного размера.
+     * @throws IOException            Если возникает ошибка ввода-вывода.
+     */
+    private static Body readBody(InputStream in, int maxBytes) throws RequestFormatException, IOException {
+        byte[] buffer = new byte[Math.min(maxBytes + 1, 256)];
+        int length = 0;
+        while (true) {
+            if (length == buffer.length) {
+                if (length > maxBytes) {
+                    throw new RequestFormatException(413, "Request body is larger than " + maxBytes + " bytes");
+                }
+                buffer = Arrays.copyOf(buffer, Math.min(maxBytes + 1, buffer.length * 2));
+            }
+            int read = in.read(buffer, length, buffer.length - length);
+            if (read < 0) {
+                break;
+            }
+            length += read;
+        }
+        if (length > maxBytes) {
+            throw new RequestFormatException(413, "Request body is larger than " + maxBytes + " bytes");
+        }
+        return new Body(buffer, length);
+    }
+
+    /**
+     * Проверяет наличие обязательного поля.
+     *
+     * @param name  Имя поля.
+     * @param value Значение поля или null.
+     * @return Значение поля.
+     * @throws RequestFormatException Если поле отсутствует.
+     */
+    private static String require(String name, String value) throws RequestFormatException {
+        if (value == null) {
+            throw new RequestFormatException(400, "Missing field: " + name);
+        }
+        return value;
+    }
+
+    /**
+     * Разбирает обязательную дату в формате "yyyy-MM-dd".
+     *
+     * @param value Значение поля date или null.
+     * @return Дата.
+     * @throws RequestFormatException Если поле отсутствует или не является датой.
+     */
+    private static LocalDate parseDate(String value) throws RequestFormatException {
+        require("date", value);
+        try {
+            if (value.length() == 10 && value.charAt(4) == '-' && value.charAt(7) == '-') {
+                // Обычная запись разбирается без форматтера, который создает много промежуточных объектов.
+                int year = digits(value, 0, 4);
+                int month = digits(value, 5, 7);
+                int day = digits(value, 8, 10);
+                if (year >= 0 && month >= 0 && day >= 0) {
+                    return LocalDate.of(year, month, day);
+                }
+            }
+            return LocalDate.parse(value);
+        } catch (DateTimeException e) {
+            throw new RequestFormatException(400, "Incorrect date: " + value);
+        }
+    }
+
+    /**
+     * Разбирает десятичные цифры части строки.
+     *
+     * @param value Строка.
+     * @param from  Начало части.
+     * @param to    Конец части, не включая.
+     * @return Число или -1, если часть содержит не только цифры.
+     */
+    private static int digits(String value, int from, int to) {
+        int result = 0;
+        for (int i = from; i < to; i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            result = result * 10 + (c - '0');
+        }
+        return result;
+    }
+
+    /**
+     * Прочитанное тело запроса.
+     *
+     * @param bytes  Буфер с телом запроса.
+     * @param length Длина тела в байтах.
+     */
+    private record Body(byte[] bytes, int length) {
+    }
+
+    /**
+     * Разбирает плоский JSON-объект из байт тела запроса. Значениями полей могут быть
+     * строки, числа, true, false и null; вложенные объекты и массивы не допускаются.
+     */
+    private static final class BodyReader {
+        /**
+         * Байты тела запроса.
+         */
+        private final byte[] bytes;
+        /**
+         * Длина тела в байтах.
+         */
+        private final int end;
+        /**
+         * Текущая позиция разбора.
+         */
+        private int pos;
+        /**
+         * Признаки того, что значение запрошенного поля было записано строкой.
+         */
+        private boolean[] strings;
+
+        /**
+         * Конструктор разборщика.
+         *
+         * @param body Тело запроса.
+         */
+        private BodyReader(Body body) {
+            this.bytes = body.bytes();
+            this.end = body.length();
+        }
+
+        /**
+         * Читает объект и возвращает значения запрошенных полей в виде строк;
+         * числа возвращаются своей записью, null и отсутствующие поля - значением null.
+         *
+         * @param names Имена запрошенных полей.
+         * @return Значения полей в порядке имен.
+         * @throws RequestFormatException Если тело не является плоским JSON-объектом.
+         */
+        private String[] readFields(String... names) throws RequestFormatException {
+            String[] values = new String[names.length];
+            strings = new boolean[names.length];
+            expect('{');
+            if (peek() == '}') {
+                pos++;
+            } else {
+                while (true) {
+                    expect('"');
+                    int field = matchName(names);
+                    expect(':');
+                    boolean string = peek() == '"';
+                    String value = readValue(field >= 0);
+                    if (field >= 0) {
+                        values[field] = value;
+                        strings[field] = string;
+                    }
+                    int next = next();
+                    if (next == '}') {
+                        break;
+                    }
+                    if (next != ',') {
+                        throw error("',' or '}'");
+                    }
+                }
+            }
+            if (peek() != -1) {
+                throw error("end of body");
+            }
+            return values;
+        }
+
+        /**
+         * Проверяет, было ли значение поля последнего прочитанного объекта записано строкой.
+         *
+         * @param field Номер поля в порядке имен, переданных {@link #readFields(String...)}.
+         * @return true, если значение поля было строкой JSON.
+         */
+        private boolean isString(int field) {
+            return strings[field];
+        }
+
+        /**
+         * Читает имя поля после открывающей кавычки и сравнивает его с запрошенными именами без создания строки.
+         *
+         * @param names Имена запрошенных полей из символов ASCII.
+         * @return Номер совпавшего имени или -1.
+         * @throws RequestFormatException Если имя не завершено.
+         */
+        private int matchName(String[] names) throws RequestFormatException {
+            int start = pos;
+            while (pos < end && bytes[pos] != '"') {
+                if (bytes[pos] == '\\') {
+                    // Имена с экранированием не совпадают ни с одним известным полем.
+                    pos = start;
+                    readString(false);
+                    return -1;
+                }
+                pos++;
+            }
+            if (pos == end) {
+                throw error("'\"'");
+            }
+            int length = pos - start;
+            pos++;
+            for (int i = 0; i < names.length; i++) {
+                String name = names[i];
+                if (name.length() == length && regionEquals(start, name)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * Сравнивает байты тела с именем из символов ASCII.
+         *
+         * @param start Начало сравниваемой области.
+         * @param name  Имя.
+         * @return true, если байты совпадают с именем.
+         */
+        private boolean regionEquals(int start, String name) {
+            for (int i = 0; i < name.length(); i++) {
+                if (bytes[start + i] != name.charAt(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Читает значение поля.
+         *
+         * @param keep Нужно ли вернуть значение; пропускаемые значения не создают строк.
+         * @return Значение в виде строки или null.
+         * @throws RequestFormatException Если значение некорректно.
+         */
+        private String readValue(boolean keep) throws RequestFormatException {
+            int first = peek();
+            if (first == '"') {
+                pos++;
+                return readString(keep);
+            }
+            if (first == '-' || (first >= '0' && first <= '9')) {
+                int start = pos;
+                while (pos < end && isNumberByte(bytes[pos])) {
+                    pos++;
+                }
+                return keep ? new String(bytes, start, pos - start, StandardCharsets.US_ASCII) : null;
+            }
+            if (literal("null")) {
+                return null;
+            }
+            if (literal("true")) {
+                return keep ? "true" : null;
+            }
+            if (literal("false")) {
+                return keep ? "false" : null;
+            }
+            throw error("a string, number or literal");
+        }
+
+        /**
+         * Читает строку после открывающей кавычки. Строки без экранирования декодируются
+         * из UTF-8 одним вызовом, строки с экранированием - посимвольно.
+         *
+         * @param keep Нужно ли вернуть строку.
+         * @return Строка или null, если она не нужна.
+         * @throws RequestFormatException Если строка не завершена или экранирование некорректно.
+         */
+        private String readString(boolean keep) throws RequestFormatException {
+            int start = pos;
+            while (pos < end && bytes[pos] != '"' && bytes[pos] != '\\') {
+                if ((bytes[pos] & 0xFF) < 0x20) {
+                    throw error("an escaped control character");
+                }
+                pos++;
+            }
+            if (pos == end) {
+                throw error("'\"'");
+            }
+            if (bytes[pos] == '"') {
+                pos++;
+                return keep ? new String(bytes, start, pos - 1 - start, StandardCharsets.UTF_8) : null;
+            }
+
+            StringBuilder builder = new StringBuilder(pos - start + 16);
+            builder.append(new String(bytes, start, pos - start, StandardCharsets.UTF_8));
+            while (true) {
+                int runStart = pos;
+                while (pos < end && bytes[pos] != '"' && bytes[pos] != '\\') {
+                    if ((bytes[pos] & 0xFF) < 0x20) {
+                        throw error("an escaped control character");
+                    }
+                    pos++;
+                }
+                if (pos == end) {
+                    throw error("'\"'");
+                }
+                if (pos > runStart) {
+                    builder.append(new String(bytes, runStart, pos - runStart, StandardCharsets.UTF_8));
+                }
+                if (bytes[pos++] == '"') {
+                    return keep ? builder.toString() : null;
+                }
+                int escape = next();
+                switch (escape) {
+                    case '"':
+                    case '\\':
+                    case '/':
+                        builder.append((char) escape);
+                        break;
+                    case 'b':
+                        builder.append('\b');
+                        break;
+                    case 'f':
+                        builder.append('\f');
+                        break;
+                    case 'n':
+                        builder.append('\n');
+                        break;
+                    case 'r':
+                        builder.append('\r');
+                        break;
+                    case 't':
+                        builder.append('\t');
+                        break;
+                    case 'u':
+                        builder.append(readHex());
+                        break;
+                    default:
+                        throw error("a valid escape sequence");
+                }
+            }
+        }
+
+        /**
+         * Читает четыре шестнадцатеричные цифры экранирования \\uXXXX.
+         *
+         * @return Символ.
+         * @throws RequestFormatException Если цифры некорректны.
+         */
+        private char readHex() throws RequestFormatException {
+            if (pos + 4 > end) {
+                throw error("four hex digits");
+            }
+            int value = 0;
+            for (int i = 0; i < 4; i++) {
+                int digit = Character.digit(bytes[pos++], 16);
+                if (digit < 0) {
+                    throw error("four hex digits");
+                }
+                value = value * 16 + digit;
+            }
+            return (char) value;
+        }
+
+        /**
+         * Пропускает литерал, если он начинается в текущей позиции.
+         *
+         * @param literal Литерал.
+         * @return true, если литерал прочитан.
+         */
+        private boolean literal(String literal) {
+            if (pos + literal.length() > end || !regionEquals(pos, literal)) {
+                return false;
+            }
+            pos += literal.length();
+            return true;
+        }
+
+        /**
+         * Проверяет, может ли байт входить в запись числа.
+         *
+         * @param b Байт.
+         * @return true, если байт допустим в записи числа.
+         */
+        private static boolean isNumberByte(byte b) {
+            return (b >= '0' && b <= '9') || b == '-' || b == '+' || b == '.' || b == 'e' || b == 'E';
+        }
+
+        /**
+         * Пропускает пробельные символы и проверяет следующий символ.
+         *
+         * @param expected Ожидаемый символ.
+         * @throws RequestFormatException Если следующий символ другой.
+         */
+        private void expect(char expected) throws RequestFormatException {
+            if (next() != expected) {
+                throw error("'" + expected + "'");
+            }
+        }
+
+        /**
+         * Пропускает пробельные символы и читает следующий символ.
+         *
+         * @return Следующий символ.
+         * @throws RequestFormatException Если тело закончилось.
+         */
+        private int next() throws RequestFormatException {
+            int b = peek();
+            if (b == -1) {
+                throw error("more input");
+            }
+            pos++;
+            return b;
+        }
+
+        /**
+         * Пропускает пробельные символы и возвращает следующий символ, не читая его.
+         *
+         * @return Следующий символ или -1 в конце тела.
+         */
+        private int peek() {
+            while (pos < end && (bytes[pos] == ' ' || bytes[pos] == '\t' || bytes[pos] == '\n' || bytes[pos] == '\r')) {
+                pos++;
+            }
+            return pos < end ? bytes[pos] & 0xFF : -1;
+        }
+
+        /**
+         * Создает исключение о неожиданном содержимом тела.
+         *
+         * @param expected Описание ожидаемого содержимого.
+         * @return Исключение с кодом 400.
+         */
+        private RequestFormatException error(String expected) {
+            return new RequestFormatException(400, "Expected " + expected + " at byte " + pos);
+        }
+    }
+}
@@ -1,18 +1,23 @@
 package project.calendar;
 
-import java.util.ArrayList;
+import java.time.LocalDate;
 import java.util.List;
 
 /**
  * Класс Day представляет собой день в календаре, содержащий список задач.
+ * Объекты неизменяемы: клиент хранит их в общем кэше и отдает одни и те же экземпляры всем вызывающим.
  */
 public class Day {
+    /**
+     * Дата дня или null, если она не указана.
+     */
+    private final LocalDate date;
     /**
      * Тип дня (рабочий, выходной, и т.д.).
      */
     private final String type;
     /**
-     * Список задач на день.
+     * Неизменяемый список задач на день.
      */
     private final List<Task> tasks;
 
@@ -22,8 +27,49 @@ public class Day {
      * @param type Тип дня (рабочий, выходной и т.д.).
      */
     public Day(String type) {
+        this(null, type, List.of());
+    }
+
+    /**
+     * Конструктор класса Day со списком задач без указания даты.
+     *
+     * @param type  Тип дня (рабочий, выходной и т.д.).
+     * @param tasks Задачи на день; список копируется.
+     */
+    public Day(String type, List<Task> tasks) {
+        this(null, type, tasks);
+    }
+
+    /**
+     * Конструктор класса Day с указанием даты.
+     *
+     * @param date Дата дня.
+     * @param type Тип дня (рабочий, выходной и т.д.).
+     */
+    public Day(LocalDate date, String type) {
+        this(date, type, List.of());
+    }
+
+    /**
+     * Конструктор класса Day с указанием даты и списка задач.
+     *
+     * @param date  Дата дня.
+     * @param type  Тип дня (рабочий, выходной и т.д.).
+     * @param tasks Задачи на день; список копируется.
+     */
+    public Day(LocalDate date, String type, List<Task> tasks) {
+        this.date = date;
         this.type = type;
-        this.tasks = new ArrayList<>();
+        this.tasks = List.copyOf(tasks);
+    }
+
+    /**
+     * Возвращает дату дня.
+     *
+     * @return Дата дня или null, если она не указана.
+     */
+    public LocalDate getDate() {
+        return date;
     }
 
     /**
@@ -38,21 +84,12 @@ public class Day {
     /**
      * Возвращает список задач на день.
      *
-     * @return Список задач.
+     * @return Неизменяемый список задач.
      */
     public List<Task> getTasks() {
         return tasks;
     }
 
-    /**
-     * Добавляет задачу в список задач на день.
-     *
-     * @param task Задача для добавления.
-     */
-    public void addTask(Task task) {
-        tasks.add(task);
-    }
-
     /**
      * Возвращает строковое представление объекта Day в формате JSON.
      *
@@ -0,0 +1,71 @@
+package project.calendar;
+
+import java.time.LocalDate;
+
+/**
+ * Класс DaySummary представляет собой краткие сведения о дне для сетки месяца: тип дня и количество задач.
+ */
+public class DaySummary {
+    /**
+     * Дата дня.
+     */
+    private final LocalDate date;
+    /**
+     * Код типа дня сервиса isdayoff.ru или null, если тип дня неизвестен.
+     */
+    private final String type;
+    /**
+     * Количество задач на день.
+     */
+    private final int taskCount;
+
+    /**
+     * Конструктор класса DaySummary.
+     *
+     * @param date      Дата дня.
+     * @param type      Код типа дня сервиса isdayoff.ru или null, если тип дня неизвестен.
+     * @param taskCount Количество задач на день.
+     */
+    public DaySummary(LocalDate date, String type, int taskCount) {
+        this.date = date;
+        this.type = type;
+        this.taskCount = taskCount;
+    }
+
+    /**
+     * Возвращает дату дня.
+     *
+     * @return Дата дня.
+     */
+    public LocalDate getDate() {
+        return date;
+    }
+
+    /**
+     * Возвращает код типа дня: "0" - рабочий день, "1" - нерабочий день и т.д.
+     *
+     * @return Код типа дня или null, если тип дня неизвестен.
+     */
+    public String getType() {
+        return type;
+    }
+
+    /**
+     * Возвращает количество задач на день.
+     *
+     * @return Количество задач.
+     */
+    public int getTaskCount() {
+        return taskCount;
+    }
+
+    /**
+     * Возвращает строковое представление дня.
+     *
+     * @return Строковое представление дня.
+     */
+    @Override
+    public String toString() {
+        return "date:" + date + " type:" + type + " tasks:" + taskCount;
+    }
+}
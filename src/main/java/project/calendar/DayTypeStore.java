@@ -0,0 +1,439 @@
+package project.calendar;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.Year;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Класс DayTypeStore хранит коды типа дня в таблице базы данных рядом с задачами.
+ * Таблица заполняется целыми годами или месяцами одним запросом к сервису isdayoff.ru,
+ * поэтому в установившемся режиме определение типа дня не требует обращения к сети
+ * и переживает перезапуск сервера. Даты хранятся как количество дней от 1970-01-01 (epoch-day).
+ * Одновременные загрузки одного года или месяца объединяются в один запрос к сервису; загрузки
+ * разных лет и месяцев выполняются параллельно и не блокируют чтение таблицы.
+ */
+public class DayTypeStore {
+    /**
+     * Поле для логирования
+     */
+    private static final Logger logger = LogManager.getLogger(DayTypeStore.class);
+    /**
+     * Имя таблицы типов дня в базе данных.
+     */
+    private static final String TABLE_NAME = "day_types";
+    /**
+     * Запрос кода типа дня по дате.
+     */
+    private static final String FIND_SQL = "SELECT type FROM " + TABLE_NAME + " WHERE date = ?;";
+    /**
+     * Запрос количества сохраненных дней в диапазоне дат.
+     */
+    private static final String COUNT_SQL = "SELECT COUNT(*) FROM " + TABLE_NAME + " WHERE date >= ? AND date < ?;";
+    /**
+     * Запрос кодов типа дня в диапазоне дат.
+     */
+    private static final String RANGE_SQL = "SELECT date, type FROM " + TABLE_NAME + " WHERE date >= ? AND date < ?;";
+
+    /**
+     * Источник кодов типа дня за целый год.
+     */
+    @FunctionalInterface
+    public interface YearLoader {
+        /**
+         * Загружает коды типа дня за год.
+         *
+         * @param year Год.
+         * @return Строка кодов, по одному символу на каждый день года.
+         * @throws IOException Если возникает ошибка ввода-вывода.
+         */
+        String load(int year) throws IOException;
+    }
+
+    /**
+     * Источник кодов типа дня за месяц.
+     */
+    @FunctionalInterface
+    public interface MonthLoader {
+        /**
+         * Загружает коды типа дня за месяц.
+         *
+         * @param month Месяц.
+         * @return Строка кодов, по одному символу на каждый день месяца.
+         * @throws IOException Если возникает ошибка ввода-вывода.
+         */
+        String load(YearMonth month) throws IOException;
+    }
+
+    /**
+     * Пул соединений с базой данных.
+     */
+    private final ConnectionPool pool;
+    /**
+     * Источник кодов за год.
+     */
+    private final YearLoader yearLoader;
+    /**
+     * Источник кодов за месяц.
+     */
+    private final MonthLoader monthLoader;
+    /**
+     * Источник кода за отдельный день, используемый, если год загрузить не удалось.
+     */
+    private final HolidayCache.Loader dayLoader;
+    /**
+     * Загрузки лет, выполняющиеся в данный момент.
+     */
+    private final ConcurrentHashMap<Integer, CompletableFuture<Void>> yearLoads = new ConcurrentHashMap<>();
+    /**
+     * Загрузки месяцев, выполняющиеся в данный момент.
+     */
+    private final ConcurrentHashMap<YearMonth, CompletableFuture<String[]>> monthLoads = new ConcurrentHashMap<>();
+
+    /**
+     * Конструктор класса DayTypeStore.
+     *
+     * @param pool        Пул соединений с базой данных.
+     * @param yearLoader  Источник кодов за год.
+     * @param monthLoader Источник кодов за месяц.
+     * @param dayLoader   Источник кода за отдельный день.
+     */
+    public DayTypeStore(ConnectionPool pool, YearLoader yearLoader, MonthLoader monthLoader,
+                        HolidayCache.Loader dayLoader) {
+        this.pool = pool;
+        this.yearLoader = yearLoader;
+        this.monthLoader = monthLoader;
+        this.dayLoader = dayLoader;
+    }
+
+    /**
+     * Возвращает запросы чтения, которые должны выполняться по индексу.
+     *
+     * @return Запросы с параметрами-заполнителями.
+     */
+    static List<String> indexedQueries() {
+        return List.of(FIND_SQL, COUNT_SQL, RANGE_SQL);
+    }
+
+    /**
+     * Возвращает код типа дня для указанной даты. Если дата отсутствует в таблице,
+     * загружает весь ее год; если год загрузить не удалось, запрашивает один день.
+     *
+     * @param date Дата.
+     * @return Код ответа сервиса isdayoff.ru.
+     * @throws IOException Если возникает ошибка ввода-вывода.
+     */
+    public String get(LocalDate date) throws IOException {
+        String type = find(date);
+        if (type != null) {
+            return type;
+        }
+
+        int year = date.getYear();
+        try {
+            prefetchYear(year);
+        } catch (IOException e) {
+            logger.error("Error when loading day types for " + year + ": " + e.getMessage());
+        }
+        type = find(date);
+        return type != null ? type : dayLoader.load(date);
+    }
+
+    /**
+     * Возвращает коды типа дня всех дней месяца. Если месяц сохранен в таблице не полностью,
+     * он загружается одним запросом к сервису; если загрузить его не удалось,
+     * возвращаются коды, уже сохраненные в таблице.
+     *
+     * @param month Месяц.
+     * @return Коды по дням месяца, начиная с первого; null для дней с неизвестным типом.
+     */
+    public String[] getMonth(YearMonth month) {
+        String[] types = findMonth(month);
+        if (isComplete(types)) {
+            return types;
+        }
+        try {
+            return loadMonth(month);
+        } catch (IOException e) {
+            logger.error("Error when loading day types for " + month + ": " + e.getMessage());
+            return findMonth(month);
+        }
+    }
+
+    /**
+     * Загружает месяц в таблицу, если его еще не загрузил другой поток,
+     * или присоединяется к уже выполняющейся загрузке этого месяца.
+     *
+     * @param month Месяц.
+     * @return Коды по дням месяца.
+     * @throws IOException Если возникает ошибка ввода-вывода.
+     */
+    private String[] loadMonth(YearMonth month) throws IOException {
+        CompletableFuture<String[]> future = new CompletableFuture<>();
+        CompletableFuture<String[]> existing = monthLoads.putIfAbsent(month, future);
+        if (existing != null) {
+            // Массив принадлежит вызывающему, поэтому каждый ожидающий получает свою копию.
+            return await(existing).clone();
+        }
+
+        try {
+            // Месяц мог сохранить другой поток, закончивший загрузку после нашей проверки.
+            String[] types = findMonth(month);
+            if (!isComplete(types)) {
+                String codes = monthLoader.load(month);
+                if (codes == null || codes.length() != month.lengthOfMonth()) {
+                    throw new IOException("Unexpected day types for " + month + ": " + codes);
+                }
+                storeDays(month.atDay(1), codes);
+                for (int i = 0; i < codes.length(); i++) {
+                    types[i] = String.valueOf(codes.charAt(i));
+                }
+                logger.info("Day types for " + month + " have been stored.");
+            }
+            future.complete(types.clone());
+            return types;
+        } catch (IOException | RuntimeException e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            monthLoads.remove(month, future);
+        }
+    }
+
+    /**
+     * Загружает год в таблицу, если он еще не загружен полностью.
+     *
+     * @param year Год.
+     * @throws IOException Если возникает ошибка ввода-вывода.
+     */
+    public void prefetchYear(int year) throws IOException {
+        if (countDays(year) < Year.of(year).length()) {
+            loadYear(year, false);
+        }
+    }
+
+    /**
+     * Повторно загружает год из сервиса и перезаписывает его в таблице.
+     *
+     * @param year Год.
+     * @throws IOException Если возникает ошибка ввода-вывода.
+     */
+    public void refreshYear(int year) throws IOException {
+        loadYear(year, true);
+    }
+
+    /**
+     * Загружает год в таблицу или присоединяется к уже выполняющейся загрузке этого года.
+     *
+     * @param year   Год.
+     * @param reload true - загрузить год, даже если он уже сохранен полностью.
+     * @throws IOException Если возникает ошибка ввода-вывода.
+     */
+    private void loadYear(int year, boolean reload) throws IOException {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        CompletableFuture<Void> existing = yearLoads.putIfAbsent(year, future);
+        if (existing != null) {
+            await(existing);
+            return;
+        }
+
+        try {
+            // Год мог сохранить другой поток, закончивший загрузку после нашей проверки.
+            if (reload || countDays(year) < Year.of(year).length()) {
+                String codes = yearLoader.load(year);
+                if (codes == null || codes.length() != Year.of(year).length()) {
+                    throw new IOException("Unexpected day types for " + year + ": " + codes);
+                }
+                storeDays(LocalDate.of(year, 1, 1), codes);
+                logger.info("Day types for " + year + " have been stored.");
+            }
+            future.complete(null);
+        } catch (IOException | RuntimeException e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            yearLoads.remove(year, future);
+        }
+    }
+
+    /**
+     * Планирует фоновое поддержание текущего и следующего года.
+     * Сразу после запуска догружаются отсутствующие годы, затем оба года
+     * периодически перезагружаются, чтобы подхватить изменения производственного календаря.
+     *
+     * @param scheduler    Планировщик задач.
+     * @param periodMillis Период обновления в миллисекундах.
+     */
+    public void scheduleRefresh(ScheduledExecutorService scheduler, long periodMillis) {
+        scheduler.execute(() -> warmUpcoming(false));
+        scheduler.scheduleWithFixedDelay(() -> warmUpcoming(true), periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Загружает или обновляет текущий и следующий год.
+     *
+     * @param reload true - перезагрузить годы из сервиса, false - загрузить только отсутствующие.
+     */
+    private void warmUpcoming(boolean reload) {
+        int year = LocalDate.now().getYear();
+        for (int y = year; y <= year + 1; y++) {
+            try {
+                if (reload) {
+                    refreshYear(y);
+                } else {
+                    prefetchYear(y);
+                }
+            } catch (IOException | RuntimeException e) {
+                logger.error("Error when refreshing day types for " + y + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Ищет код типа дня в таблице.
+     *
+     * @param date Дата.
+     * @return Код типа дня или null, если дата отсутствует.
+     */
+    private String find(LocalDate date) {
+        try (ConnectionPool.PooledConnection connection = pool.borrow()) {
+            PreparedStatement preparedStatement = connection.prepare(FIND_SQL);
+            preparedStatement.setLong(1, date.toEpochDay());
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                return resultSet.next() ? resultSet.getString("type") : null;
+            }
+        } catch (SQLException e) {
+            logger.error("Error when reading the day type: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Читает коды типа дня месяца из таблицы.
+     *
+     * @param month Месяц.
+     * @return Коды по дням месяца; null для дней, отсутствующих в таблице.
+     */
+    private String[] findMonth(YearMonth month) {
+        String[] types = new String[month.lengthOfMonth()];
+        long first = month.atDay(1).toEpochDay();
+        try (ConnectionPool.PooledConnection connection = pool.borrow()) {
+            PreparedStatement preparedStatement = connection.prepare(RANGE_SQL);
+            preparedStatement.setLong(1, first);
+            preparedStatement.setLong(2, first + types.length);
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                while (resultSet.next()) {
+                    types[(int) (resultSet.getLong("date") - first)] = resultSet.getString("type");
+                }
+            }
+        } catch (SQLException e) {
+            logger.error("Error when reading day types: " + e.getMessage());
+        }
+        return types;
+    }
+
+    /**
+     * Проверяет, что известны типы всех дней.
+     *
+     * @param types Коды по дням.
+     * @return true, если среди кодов нет null.
+     */
+    private static boolean isComplete(String[] types) {
+        for (String type : types) {
+            if (type == null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Считает количество дней года, сохраненных в таблице.
+     *
+     * @param year Год.
+     * @return Количество сохраненных дней.
+     */
+    private int countDays(int year) {
+        try (ConnectionPool.PooledConnection connection = pool.borrow()) {
+            PreparedStatement preparedStatement = connection.prepare(COUNT_SQL);
+            preparedStatement.setLong(1, LocalDate.of(year, 1, 1).toEpochDay());
+            preparedStatement.setLong(2, LocalDate.of(year + 1, 1, 1).toEpochDay());
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                return resultSet.next() ? resultSet.getInt(1) : 0;
+            }
+        } catch (SQLException e) {
+            logger.error("Error when counting day types: " + e.getMessage());
+            return 0;
+        }
+    }
+
+    /**
+     * Сохраняет коды типа дня за несколько дней подряд одной транзакцией.
+     *
+     * @param first Первая дата.
+     * @param codes Строка кодов, по одному символу на каждый день начиная с первой даты.
+     * @throws IOException Если данные не удалось сохранить.
+     */
+    private void storeDays(LocalDate first, String codes) throws IOException {
+        String upsertSQL = "INSERT OR REPLACE INTO " + TABLE_NAME + "(date, type, updated_at) VALUES (?, ?, ?);";
+        long now = System.currentTimeMillis();
+        try (ConnectionPool.PooledConnection connection = pool.borrow()) {
+            Connection conn = connection.getConnection();
+            conn.setAutoCommit(false);
+            try {
+                PreparedStatement preparedStatement = connection.prepare(upsertSQL);
+                LocalDate date = first;
+                for (int i = 0; i < codes.length(); i++, date = date.plusDays(1)) {
+                    preparedStatement.setLong(1, date.toEpochDay());
+                    preparedStatement.setString(2, String.valueOf(codes.charAt(i)));
+                    preparedStatement.setLong(3, now);
+                    preparedStatement.addBatch();
+                }
+                preparedStatement.executeBatch();
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            throw new IOException("Error when storing day types: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Ожидает завершения загрузки, начатой другим потоком.
+     *
+     * @param future Выполняющаяся загрузка.
+     * @return Результат загрузки.
+     * @throws IOException Если загрузка завершилась ошибкой.
+     */
+    private static <T> T await(CompletableFuture<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for day types", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException("Day types loading failed", cause);
+        }
+    }
+}
@@ -0,0 +1,261 @@
+package project.calendar;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Класс GroupCommitWriter применяет одиночные изменения задач группами.
+ * Потоки запросов ставят изменения в очередь, а единственный поток записи забирает из нее
+ * все накопившиеся изменения, при необходимости ждет новые до заданной задержки, и фиксирует
+ * группу одной транзакцией через {@link TaskDatabase#applyBatch(List)}. Поток запроса возвращается
+ * только после фиксации своей группы, поэтому ответ клиенту отправляется после записи изменения.
+ * Одна фиксация на группу вместо фиксации на каждый запрос снижает количество сбросов журнала на диск;
+ * сохранность подтвержденного изменения при отключении питания обеспечивает режим synchronous=FULL,
+ * который сервер включает вместе с групповой фиксацией.
+ * <p>
+ * Очередь не ограничена: каждый поток запроса ждет свое изменение, поэтому ее длина не превышает
+ * количества одновременно обрабатываемых запросов.
+ */
+public class GroupCommitWriter implements AutoCloseable {
+    /**
+     * Поле для логирования
+     */
+    private static final Logger logger = LogManager.getLogger(GroupCommitWriter.class);
+
+    /**
+     * Изменение, ожидающее фиксации.
+     *
+     * @param operation Изменение.
+     * @param done      Завершается после фиксации группы или с ошибкой, если изменение не применено.
+     */
+    private record Pending(BatchOperation operation, CompletableFuture<Void> done) {
+    }
+
+    /**
+     * Метка в очереди, после которой поток записи завершается.
+     */
+    private static final Pending STOP = new Pending(null, null);
+    /**
+     * Наибольшее время ожидания завершения потока записи при закрытии в миллисекундах.
+     */
+    private static final long CLOSE_TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(5);
+
+    /**
+     * База данных задач.
+     */
+    private final TaskDatabase db;
+    /**
+     * Наибольшее количество изменений в группе; 0 - изменения применяются в потоке запроса по одному.
+     */
+    private final int maxGroupSize;
+    /**
+     * Наибольшее время ожидания новых изменений после первого изменения группы в наносекундах.
+     */
+    private final long maxDelayNanos;
+    /**
+     * Очередь изменений.
+     */
+    private final LinkedBlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+    /**
+     * Поток записи или null, если изменения применяются по одному.
+     */
+    private final Thread writer;
+    /**
+     * Количество зафиксированных групп.
+     */
+    private final Metrics.Counter groups;
+    /**
+     * Количество изменений в зафиксированных группах.
+     */
+    private final Metrics.Counter operations;
+    /**
+     * Признак закрытия.
+     */
+    private volatile boolean closed;
+
+    /**
+     * Конструктор класса GroupCommitWriter. При положительном размере группы запускает поток записи.
+     *
+     * @param db             База данных задач.
+     * @param maxGroupSize   Наибольшее количество изменений в группе; 0 - применять каждое изменение
+     *                       отдельной транзакцией в потоке запроса.
+     * @param maxDelayMillis Наибольшее время ожидания новых изменений после первого изменения группы
+     *                       в миллисекундах; 0 - фиксировать сразу все накопившиеся изменения.
+     * @param metrics        Реестр, в котором регистрируются количество групп и изменений.
+     */
+    public GroupCommitWriter(TaskDatabase db, int maxGroupSize, long maxDelayMillis, Metrics metrics) {
+        this.db = db;
+        this.maxGroupSize = Math.max(maxGroupSize, 0);
+        this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(maxDelayMillis, 0));
+        this.groups = metrics.counter("calendar_write_groups_total",
+                "Transactions committed by the group-commit writer");
+        this.operations = metrics.counter("calendar_write_operations_total",
+                "Task changes committed by the group-commit writer");
+        if (this.maxGroupSize > 0) {
+            writer = new Thread(this::run, "group-commit-writer");
+            writer.setDaemon(true);
+            writer.start();
+            logger.info("Task changes are committed in groups of up to " + this.maxGroupSize
+                    + " operations, waiting up to " + maxDelayMillis + " ms");
+        } else {
+            writer = null;
+            logger.info("Task changes are committed one by one");
+        }
+    }
+
+    /**
+     * Применяет изменение и возвращается после фиксации группы, в которую оно попало.
+     *
+     * @param operation Изменение.
+     * @throws IOException Если изменение не удалось применить или запись остановлена.
+     */
+    public void submit(BatchOperation operation) throws IOException {
+        if (writer == null) {
+            applyDirectly(operation);
+            return;
+        }
+        if (closed) {
+            throw new IOException("The writer is closed");
+        }
+        Pending pending = new Pending(operation, new CompletableFuture<>());
+        queue.add(pending);
+        // Если запись остановили после проверки, изменение либо еще в очереди, либо уже отклонено close().
+        if (closed && queue.remove(pending)) {
+            throw new IOException("The writer is closed");
+        }
+
+        long waiting = System.nanoTime();
+        try {
+            pending.done().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for the commit", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException("Task change failed", cause);
+        } finally {
+            RequestProfile.record(RequestProfile.Phase.DB_COMMIT, waiting);
+        }
+    }
+
+    /**
+     * Прекращает прием изменений и останавливает поток записи после фиксации всех изменений,
+     * уже поставленных в очередь. Изменения, которые поток записи не успел взять за
+     * {@link #CLOSE_TIMEOUT_MILLIS}, завершаются ошибкой.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        if (writer == null) {
+            return;
+        }
+        // Изменения, поставленные после метки, увидят closed и уберут себя из очереди сами.
+        queue.add(STOP);
+        try {
+            writer.join(CLOSE_TIMEOUT_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (writer.isAlive()) {
+            logger.warn("The writer did not finish in " + CLOSE_TIMEOUT_MILLIS + " ms, rejecting queued changes");
+        }
+        Pending pending;
+        while ((pending = queue.poll()) != null) {
+            if (pending != STOP) {
+                pending.done().completeExceptionally(new IOException("The writer is closed"));
+            }
+        }
+    }
+
+    /**
+     * Цикл потока записи: собирает группы изменений и фиксирует их, пока не встретит метку остановки.
+     */
+    private void run() {
+        List<Pending> group = new ArrayList<>(Math.min(maxGroupSize, 1024));
+        boolean stopping = false;
+        while (!stopping) {
+            try {
+                group.add(queue.take());
+                queue.drainTo(group, maxGroupSize - group.size());
+                long deadline = System.nanoTime() + maxDelayNanos;
+                long remaining;
+                while (!closed && group.size() < maxGroupSize && (remaining = deadline - System.nanoTime()) > 0) {
+                    Pending next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    group.add(next);
+                    queue.drainTo(group, maxGroupSize - group.size());
+                }
+            } catch (InterruptedException e) {
+                stopping = true;
+            }
+            stopping |= group.removeIf(pending -> pending == STOP);
+            if (!group.isEmpty()) {
+                commit(group);
+                group.clear();
+            }
+        }
+    }
+
+    /**
+     * Фиксирует группу одной транзакцией. Если группа не применилась, изменения применяются
+     * по одному, чтобы ошибка одного изменения не отклоняла изменения других запросов.
+     *
+     * @param group Группа изменений.
+     */
+    private void commit(List<Pending> group) {
+        List<BatchOperation> batch = new ArrayList<>(group.size());
+        for (Pending pending : group) {
+            batch.add(pending.operation());
+        }
+        try {
+            db.applyBatch(batch);
+            groups.increment();
+            operations.add(group.size());
+            for (Pending pending : group) {
+                pending.done().complete(null);
+            }
+            return;
+        } catch (IOException | RuntimeException e) {
+            if (group.size() == 1) {
+                group.get(0).done().completeExceptionally(e);
+                return;
+            }
+            logger.warn("Group of " + group.size() + " operations failed, applying them one by one: " + e.getMessage());
+        }
+        for (Pending pending : group) {
+            try {
+                db.applyBatch(List.of(pending.operation()));
+                groups.increment();
+                operations.increment();
+                pending.done().complete(null);
+            } catch (IOException | RuntimeException e) {
+                pending.done().completeExceptionally(e);
+            }
+        }
+    }
+
+    /**
+     * Применяет изменение отдельной транзакцией в текущем потоке. Изменение проходит через
+     * {@link TaskDatabase#applyBatch(List)}, чтобы ошибка записи дошла до обработчика запроса,
+     * как и при групповой фиксации.
+     *
+     * @param operation Изменение.
+     * @throws IOException Если изменение не удалось применить.
+     */
+    private void applyDirectly(BatchOperation operation) throws IOException {
+        db.applyBatch(List.of(operation));
+    }
+}
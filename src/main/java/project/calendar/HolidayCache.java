@@ -0,0 +1,181 @@
+package project.calendar;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Класс HolidayCache кэширует коды типа дня, полученные от сервиса isdayoff.ru.
+ * Одновременные промахи по одной дате приводят только к одному запросу к сервису.
+ */
+public class HolidayCache {
+    /**
+     * Поле для логирования
+     */
+    private static final Logger logger = LogManager.getLogger(HolidayCache.class);
+
+    /**
+     * Источник кодов типа дня.
+     */
+    @FunctionalInterface
+    public interface Loader {
+        /**
+         * Загружает код типа дня для указанной даты.
+         *
+         * @param date Дата.
+         * @return Код ответа сервиса isdayoff.ru.
+         * @throws IOException Если возникает ошибка ввода-вывода.
+         */
+        String load(LocalDate date) throws IOException;
+    }
+
+    /**
+     * Источник кодов типа дня.
+     */
+    private final Loader loader;
+    /**
+     * Кэш кодов по дате.
+     */
+    private final LruCache<LocalDate, String> cache;
+    /**
+     * Загрузки, выполняющиеся в данный момент, по дате.
+     */
+    private final ConcurrentHashMap<LocalDate, CompletableFuture<String>> inFlight = new ConcurrentHashMap<>();
+    /**
+     * Количество запросов, присоединившихся к уже выполняющейся загрузке.
+     */
+    private final LongAdder coalesced = new LongAdder();
+
+    /**
+     * Конструктор класса HolidayCache.
+     *
+     * @param loader    Источник кодов типа дня.
+     * @param maxSize   Максимальное количество дат в кэше.
+     * @param ttlMillis Время жизни записи в миллисекундах.
+     */
+    public HolidayCache(Loader loader, int maxSize, long ttlMillis) {
+        this(loader, maxSize, ttlMillis, new Metrics());
+    }
+
+    /**
+     * Конструктор класса HolidayCache, публикующий статистику кэша в реестре метрик.
+     *
+     * @param loader    Источник кодов типа дня.
+     * @param maxSize   Максимальное количество дат в кэше.
+     * @param ttlMillis Время жизни записи в миллисекундах.
+     * @param metrics   Реестр, в котором регистрируются попадания, промахи и объединенные запросы.
+     */
+    public HolidayCache(Loader loader, int maxSize, long ttlMillis, Metrics metrics) {
+        this.loader = loader;
+        this.cache = new LruCache<>(maxSize, ttlMillis);
+        cache.registerMetrics(metrics, "calendar_holiday_cache", "Day type");
+        metrics.counter("calendar_holiday_cache_coalesced_total",
+                "Day type lookups that joined a load already in progress", this::getCoalesced);
+    }
+
+    /**
+     * Возвращает код типа дня для указанной даты из кэша или загружает его.
+     *
+     * @param date Дата.
+     * @return Код ответа сервиса isdayoff.ru.
+     * @throws IOException Если загрузка завершилась ошибкой.
+     */
+    public String get(LocalDate date) throws IOException {
+        String code = cache.get(date);
+        if (code != null) {
+            return code;
+        }
+
+        CompletableFuture<String> future = new CompletableFuture<>();
+        CompletableFuture<String> existing = inFlight.putIfAbsent(date, future);
+        if (existing != null) {
+            coalesced.increment();
+            return await(existing);
+        }
+
+        try {
+            code = loader.load(date);
+            if (isCacheable(code)) {
+                cache.put(date, code);
+            }
+            future.complete(code);
+            return code;
+        } catch (IOException | RuntimeException e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(date, future);
+        }
+    }
+
+    /**
+     * Удаляет все записи из кэша.
+     */
+    public void clear() {
+        cache.clear();
+    }
+
+    /**
+     * Возвращает кэш кодов для чтения статистики.
+     *
+     * @return Кэш кодов.
+     */
+    public LruCache<LocalDate, String> getCache() {
+        return cache;
+    }
+
+    /**
+     * Возвращает количество запросов, присоединившихся к уже выполняющейся загрузке.
+     *
+     * @return Количество объединенных запросов.
+     */
+    public long getCoalesced() {
+        return coalesced.sum();
+    }
+
+    /**
+     * Записывает статистику кэша в журнал.
+     */
+    public void logStats() {
+        logger.info("Holiday cache: " + cache + " coalesced=" + getCoalesced());
+    }
+
+    /**
+     * Ожидает завершения чужой загрузки.
+     *
+     * @param future Выполняющаяся загрузка.
+     * @return Код ответа сервиса isdayoff.ru.
+     * @throws IOException Если загрузка завершилась ошибкой.
+     */
+    private static String await(CompletableFuture<String> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for holiday data", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException("Holiday lookup failed", cause);
+        }
+    }
+
+    /**
+     * Проверяет, можно ли кэшировать код. Кэшируются только коды типа дня,
+     * а ошибки сервиса и неудачные запросы запрашиваются повторно.
+     *
+     * @param code Код ответа сервиса isdayoff.ru.
+     * @return true, если код является типом дня.
+     */
+    private static boolean isCacheable(String code) {
+        return code != null && code.length() == 1 && Character.isDigit(code.charAt(0));
+    }
+}
@@ -0,0 +1,361 @@
+package project.calendar;
+
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Класс HolidayClient выполняет запросы к сервису isdayoff.ru.
+ * Каждый запрос ограничен временем подключения и чтения, защищен предохранителем
+ * и при необходимости дублируется вторым запросом, если первый отвечает слишком долго.
+ */
+public class HolidayClient {
+    /**
+     * Поле для логирования
+     */
+    private static final Logger logger = LogManager.getLogger(HolidayClient.class);
+
+    /**
+     * Базовый URL сервиса.
+     */
+    private final String baseUrl;
+    /**
+     * Время ожидания подключения в миллисекундах.
+     */
+    private final int connectTimeoutMillis;
+    /**
+     * Время ожидания ответа в миллисекундах.
+     */
+    private final int readTimeoutMillis;
+    /**
+     * Задержка перед дублирующим запросом в миллисекундах, 0 - без дублирования.
+     */
+    private final long hedgeDelayMillis;
+    /**
+     * Предохранитель сервиса.
+     */
+    private final CircuitBreaker breaker;
+    /**
+     * Пул потоков для дублирующих запросов.
+     */
+    private final ExecutorService executor;
+
+    /**
+     * Количество запросов.
+     */
+    private final LongAdder requests = new LongAdder();
+    /**
+     * Количество неудачных запросов.
+     */
+    private final LongAdder failures = new LongAdder();
+    /**
+     * Количество запросов, отклоненных предохранителем.
+     */
+    private final LongAdder rejected = new LongAdder();
+    /**
+     * Количество отправленных дублирующих запросов.
+     */
+    private final LongAdder hedges = new LongAdder();
+    /**
+     * Количество дублирующих запросов, ответивших первыми.
+     */
+    private final LongAdder hedgeWins = new LongAdder();
+    /**
+     * Суммарное время успешных запросов в наносекундах.
+     */
+    private final LongAdder latencyNanos = new LongAdder();
+    /**
+     * Наибольшее время успешного запроса в наносекундах.
+     */
+    private final LongAccumulator maxLatencyNanos = new LongAccumulator(Math::max, 0);
+    /**
+     * Длительность запросов к сервису, успешных и неудачных.
+     */
+    private final Metrics.Histogram latencyMetric;
+    /**
+     * Количество успешных запросов для /metrics.
+     */
+    private final Metrics.Counter successMetric;
+    /**
+     * Количество неудачных запросов для /metrics.
+     */
+    private final Metrics.Counter failureMetric;
+    /**
+     * Количество запросов, отклоненных предохранителем, для /metrics.
+     */
+    private final Metrics.Counter rejectedMetric;
+    /**
+     * Количество выполняющихся запросов к сервису.
+     */
+    private final Metrics.Gauge inFlightMetric;
+
+    /**
+     * Конструктор класса HolidayClient.
+     *
+     * @param baseUrl              Базовый URL сервиса, например "https://isdayoff.ru".
+     * @param connectTimeoutMillis Время ожидания подключения в миллисекундах.
+     * @param readTimeoutMillis    Время ожидания ответа в миллисекундах.
+     * @param hedgeDelayMillis     Задержка перед дублирующим запросом в миллисекундах, 0 - без дублирования.
+     * @param breaker              Предохранитель сервиса.
+     * @param metrics              Реестр, в котором регистрируются длительности и результаты запросов.
+     */
+    public HolidayClient(String baseUrl, int connectTimeoutMillis, int readTimeoutMillis,
+                         long hedgeDelayMillis, CircuitBreaker breaker, Metrics metrics) {
+        this.baseUrl = baseUrl;
+        this.connectTimeoutMillis = connectTimeoutMillis;
+        this.readTimeoutMillis = readTimeoutMillis;
+        this.hedgeDelayMillis = hedgeDelayMillis;
+        this.breaker = breaker;
+        this.latencyMetric = metrics.histogram("calendar_holiday_request_duration_seconds",
+                "Duration of isdayoff requests, including hedged retries");
+        String requestsName = "calendar_holiday_requests_total";
+        String requestsHelp = "isdayoff requests by result";
+        this.successMetric = metrics.counter(requestsName, requestsHelp, "result", "success");
+        this.failureMetric = metrics.counter(requestsName, requestsHelp, "result", "failure");
+        this.rejectedMetric = metrics.counter(requestsName, requestsHelp, "result", "rejected");
+        this.inFlightMetric = metrics.gauge("calendar_holiday_requests_in_flight", "isdayoff requests in progress");
+        this.executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "holiday-client");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Запрашивает тип дня (рабочий/выходной).
+     *
+     * @param date Дата.
+     * @return Строковое представление кода ответа сервиса isdayoff.ru.
+     * @throws IOException Если возникает ошибка ввода-вывода, истекло время ожидания или предохранитель разомкнут.
+     */
+    public String getDayType(LocalDate date) throws IOException {
+        return fetch(String.format("%s/api/getdata?year=%d&month=%02d&day=%02d",
+                baseUrl, date.getYear(), date.getMonthValue(), date.getDayOfMonth()));
+    }
+
+    /**
+     * Запрашивает типы всех дней года.
+     *
+     * @param year Год.
+     * @return Строка кодов, по одному символу на каждый день года.
+     * @throws IOException Если возникает ошибка ввода-вывода, истекло время ожидания или предохранитель разомкнут.
+     */
+    public String getYearTypes(int year) throws IOException {
+        return fetch(baseUrl + "/api/getdata?year=" + year);
+    }
+
+    /**
+     * Запрашивает типы всех дней месяца.
+     *
+     * @param month Месяц.
+     * @return Строка кодов, по одному символу на каждый день месяца.
+     * @throws IOException Если возникает ошибка ввода-вывода, истекло время ожидания или предохранитель разомкнут.
+     */
+    public String getMonthTypes(YearMonth month) throws IOException {
+        return fetch(String.format("%s/api/getdata?year=%d&month=%02d", baseUrl, month.getYear(), month.getMonthValue()));
+    }
+
+    /**
+     * Возвращает состояние клиента: состояние предохранителя, счетчики и времена ответа.
+     *
+     * @return {@link JSONObject} с состоянием клиента.
+     */
+    public JSONObject toJson() {
+        long succeeded = requests.sum() - failures.sum();
+        JSONObject json = new JSONObject();
+        json.put("breakerState", breaker.getState().name());
+        json.put("consecutiveFailures", breaker.getConsecutiveFailures());
+        json.put("breakerOpenCount", breaker.getOpenCount());
+        json.put("requests", requests.sum());
+        json.put("failures", failures.sum());
+        json.put("rejected", rejected.sum());
+        json.put("hedges", hedges.sum());
+        json.put("hedgeWins", hedgeWins.sum());
+        json.put("avgLatencyMs", succeeded > 0 ? latencyNanos.sum() / succeeded / 1_000_000.0 : 0);
+        json.put("maxLatencyMs", maxLatencyNanos.get() / 1_000_000.0);
+        return json;
+    }
+
+    /**
+     * Останавливает пул потоков клиента.
+     */
+    public void close() {
+        executor.shutdownNow();
+        logger.info("Holiday client: " + toJson());
+    }
+
+    /**
+     * Выполняет запрос через предохранитель и учитывает его результат.
+     *
+     * @param urlAddress Адрес запроса.
+     * @return Тело ответа.
+     * @throws IOException Если запрос не удался или предохранитель разомкнут.
+     */
+    private String fetch(String urlAddress) throws IOException {
+        if (!breaker.allowRequest()) {
+            rejected.increment();
+            rejectedMetric.increment();
+            throw new IOException("Circuit breaker for isdayoff is open");
+        }
+        requests.increment();
+        inFlightMetric.increment();
+        long start = System.nanoTime();
+        try {
+            String result = hedgeDelayMillis > 0 ? requestHedged(urlAddress) : request(urlAddress);
+            long elapsed = System.nanoTime() - start;
+            latencyNanos.add(elapsed);
+            maxLatencyNanos.accumulate(elapsed);
+            successMetric.increment();
+            breaker.recordSuccess();
+            return result;
+        } catch (IOException | RuntimeException e) {
+            failures.increment();
+            failureMetric.increment();
+            breaker.recordFailure();
+            throw e;
+        } finally {
+            inFlightMetric.decrement();
+            latencyMetric.recordSince(start);
+        }
+    }
+
+    /**
+     * Выполняет запрос и, если он не завершился за время задержки, отправляет дублирующий.
+     * Возвращается первый успешный ответ.
+     *
+     * @param urlAddress Адрес запроса.
+     * @return Тело ответа.
+     * @throws IOException Если оба запроса завершились ошибкой.
+     */
+    private String requestHedged(String urlAddress) throws IOException {
+        CompletableFuture<String> primary = submit(urlAddress);
+        try {
+            return primary.get(hedgeDelayMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            hedges.increment();
+        } catch (ExecutionException e) {
+            throw unwrap(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for isdayoff", e);
+        }
+
+        CompletableFuture<String> backup = submit(urlAddress);
+        CompletableFuture<String> first = new CompletableFuture<>();
+        AtomicInteger failed = new AtomicInteger();
+        primary.whenComplete((result, error) -> complete(first, result, error, failed));
+        backup.whenComplete((result, error) -> {
+            if (error == null && first.complete(result)) {
+                hedgeWins.increment();
+            } else {
+                complete(first, result, error, failed);
+            }
+        });
+        try {
+            return first.get();
+        } catch (ExecutionException e) {
+            throw unwrap(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for isdayoff", e);
+        } finally {
+            primary.cancel(true);
+            backup.cancel(true);
+        }
+    }
+
+    /**
+     * Завершает общий результат первым успешным ответом или ошибкой, если оба запроса не удались.
+     *
+     * @param first  Общий результат.
+     * @param result Ответ запроса.
+     * @param error  Ошибка запроса.
+     * @param failed Счетчик неудачных запросов.
+     */
+    private static void complete(CompletableFuture<String> first, String result, Throwable error, AtomicInteger failed) {
+        if (error == null) {
+            first.complete(result);
+        } else if (failed.incrementAndGet() == 2) {
+            first.completeExceptionally(error);
+        }
+    }
+
+    /**
+     * Запускает запрос в пуле потоков клиента.
+     *
+     * @param urlAddress Адрес запроса.
+     * @return Будущий ответ.
+     */
+    private CompletableFuture<String> submit(String urlAddress) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return request(urlAddress);
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        }, executor);
+    }
+
+    /**
+     * Выполняет GET-запрос к сервису isdayoff.ru.
+     *
+     * @param urlAddress Адрес запроса.
+     * @return Тело ответа.
+     * @throws IOException Если возникает ошибка ввода-вывода, истекло время ожидания или код ответа отличен от 200.
+     */
+    private String request(String urlAddress) throws IOException {
+        URL url = new URL(urlAddress);
+        logger.info("Request to - " + url);
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        connection.setConnectTimeout(connectTimeoutMillis);
+        connection.setReadTimeout(readTimeoutMillis);
+        connection.setRequestMethod("GET");
+        try {
+            int responseCode = connection.getResponseCode();
+            logger.info("GET Response Code :: " + responseCode);
+            if (responseCode != HttpURLConnection.HTTP_OK) {
+                throw new IOException("GET запрос не удался: " + responseCode);
+            }
+            try (InputStream in = connection.getInputStream()) {
+                return new String(in.readAllBytes(), StandardCharsets.UTF_8).trim();
+            }
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    /**
+     * Приводит причину ошибки асинхронного запроса к {@link IOException}.
+     *
+     * @param cause Причина ошибки.
+     * @return Исключение ввода-вывода.
+     */
+    private static IOException unwrap(Throwable cause) {
+        if (cause instanceof CompletionException && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        if (cause instanceof IOException) {
+            return (IOException) cause;
+        }
+        return new IOException("isdayoff request failed", cause);
+    }
+}
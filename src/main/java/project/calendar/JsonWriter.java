@@ -0,0 +1,431 @@
+package project.calendar;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * Класс JsonWriter записывает JSON прямо в поток ответа в кодировке UTF-8.
+ * Строки кодируются посимвольно в буфер, который берется из общего набора и возвращается в него
+ * при закрытии, поэтому запись ответа не создает промежуточных строк, объектов JSON и массивов байт.
+ * Запятые между элементами расставляются автоматически.
+ */
+public class JsonWriter implements AutoCloseable {
+    /**
+     * Размер буфера записи в байтах.
+     */
+    private static final int BUFFER_SIZE = 8192;
+    /**
+     * Наибольшая вложенность объектов и массивов.
+     */
+    private static final int MAX_DEPTH = 32;
+    /**
+     * Свободные буферы записи.
+     */
+    private static final ArrayBlockingQueue<byte[]> BUFFERS = new ArrayBlockingQueue<>(64);
+    /**
+     * Шестнадцатеричные цифры для экранирования управляющих символов.
+     */
+    private static final byte[] HEX = {'0', '1', '2', '3', '4', '5', '6', '7', '8', '9', 'a', 'b', 'c', 'd', 'e', 'f'};
+
+    /**
+     * Поток ответа.
+     */
+    private final OutputStream out;
+    /**
+     * Буфер записи.
+     */
+    private byte[] buffer;
+    /**
+     * Количество заполненных байт буфера.
+     */
+    private int count;
+    /**
+     * Признаки того, что в открытый объект или массив уровня еще не записано ни одного элемента.
+     */
+    private final boolean[] empty = new boolean[MAX_DEPTH];
+    /**
+     * Текущая вложенность.
+     */
+    private int depth;
+    /**
+     * Признак того, что записано имя поля и ожидается его значение.
+     */
+    private boolean afterName;
+
+    /**
+     * Конструктор класса JsonWriter.
+     *
+     * @param out Поток ответа; закрывается вместе с JsonWriter.
+     */
+    public JsonWriter(OutputStream out) {
+        this.out = out;
+        byte[] pooled = BUFFERS.poll();
+        this.buffer = pooled != null ? pooled : new byte[BUFFER_SIZE];
+    }
+
+    /**
+     * Открывает объект.
+     *
+     * @return Этот JsonWriter.
+     * @throws IOException Если возникает ошибка ввода-вывода.
+     */
+    public JsonWriter beginObject() throws IOException {
+        return open('{');
+    }
+
+    /**
+     * Закрывает объект.
+     *
+     * @return Этот JsonWriter.
+     * @throws IOException Если возникает ошибка ввода-вывода.
+     */
+    public JsonWriter endObject() throws IOException {
+        return close('}');
+    }
+
+    /**
+     * Открывает массив.
+     *
+     * @return Этот JsonWriter.
+     * @throws IOException Если возникает ошибка ввода-вывода.
+     */
+    public JsonWriter beginArray() throws IOException {
+        return open('[');
+    }
+
+    /**
+     * Закрывает массив.
+     *
+     * @return Этот JsonWriter.
+     * @throws IOException Если возникает ошибка ввода-вывода.
+     */
+    public JsonWriter endArray() throws IOException {
+        return close(']');
+    }
+
+    /**
+     * Записывает имя поля объекта.
+     *
+     * @param name Имя поля.
+     * @return Этот JsonWriter.
+     * @throws IOException Если возникает ошибка ввода-вывода.
+     */
+    public JsonWriter name(String name) throws IOException {
+        separate();
+        string(name);
+        write(':');
+        afterName = true;
+        return this;
+    }
+
+    /**
+     * Записывает строковое значение или null.
+     *
+     * @param value Значение.
+     * @return Этот JsonWriter.
+     * @throws IOException Если возникает ошибка ввода-вывода.
+     */
+    public JsonWriter value(String value) throws IOException {
+        separate();
+        if (value == null) {
+            ascii("null");
+        } else {
+            string(value);
+        }
+        return this;
+    }
+
+    /**
+     * Записывает числовое значение.
+     *
+     * @param value Значение.
+     * @return Этот JsonWriter.
+     * @throws IOException Если возникает ошибка ввода-вывода.
+     */
+    public JsonWriter value(long value) throws IOException {
+        separate();
+        if (value < 0) {
+            if (value == Long.MIN_VALUE) {
+                ascii(Long.toString(value));
+                return this;
+            }
+            write('-');
+            value = -value;
+        }
+        digits(value, 1);
+        return this;
+    }
+
+    /**
+     * Записывает дату строкой в формате "yyyy-MM-dd".
+     *
+     * @param date Дата.
+     * @return Этот JsonWriter.
+     * @throws IOException Если возникает ошибка ввода-вывода.
+     */
+    public JsonWriter value(LocalDate date) throws IOException {
+        if (date.getYear() < 0 || date.getYear() > 9999) {
+            return value(date.toString());
+        }
+        separate();
+        write('"');
+        digits(date.getYear(), 4);
+        write('-');
+        digits(date.getMonthValue(), 2);
+        write('-');
+        digits(date.getDayOfMonth(), 2);
+        write('"');
+        return this;
+    }
+
+    /**
+     * Записывает задачу объектом с полями id, date, position и text.
+     *
+     * @param task Задача.
+     * @return Этот JsonWriter.
+     * @throws IOException Если возникает ошибка ввода-вывода.
+     */
+    public JsonWriter task(Task task) throws IOException {
+        return beginObject()
+                .name("id").value(task.getId())
+                .name("date").value(task.getDate())
+                .name("position").value(task.getPosition())
+                .name("text").value(task.getText())
+                .endObject();
+    }
+
+    /**
+     * Отправляет накопленные байты в поток ответа.
+     *
+     * @throws IOException Если возникает ошибка ввода-вывода.
+     */
+    public void flush() throws IOException {
+        if (count > 0) {
+            out.write(buffer, 0, count);
+            count = 0;
+        }
+        out.flush();
+    }
+
+    /**
+     * Отправляет накопленные байты, закрывает поток ответа и возвращает буфер в общий набор.
+     *
+     * @throws IOException Если возникает ошибка ввода-вывода.
+     */
+    @Override
+    public void close() throws IOException {
+        if (buffer == null) {
+            return;
+        }
+        try {
+            if (count > 0) {
+                out.write(buffer, 0, count);
+            }
+            out.close();
+        } finally {
+            BUFFERS.offer(buffer);
+            buffer = null;
+            count = 0;
+        }
+    }
+
+    /**
+     * Возвращает буфер в общий набор, не отправляя накопленные байты и не закрывая поток ответа.
+     * Используется, когда ответ не удалось сформировать до конца: незакрытый поток ответа
+     * не получает завершающего блока, и клиент видит обрыв вместо корректного, но неполного JSON.
+     */
+    public void abort() {
+        if (buffer == null) {
+            return;
+        }
+        BUFFERS.offer(buffer);
+        buffer = null;
+        count = 0;
+    }
+
+    /**
+     * Открывает объект или массив.
+     *
+     * @param bracket Открывающая скобка.
+     * @return Этот JsonWriter.
+     * @throws IOException Если возникает ошибка ввода-вывода.
+     */
+    private JsonWriter open(char bracket) throws IOException {
+        if (depth == MAX_DEPTH) {
+            throw new IllegalStateException("JSON nesting is too deep");
+        }
+        separate();
+        write(bracket);
+        empty[depth++] = true;
+        return this;
+    }
+
+    /**
+     * Закрывает объект или массив.
+     *
+     * @param bracket Закрывающая скобка.
+     * @return Этот JsonWriter.
+     * @throws IOException Если возникает ошибка ввода-вывода.
+     */
+    private JsonWriter close(char bracket) throws IOException {
+        if (depth == 0) {
+            throw new IllegalStateException("No open JSON object or array");
+        }
+        depth--;
+        write(bracket);
+        return this;
+    }
+
+    /**
+     * Ставит запятую перед очередным элементом, если он не первый на своем уровне.
+     *
+     * @throws IOException Если возникает ошибка ввода-вывода.
+     */
+    private void separate() throws IOException {
+        if (afterName) {
+            afterName = false;
+            return;
+        }
+        if (depth > 0) {
+            if (empty[depth - 1]) {
+                empty[depth - 1] = false;
+            } else {
+                write(',');
+            }
+        }
+    }
+
+    /**
+     * Записывает строку в кавычках, экранируя служебные символы и кодируя ее в UTF-8.
+     *
+     * @param value Строка.
+     * @throws IOException Если возникает ошибка ввода-вывода.
+     */
+    private void string(String value) throws IOException {
+        write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                write('\\');
+                write(c);
+            } else if (c < 0x20) {
+                escapeControl(c);
+            } else if (c < 0x80) {
+                write(c);
+            } else if (c < 0x800) {
+                write(0xC0 | (c >> 6));
+                write(0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+                    && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                write(0xF0 | (codePoint >> 18));
+                write(0x80 | ((codePoint >> 12) & 0x3F));
+                write(0x80 | ((codePoint >> 6) & 0x3F));
+                write(0x80 | (codePoint & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                // Одиночная половина суррогатной пары не кодируется в UTF-8.
+                write('?');
+            } else {
+                write(0xE0 | (c >> 12));
+                write(0x80 | ((c >> 6) & 0x3F));
+                write(0x80 | (c & 0x3F));
+            }
+        }
+        write('"');
+    }
+
+    /**
+     * Записывает экранированный управляющий символ.
+     *
+     * @param c Управляющий символ.
+     * @throws IOException Если возникает ошибка ввода-вывода.
+     */
+    private void escapeControl(char c) throws IOException {
+        write('\\');
+        switch (c) {
+            case '\n':
+                write('n');
+                break;
+            case '\r':
+                write('r');
+                break;
+            case '\t':
+                write('t');
+                break;
+            case '\b':
+                write('b');
+                break;
+            case '\f':
+                write('f');
+                break;
+            default:
+                write('u');
+                write('0');
+                write('0');
+                write(HEX[c >> 4]);
+                write(HEX[c & 0xF]);
+        }
+    }
+
+    /**
+     * Записывает неотрицательное число десятичными цифрами, дополняя его нулями слева до заданной ширины.
+     *
+     * @param value Число.
+     * @param width Наименьшее количество цифр.
+     * @throws IOException Если возникает ошибка ввода-вывода.
+     */
+    private void digits(long value, int width) throws IOException {
+        int length = 1;
+        for (long rest = value / 10; rest > 0; rest /= 10) {
+            length++;
+        }
+        for (int i = length; i < width; i++) {
+            write('0');
+        }
+        if (count + length > buffer.length) {
+            drain();
+        }
+        for (int i = count + length - 1; i >= count; i--) {
+            buffer[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        count += length;
+    }
+
+    /**
+     * Записывает строку из символов ASCII без кавычек.
+     *
+     * @param value Строка.
+     * @throws IOException Если возникает ошибка ввода-вывода.
+     */
+    private void ascii(String value) throws IOException {
+        for (int i = 0; i < value.length(); i++) {
+            write(value.charAt(i));
+        }
+    }
+
+    /**
+     * Записывает байт в буфер, отправляя буфер в поток ответа при заполнении.
+     *
+     * @param b Байт.
+     * @throws IOException Если возникает ошибка ввода-вывода.
+     */
+    private void write(int b) throws IOException {
+        if (count == buffer.length) {
+            drain();
+        }
+        buffer[count++] = (byte) b;
+    }
+
+    /**
+     * Отправляет заполненную часть буфера в поток ответа.
+     *
+     * @throws IOException Если возникает ошибка ввода-вывода.
+     */
+    private void drain() throws IOException {
+        out.write(buffer, 0, count);
+        count = 0;
+    }
+}
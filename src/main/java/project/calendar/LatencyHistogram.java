@@ -0,0 +1,157 @@
+package project.calendar;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Класс LatencyHistogram накапливает распределение длительностей в наносекундах.
+ * Значения раскладываются по логарифмическим корзинам, каждая степень двойки делится на 64 части,
+ * поэтому процентили вычисляются с относительной погрешностью не более 1,6%.
+ * Запись не блокирует потоки и не создает объектов.
+ */
+public class LatencyHistogram {
+    /**
+     * Количество бит точности внутри степени двойки.
+     */
+    private static final int SUB_BUCKET_BITS = 6;
+    /**
+     * Количество корзин внутри степени двойки.
+     */
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    /**
+     * Количество корзин, в которые значения записываются точно.
+     */
+    private static final int LINEAR_BUCKETS = 2 * SUB_BUCKETS;
+    /**
+     * Общее количество корзин для всех неотрицательных значений long.
+     */
+    private static final int BUCKETS = LINEAR_BUCKETS + (63 - SUB_BUCKET_BITS - 1) * SUB_BUCKETS;
+
+    /**
+     * Количество значений по корзинам.
+     */
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    /**
+     * Общее количество значений.
+     */
+    private final LongAdder count = new LongAdder();
+    /**
+     * Сумма значений.
+     */
+    private final LongAdder sum = new LongAdder();
+    /**
+     * Наибольшее значение.
+     */
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    /**
+     * Записывает длительность.
+     *
+     * @param nanos Длительность в наносекундах; отрицательные значения записываются как 0.
+     */
+    public void record(long nanos) {
+        long value = Math.max(nanos, 0);
+        counts.incrementAndGet(bucket(value));
+        count.increment();
+        sum.add(value);
+        max.accumulate(value);
+    }
+
+    /**
+     * Добавляет к гистограмме все значения другой гистограммы.
+     *
+     * @param other Гистограмма-источник.
+     */
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < BUCKETS; i++) {
+            long bucketCount = other.counts.get(i);
+            if (bucketCount > 0) {
+                counts.addAndGet(i, bucketCount);
+            }
+        }
+        count.add(other.getCount());
+        sum.add(other.getSum());
+        max.accumulate(other.getMax());
+    }
+
+    /**
+     * Возвращает количество записанных значений.
+     *
+     * @return Количество значений.
+     */
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * Возвращает сумму записанных значений.
+     *
+     * @return Сумма в наносекундах.
+     */
+    public long getSum() {
+        return sum.sum();
+    }
+
+    /**
+     * Возвращает наибольшее записанное значение.
+     *
+     * @return Наибольшее значение в наносекундах.
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Возвращает процентиль распределения: верхнюю границу корзины, в которую попадает значение
+     * с заданной долей, но не больше наибольшего записанного значения.
+     *
+     * @param fraction Доля от 0 до 1, например 0.99.
+     * @return Значение процентиля в наносекундах или 0, если значений нет.
+     */
+    public long getPercentile(double fraction) {
+        long total = getCount();
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(fraction * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(upperBound(i), getMax());
+            }
+        }
+        return getMax();
+    }
+
+    /**
+     * Возвращает номер корзины для значения.
+     *
+     * @param value Неотрицательное значение.
+     * @return Номер корзины.
+     */
+    private static int bucket(long value) {
+        if (value < LINEAR_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int shift = exponent - SUB_BUCKET_BITS;
+        return LINEAR_BUCKETS + (shift - 1) * SUB_BUCKETS + (int) (value >>> shift) - SUB_BUCKETS;
+    }
+
+    /**
+     * Возвращает наибольшее значение, попадающее в корзину.
+     *
+     * @param bucket Номер корзины.
+     * @return Верхняя граница корзины.
+     */
+    private static long upperBound(int bucket) {
+        if (bucket < LINEAR_BUCKETS) {
+            return bucket;
+        }
+        int shift = (bucket - LINEAR_BUCKETS) / SUB_BUCKETS + 1;
+        long mantissa = (bucket - LINEAR_BUCKETS) % SUB_BUCKETS + SUB_BUCKETS;
+        return ((mantissa + 1) << shift) - 1;
+    }
+}
@@ -0,0 +1,550 @@
+package project.calendar;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Stream;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Класс LoadGenerator запускает сервер с временной базой данных и нагружает его смесью запросов /getList, /create, /delete и /clean от множества виртуальных клиентов.
+ * После прогрева, результаты которого отбрасываются, замеряются пропускная способность и процентили
+ * задержек по каждому виду запросов. Типы дней текущего и следующего года заранее записываются
+ * во временную базу (суббота и воскресенье - нерабочие дни), поэтому сервер не обращается к isdayoff.ru,
+ * если явно не задан параметр {@code --holiday-url}.
+ * <p>
+ * Запускается без JavaFX: {@code java -jar app.jar --load-test [параметры]}. Параметры:
+ * <ul>
+ *     <li>{@code --clients=N} - количество виртуальных клиентов, по умолчанию 32;</li>
+ *     <li>{@code --warmup=S}, {@code --duration=S} - длительность прогрева и замера в секундах,
+ *     по умолчанию 10 и 30;</li>
+ *     <li>{@code --rate=R} - 0 (по умолчанию) для замкнутого цикла, в котором каждый клиент отправляет
+ *     следующий запрос сразу после ответа, или количество запросов в секунду для открытой модели
+ *     с постоянной частотой поступления; в открытой модели задержка отсчитывается от запланированного
+ *     момента отправки, поэтому время ожидания свободного клиента тоже входит в нее;</li>
+ *     <li>{@code --mix=getList:70,create:15,delete:10,clean:5} - доли видов запросов;</li>
+ *     <li>{@code --days=N} - количество дат, по которым распределяются запросы, по умолчанию 31;</li>
+ *     <li>{@code --holiday-url=URL} - адрес сервиса типов дня, например локальной заглушки с задержкой;
+ *     по умолчанию недоступный адрес, и типы дней берутся только из временной базы.</li>
+ * </ul>
+ * Уровень журнала на время испытания задается системным свойством {@code log.level}, которое
+ * подставляется в конфигурацию log4j2; по умолчанию испытание пишет в журнал только WARN и выше.
+ * Настройки самого сервера задаются теми же системными свойствами, что и при обычном запуске,
+ * кроме {@code server.port}, {@code db.url} и {@code holiday.url}. Сервер и клиенты работают
+ * в одном процессе и делят процессоры, что нужно учитывать при сравнении с отдельным сервером.
+ */
+public class LoadGenerator {
+    static {
+        // Конфигурация log4j2 читает уровень при создании первого логгера, поэтому свойство
+        // задается до поля logger; явно заданное значение сохраняется.
+        if (System.getProperty("log.level") == null) {
+            System.setProperty("log.level", "WARN");
+        }
+    }
+
+    /**
+     * Поле для логирования
+     */
+    private static final Logger logger = LogManager.getLogger(LoadGenerator.class);
+
+    /**
+     * Вид запроса испытания.
+     */
+    enum Endpoint {
+        /**
+         * Чтение задач даты, GET /getList.
+         */
+        GET_LIST("getList"),
+        /**
+         * Добавление задачи, POST /create.
+         */
+        CREATE("create"),
+        /**
+         * Удаление задачи по позиции, POST /delete.
+         */
+        DELETE("delete"),
+        /**
+         * Удаление всех задач даты, POST /clean.
+         */
+        CLEAN("clean");
+
+        /**
+         * Имя вида запроса в параметре {@code --mix} и в отчете.
+         */
+        private final String key;
+
+        /**
+         * Конструктор вида запроса.
+         *
+         * @param key Имя вида запроса в параметре {@code --mix} и в отчете.
+         */
+        Endpoint(String key) {
+            this.key = key;
+        }
+
+        /**
+         * Находит вид запроса по имени.
+         *
+         * @param key Имя вида запроса.
+         * @return Вид запроса.
+         */
+        static Endpoint of(String key) {
+            for (Endpoint endpoint : values()) {
+                if (endpoint.key.equals(key)) {
+                    return endpoint;
+                }
+            }
+            throw new IllegalArgumentException("Unknown endpoint in --mix: " + key);
+        }
+    }
+
+    /**
+     * Результаты одной фазы испытания по видам запросов.
+     */
+    private static class Phase {
+        /**
+         * Задержки успешных и неудачных запросов.
+         */
+        private final LatencyHistogram[] latencies = new LatencyHistogram[Endpoint.values().length];
+        /**
+         * Количество неудачных запросов.
+         */
+        private final LongAdder[] errors = new LongAdder[Endpoint.values().length];
+
+        private Phase() {
+            for (int i = 0; i < latencies.length; i++) {
+                latencies[i] = new LatencyHistogram();
+                errors[i] = new LongAdder();
+            }
+        }
+    }
+
+    /**
+     * Количество виртуальных клиентов.
+     */
+    private final int clients;
+    /**
+     * Длительность прогрева в секундах.
+     */
+    private final long warmupSeconds;
+    /**
+     * Длительность замера в секундах.
+     */
+    private final long durationSeconds;
+    /**
+     * Частота запросов в секунду, 0 - замкнутый цикл.
+     */
+    private final double rate;
+    /**
+     * Накопленные веса видов запросов для случайного выбора.
+     */
+    private final int[] cumulativeWeights = new int[Endpoint.values().length];
+    /**
+     * Количество дат, по которым распределяются запросы.
+     */
+    private final int days;
+    /**
+     * Адрес сервиса типов дня.
+     */
+    private final String holidayUrl;
+    /**
+     * Первая дата, по которой распределяются запросы.
+     */
+    private final LocalDate firstDate = LocalDate.now();
+
+    /**
+     * HTTP-клиент, общий для всех виртуальных клиентов.
+     */
+    private HttpClient http;
+    /**
+     * Базовый URL сервера.
+     */
+    private String baseUrl;
+    /**
+     * Текущая фаза; заменяется при окончании прогрева.
+     */
+    private volatile Phase phase = new Phase();
+    /**
+     * Признак окончания испытания.
+     */
+    private volatile boolean stopped;
+
+    /**
+     * Конструктор класса LoadGenerator.
+     *
+     * @param options Параметры испытания из командной строки без префикса {@code --}.
+     */
+    LoadGenerator(Map<String, String> options) {
+        this.clients = Integer.parseInt(options.getOrDefault("clients", "32"));
+        this.warmupSeconds = Long.parseLong(options.getOrDefault("warmup", "10"));
+        this.durationSeconds = Long.parseLong(options.getOrDefault("duration", "30"));
+        this.rate = Double.parseDouble(options.getOrDefault("rate", "0"));
+        this.days = Integer.parseInt(options.getOrDefault("days", "31"));
+        this.holidayUrl = options.getOrDefault("holiday-url", "http://localhost:1");
+        if (clients < 1 || days < 1 || durationSeconds < 1 || warmupSeconds < 0 || rate < 0) {
+            throw new IllegalArgumentException("clients, days and duration must be positive, warmup and rate non-negative");
+        }
+
+        int[] weights = new int[Endpoint.values().length];
+        for (String part : options.getOrDefault("mix", "getList:70,create:15,delete:10,clean:5").split(",")) {
+            String[] pair = part.trim().split(":");
+            if (pair.length != 2) {
+                throw new IllegalArgumentException("Expected endpoint:weight in --mix, got " + part);
+            }
+            weights[Endpoint.of(pair[0].trim()).ordinal()] = Integer.parseInt(pair[1].trim());
+        }
+        int total = 0;
+        for (int i = 0; i < weights.length; i++) {
+            if (weights[i] < 0) {
+                throw new IllegalArgumentException("Negative weight in --mix");
+            }
+            total += weights[i];
+            cumulativeWeights[i] = total;
+        }
+        if (total == 0) {
+            throw new IllegalArgumentException("All weights in --mix are zero");
+        }
+    }
+
+    /**
+     * Запускает нагрузочное испытание и печатает отчет.
+     *
+     * @param args Параметры вида {@code --name=value}; аргумент {@code --load-test} пропускается.
+     * @throws IOException          Если сервер не удалось запустить.
+     * @throws InterruptedException Если поток прерван.
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Map<String, String> options = new LinkedHashMap<>();
+        for (String arg : args) {
+            if (arg.equals("--load-test")) {
+                continue;
+            }
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value, got " + arg);
+            }
+            options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+        }
+        new LoadGenerator(options).run(System.out);
+    }
+
+    /**
+     * Запускает сервер, выполняет прогрев и замер и печатает отчет.
+     *
+     * @param out Поток для отчета.
+     * @throws IOException          Если сервер не удалось запустить.
+     * @throws InterruptedException Если поток прерван.
+     */
+    void run(PrintStream out) throws IOException, InterruptedException {
+        Path dir = Files.createTempDirectory("calendar-load");
+        String dbUrl = "jdbc:sqlite:" + dir.resolve("tasks.db");
+        seedDayTypes(dbUrl);
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        System.setProperty("server.port", Integer.toString(port));
+        System.setProperty("db.url", dbUrl);
+        System.setProperty("holiday.url", holidayUrl);
+        Server.startServer();
+        baseUrl = "http://localhost:" + port;
+        http = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(Executors.newCachedThreadPool(daemon("load-http")))
+                .build();
+
+        ExecutorService workers = Executors.newFixedThreadPool(clients, daemon("load-client"));
+        try {
+            out.printf(Locale.ROOT, "Load test: %d clients, %s, warm-up %d s, measurement %d s, %d dates%n",
+                    clients, rate > 0 ? String.format(Locale.ROOT, "open loop at %.1f req/s", rate) : "closed loop",
+                    warmupSeconds, durationSeconds, days);
+            if (rate > 0) {
+                Thread dispatcher = new Thread(() -> dispatch(workers), "load-dispatcher");
+                dispatcher.setDaemon(true);
+                dispatcher.start();
+            } else {
+                for (int i = 0; i < clients; i++) {
+                    workers.execute(this::closedLoop);
+                }
+            }
+
+            TimeUnit.SECONDS.sleep(warmupSeconds);
+            Phase measured = new Phase();
+            phase = measured;
+            long start = System.nanoTime();
+            TimeUnit.SECONDS.sleep(durationSeconds);
+            long elapsed = System.nanoTime() - start;
+            phase = new Phase();
+            stopped = true;
+
+            report(out, measured, elapsed);
+        } finally {
+            stopped = true;
+            workers.shutdownNow();
+            workers.awaitTermination(10, TimeUnit.SECONDS);
+            Server.stopServer();
+            deleteDir(dir);
+        }
+    }
+
+    /**
+     * Создает схему временной базы данных и записывает в нее типы дней текущего и следующего года,
+     * чтобы сервер при запуске и во время испытания не обращался к сервису isdayoff.ru.
+     *
+     * @param dbUrl Адрес временной базы данных.
+     * @throws IOException Если базу данных не удалось подготовить.
+     */
+    private static void seedDayTypes(String dbUrl) throws IOException {
+        try (ConnectionPool pool = new ConnectionPool(dbUrl, 1, 5000)) {
+            new SchemaMigrations(pool).migrate();
+            DayTypeStore store = new DayTypeStore(pool,
+                    year -> weekendCodes(LocalDate.of(year, 1, 1), LocalDate.of(year + 1, 1, 1)),
+                    month -> weekendCodes(month.atDay(1), month.plusMonths(1).atDay(1)),
+                    date -> weekendCodes(date, date.plusDays(1)));
+            int year = LocalDate.now().getYear();
+            store.prefetchYear(year);
+            store.prefetchYear(year + 1);
+        } catch (SQLException e) {
+            throw new IOException("Error when preparing the load test database", e);
+        }
+    }
+
+    /**
+     * Возвращает коды типа дня для полуинтервала дат, считая нерабочими только субботу и воскресенье.
+     *
+     * @param from Первая дата.
+     * @param to   Дата, следующая за последней.
+     * @return Коды типа дня, по символу на день.
+     */
+    private static String weekendCodes(LocalDate from, LocalDate to) {
+        StringBuilder codes = new StringBuilder();
+        for (LocalDate date = from; date.isBefore(to); date = date.plusDays(1)) {
+            DayOfWeek dayOfWeek = date.getDayOfWeek();
+            codes.append(dayOfWeek == DayOfWeek.SATURDAY || dayOfWeek == DayOfWeek.SUNDAY ? '1' : '0');
+        }
+        return codes.toString();
+    }
+
+    /**
+     * Замкнутый цикл одного виртуального клиента: следующий запрос отправляется сразу после ответа.
+     */
+    private void closedLoop() {
+        while (!stopped) {
+            long start = System.nanoTime();
+            execute(pick(), start);
+        }
+    }
+
+    /**
+     * Открытая модель: запросы назначаются на равномерно распределенные моменты времени
+     * и передаются свободным клиентам; если все клиенты заняты, запрос ждет в очереди.
+     *
+     * @param workers Пул виртуальных клиентов.
+     */
+    private void dispatch(ExecutorService workers) {
+        long interval = (long) (TimeUnit.SECONDS.toNanos(1) / rate);
+        long next = System.nanoTime();
+        while (!stopped) {
+            long delay = next - System.nanoTime();
+            if (delay > 0) {
+                LockSupport.parkNanos(delay);
+                continue;
+            }
+            long intended = next;
+            Endpoint endpoint = pick();
+            workers.execute(() -> execute(endpoint, intended));
+            next += interval;
+        }
+    }
+
+    /**
+     * Выполняет запрос и записывает его задержку в текущую фазу.
+     *
+     * @param endpoint Вид запроса.
+     * @param start    Момент, от которого отсчитывается задержка, по {@link System#nanoTime()}.
+     */
+    private void execute(Endpoint endpoint, long start) {
+        if (stopped) {
+            return;
+        }
+        boolean ok;
+        try {
+            HttpResponse<Void> response = http.send(request(endpoint), HttpResponse.BodyHandlers.discarding());
+            ok = response.statusCode() == 200;
+        } catch (IOException e) {
+            ok = false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        Phase current = phase;
+        current.latencies[endpoint.ordinal()].record(System.nanoTime() - start);
+        if (!ok) {
+            current.errors[endpoint.ordinal()].increment();
+        }
+    }
+
+    /**
+     * Выбирает вид запроса случайно с учетом весов.
+     *
+     * @return Вид запроса.
+     */
+    private Endpoint pick() {
+        int value = ThreadLocalRandom.current().nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            if (value < cumulativeWeights[i]) {
+                return Endpoint.values()[i];
+            }
+        }
+        return Endpoint.GET_LIST;
+    }
+
+    /**
+     * Создает запрос указанного вида на случайную дату.
+     *
+     * @param endpoint Вид запроса.
+     * @return Запрос.
+     */
+    private HttpRequest request(Endpoint endpoint) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        LocalDate date = firstDate.plusDays(random.nextInt(days));
+        switch (endpoint) {
+            case GET_LIST:
+                return HttpRequest.newBuilder(URI.create(baseUrl + "/getList?date=" + date))
+                        .timeout(Duration.ofSeconds(30))
+                        .GET()
+                        .build();
+            case CREATE:
+                return post("/create", "{\"date\":\"" + date + "\",\"text\":\"Нагрузочная заметка " + random.nextInt(1000) + "\"}");
+            case DELETE:
+                return post("/delete", "{\"date\":\"" + date + "\",\"position\":" + (1 + random.nextInt(5)) + "}");
+            default:
+                return post("/clean", "{\"date\":\"" + date + "\"}");
+        }
+    }
+
+    /**
+     * Создает POST запрос с телом JSON.
+     *
+     * @param path Путь запроса.
+     * @param json Тело запроса.
+     * @return Запрос.
+     */
+    private HttpRequest post(String path, String json) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(Duration.ofSeconds(30))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .build();
+    }
+
+    /**
+     * Печатает пропускную способность и процентили задержек по видам запросов и в целом.
+     *
+     * @param out          Поток для отчета.
+     * @param measured     Результаты замера.
+     * @param elapsedNanos Длительность замера в наносекундах.
+     */
+    private static void report(PrintStream out, Phase measured, long elapsedNanos) {
+        double seconds = elapsedNanos / 1e9;
+        String format = "%-8s %9s %7s %10s %9s %9s %9s %9s%n";
+        out.printf(Locale.ROOT, format, "endpoint", "requests", "errors", "req/s", "p50 ms", "p95 ms", "p99 ms", "max ms");
+        LatencyHistogram all = new LatencyHistogram();
+        long allErrors = 0;
+        List<String> rows = new ArrayList<>();
+        for (Endpoint endpoint : Endpoint.values()) {
+            LatencyHistogram latencies = measured.latencies[endpoint.ordinal()];
+            long errors = measured.errors[endpoint.ordinal()].sum();
+            if (latencies.getCount() == 0) {
+                continue;
+            }
+            all.add(latencies);
+            allErrors += errors;
+            rows.add(row(format, endpoint.key, latencies, errors, seconds));
+        }
+        rows.forEach(out::print);
+        out.print(row(format, "total", all, allErrors, seconds));
+        logger.info("Load test finished: " + all.getCount() + " requests in " + Math.round(seconds) + " s");
+    }
+
+    /**
+     * Форматирует строку отчета.
+     *
+     * @param format    Формат строки.
+     * @param name      Имя строки.
+     * @param latencies Задержки.
+     * @param errors    Количество неудачных запросов.
+     * @param seconds   Длительность замера в секундах.
+     * @return Строка отчета.
+     */
+    private static String row(String format, String name, LatencyHistogram latencies, long errors, double seconds) {
+        return String.format(Locale.ROOT, format, name, latencies.getCount(), errors,
+                String.format(Locale.ROOT, "%.1f", latencies.getCount() / seconds),
+                millis(latencies.getPercentile(0.50)), millis(latencies.getPercentile(0.95)),
+                millis(latencies.getPercentile(0.99)), millis(latencies.getMax()));
+    }
+
+    /**
+     * Переводит наносекунды в миллисекунды для отчета.
+     *
+     * @param nanos Длительность в наносекундах.
+     * @return Строка с двумя знаками после запятой.
+     */
+    private static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.2f", nanos / 1e6);
+    }
+
+    /**
+     * Создает фабрику потоков-демонов с общим префиксом имени.
+     *
+     * @param prefix Префикс имени потока.
+     * @return Фабрика потоков.
+     */
+    private static ThreadFactory daemon(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Удаляет временный каталог испытания.
+     *
+     * @param dir Каталог.
+     */
+    private static void deleteDir(Path dir) {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        } catch (IOException e) {
+            logger.warn("Could not delete " + dir + ": " + e.getMessage());
+        }
+    }
+}
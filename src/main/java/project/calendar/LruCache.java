@@ -0,0 +1,233 @@
+package project.calendar;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Класс LruCache представляет собой потокобезопасный кэш ограниченного размера.
+ * При переполнении вытесняются давно не использованные записи,
+ * а записи старше заданного времени жизни считаются отсутствующими.
+ *
+ * @param <K> Тип ключа.
+ * @param <V> Тип значения.
+ */
+public class LruCache<K, V> {
+    /**
+     * Записи кэша в порядке последнего обращения.
+     */
+    private final LinkedHashMap<K, Entry<V>> entries;
+    /**
+     * Время жизни записи в миллисекундах.
+     */
+    private final long ttlMillis;
+    /**
+     * Количество попаданий в кэш.
+     */
+    private final LongAdder hits = new LongAdder();
+    /**
+     * Количество промахов кэша.
+     */
+    private final LongAdder misses = new LongAdder();
+    /**
+     * Количество вытесненных и просроченных записей.
+     */
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Конструктор класса LruCache.
+     *
+     * @param maxSize   Максимальное количество записей.
+     * @param ttlMillis Время жизни записи в миллисекундах.
+     */
+    public LruCache(int maxSize, long ttlMillis) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("Cache size must be positive: " + maxSize);
+        }
+        this.ttlMillis = ttlMillis;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                if (size() > maxSize) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Возвращает значение по ключу.
+     *
+     * @param key Ключ.
+     * @return Значение или null, если записи нет или она просрочена.
+     */
+    public V get(K key) {
+        long now = System.currentTimeMillis();
+        synchronized (entries) {
+            Entry<V> entry = entries.get(key);
+            if (entry != null && entry.expiresAt > now) {
+                hits.increment();
+                return entry.value;
+            }
+            if (entry != null) {
+                entries.remove(key);
+                evictions.increment();
+            }
+        }
+        misses.increment();
+        return null;
+    }
+
+    /**
+     * Проверяет наличие непросроченной записи, не изменяя порядок вытеснения и статистику.
+     *
+     * @param key Ключ.
+     * @return true, если запись есть и не просрочена.
+     */
+    public boolean contains(K key) {
+        long now = System.currentTimeMillis();
+        synchronized (entries) {
+            Entry<V> entry = entries.get(key);
+            return entry != null && entry.expiresAt > now;
+        }
+    }
+
+    /**
+     * Сохраняет значение по ключу.
+     *
+     * @param key   Ключ.
+     * @param value Значение.
+     */
+    public void put(K key, V value) {
+        Entry<V> entry = new Entry<>(value, System.currentTimeMillis() + ttlMillis);
+        synchronized (entries) {
+            entries.put(key, entry);
+        }
+    }
+
+    /**
+     * Удаляет запись по ключу.
+     *
+     * @param key Ключ.
+     */
+    public void invalidate(K key) {
+        synchronized (entries) {
+            entries.remove(key);
+        }
+    }
+
+    /**
+     * Удаляет все записи.
+     */
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    /**
+     * Возвращает текущее количество записей.
+     *
+     * @return Количество записей.
+     */
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * Возвращает количество попаданий в кэш.
+     *
+     * @return Количество попаданий.
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Возвращает количество промахов кэша.
+     *
+     * @return Количество промахов.
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Возвращает долю попаданий среди всех обращений к кэшу.
+     *
+     * @return Доля попаданий от 0 до 1; 0, если обращений не было.
+     */
+    public double getHitRatio() {
+        long hitCount = getHits();
+        long total = hitCount + getMisses();
+        return total == 0 ? 0 : (double) hitCount / total;
+    }
+
+    /**
+     * Возвращает количество вытесненных и просроченных записей.
+     *
+     * @return Количество вытеснений.
+     */
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * Публикует статистику кэша в реестре метрик: счетчики {@code <prefix>_hits_total},
+     * {@code <prefix>_misses_total}, {@code <prefix>_evictions_total} и показатель {@code <prefix>_size}.
+     *
+     * @param metrics     Реестр метрик.
+     * @param prefix      Префикс имен метрик.
+     * @param description Описание содержимого кэша для текста метрик.
+     */
+    public void registerMetrics(Metrics metrics, String prefix, String description) {
+        metrics.counter(prefix + "_hits_total", description + " cache hits", this::getHits);
+        metrics.counter(prefix + "_misses_total", description + " cache misses", this::getMisses);
+        metrics.counter(prefix + "_evictions_total", description + " cache entries evicted or expired",
+                this::getEvictions);
+        metrics.gauge(prefix + "_size", description + " cache entries", this::size);
+    }
+
+    /**
+     * Возвращает строковое представление статистики кэша.
+     *
+     * @return Статистика кэша.
+     */
+    @Override
+    public String toString() {
+        return "size=" + size() + " hits=" + getHits() + " misses=" + getMisses()
+                + " hitRatio=" + String.format(Locale.ROOT, "%.3f", getHitRatio()) + " evictions=" + getEvictions();
+    }
+
+    /**
+     * Запись кэша со временем истечения.
+     *
+     * @param <V> Тип значения.
+     */
+    private static final class Entry<V> {
+        /**
+         * Значение записи.
+         */
+        private final V value;
+        /**
+         * Момент истечения записи в миллисекундах.
+         */
+        private final long expiresAt;
+
+        /**
+         * Конструктор записи.
+         *
+         * @param value     Значение записи.
+         * @param expiresAt Момент истечения записи в миллисекундах.
+         */
+        private Entry(V value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,362 @@
+package project.calendar;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Класс Metrics хранит счетчики, показатели и гистограммы сервера и выводит их в текстовом формате Prometheus.
+ * Метрики регистрируются один раз при создании компонентов, а на пути запроса только обновляются:
+ * обновление не блокирует потоки и не создает объектов, поэтому метрики можно держать включенными всегда.
+ */
+public class Metrics {
+    /**
+     * Верхние границы корзин гистограмм длительности в секундах.
+     */
+    private static final double[] BUCKET_SECONDS = {
+            0.0005, 0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10};
+    /**
+     * Верхние границы корзин гистограмм длительности в наносекундах.
+     */
+    private static final long[] BUCKET_NANOS = new long[BUCKET_SECONDS.length];
+    /**
+     * Значения метки le для границ корзин.
+     */
+    private static final String[] BUCKET_LABELS = new String[BUCKET_SECONDS.length];
+
+    static {
+        for (int i = 0; i < BUCKET_SECONDS.length; i++) {
+            BUCKET_NANOS[i] = (long) (BUCKET_SECONDS[i] * TimeUnit.SECONDS.toNanos(1));
+            BUCKET_LABELS[i] = formatDouble(BUCKET_SECONDS[i]);
+        }
+    }
+
+    /**
+     * Семейства метрик по имени в порядке регистрации.
+     */
+    private final Map<String, Family> families = new LinkedHashMap<>();
+
+    /**
+     * Счетчик, который только увеличивается.
+     */
+    public static final class Counter {
+        /**
+         * Значение счетчика.
+         */
+        private final LongAdder value = new LongAdder();
+
+        private Counter() {
+        }
+
+        /**
+         * Увеличивает счетчик на единицу.
+         */
+        public void increment() {
+            value.increment();
+        }
+
+        /**
+         * Увеличивает счетчик на указанное значение.
+         *
+         * @param amount Неотрицательное значение.
+         */
+        public void add(long amount) {
+            value.add(amount);
+        }
+    }
+
+    /**
+     * Показатель, который может увеличиваться и уменьшаться, например количество выполняющихся запросов.
+     */
+    public static final class Gauge {
+        /**
+         * Значение показателя.
+         */
+        private final LongAdder value = new LongAdder();
+
+        private Gauge() {
+        }
+
+        /**
+         * Увеличивает показатель на единицу.
+         */
+        public void increment() {
+            value.increment();
+        }
+
+        /**
+         * Уменьшает показатель на единицу.
+         */
+        public void decrement() {
+            value.decrement();
+        }
+    }
+
+    /**
+     * Гистограмма длительностей с постоянными границами корзин.
+     */
+    public static final class Histogram {
+        /**
+         * Количество значений по корзинам; последняя корзина - значения больше всех границ.
+         */
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_NANOS.length + 1);
+        /**
+         * Сумма значений в наносекундах.
+         */
+        private final LongAdder sumNanos = new LongAdder();
+
+        private Histogram() {
+        }
+
+        /**
+         * Записывает длительность.
+         *
+         * @param nanos Длительность в наносекундах.
+         */
+        public void record(long nanos) {
+            int bucket = 0;
+            while (bucket < BUCKET_NANOS.length && nanos > BUCKET_NANOS[bucket]) {
+                bucket++;
+            }
+            buckets.incrementAndGet(bucket);
+            sumNanos.add(nanos);
+        }
+
+        /**
+         * Записывает длительность от момента начала до текущего момента.
+         *
+         * @param startNanos Момент начала по {@link System#nanoTime()}.
+         */
+        public void recordSince(long startNanos) {
+            record(System.nanoTime() - startNanos);
+        }
+    }
+
+    /**
+     * Семейство метрик одного имени с разными значениями меток.
+     */
+    private static final class Family {
+        /**
+         * Имя метрики.
+         */
+        private final String name;
+        /**
+         * Описание метрики.
+         */
+        private final String help;
+        /**
+         * Тип метрики Prometheus: counter, gauge или histogram.
+         */
+        private final String type;
+        /**
+         * Метки и значения метрик семейства.
+         */
+        private final List<Map.Entry<String, Object>> children = new CopyOnWriteArrayList<>();
+
+        private Family(String name, String help, String type) {
+            this.name = name;
+            this.help = help;
+            this.type = type;
+        }
+    }
+
+    /**
+     * Регистрирует счетчик.
+     *
+     * @param name   Имя метрики.
+     * @param help   Описание метрики.
+     * @param labels Пары "имя метки, значение метки".
+     * @return Счетчик.
+     */
+    public Counter counter(String name, String help, String... labels) {
+        Counter counter = new Counter();
+        register(name, help, "counter", labels, counter);
+        return counter;
+    }
+
+    /**
+     * Регистрирует показатель.
+     *
+     * @param name   Имя метрики.
+     * @param help   Описание метрики.
+     * @param labels Пары "имя метки, значение метки".
+     * @return Показатель.
+     */
+    public Gauge gauge(String name, String help, String... labels) {
+        Gauge gauge = new Gauge();
+        register(name, help, "gauge", labels, gauge);
+        return gauge;
+    }
+
+    /**
+     * Регистрирует счетчик, значение которого читается из компонента при выводе метрик.
+     * Подходит для счетчиков, которые компонент уже ведет сам.
+     *
+     * @param name   Имя метрики.
+     * @param help   Описание метрики.
+     * @param value  Источник неубывающего значения.
+     * @param labels Пары "имя метки, значение метки".
+     */
+    public void counter(String name, String help, LongSupplier value, String... labels) {
+        register(name, help, "counter", labels, value);
+    }
+
+    /**
+     * Регистрирует показатель, значение которого читается из компонента при выводе метрик.
+     *
+     * @param name   Имя метрики.
+     * @param help   Описание метрики.
+     * @param value  Источник значения.
+     * @param labels Пары "имя метки, значение метки".
+     */
+    public void gauge(String name, String help, LongSupplier value, String... labels) {
+        register(name, help, "gauge", labels, value);
+    }
+
+    /**
+     * Регистрирует гистограмму длительностей.
+     *
+     * @param name   Имя метрики, заканчивающееся на {@code _seconds}.
+     * @param help   Описание метрики.
+     * @param labels Пары "имя метки, значение метки".
+     * @return Гистограмма.
+     */
+    public Histogram histogram(String name, String help, String... labels) {
+        Histogram histogram = new Histogram();
+        register(name, help, "histogram", labels, histogram);
+        return histogram;
+    }
+
+    /**
+     * Выводит все метрики в текстовом формате Prometheus версии 0.0.4.
+     *
+     * @return Текст метрик.
+     */
+    public String scrape() {
+        List<Family> snapshot;
+        synchronized (families) {
+            snapshot = new ArrayList<>(families.values());
+        }
+        StringBuilder out = new StringBuilder(4096);
+        for (Family family : snapshot) {
+            out.append("# HELP ").append(family.name).append(' ').append(family.help).append('\n');
+            out.append("# TYPE ").append(family.name).append(' ').append(family.type).append('\n');
+            for (Map.Entry<String, Object> child : family.children) {
+                Object metric = child.getValue();
+                if (metric instanceof Counter) {
+                    sample(out, family.name, child.getKey(), null, Long.toString(((Counter) metric).value.sum()));
+                } else if (metric instanceof Gauge) {
+                    sample(out, family.name, child.getKey(), null, Long.toString(((Gauge) metric).value.sum()));
+                } else if (metric instanceof LongSupplier) {
+                    sample(out, family.name, child.getKey(), null, Long.toString(((LongSupplier) metric).getAsLong()));
+                } else {
+                    writeHistogram(out, family.name, child.getKey(), (Histogram) metric);
+                }
+            }
+        }
+        return out.toString();
+    }
+
+    /**
+     * Добавляет метрику в семейство, создавая семейство при первой регистрации имени.
+     *
+     * @param name   Имя метрики.
+     * @param help   Описание метрики.
+     * @param type   Тип метрики Prometheus.
+     * @param labels Пары "имя метки, значение метки".
+     * @param metric Метрика.
+     */
+    private void register(String name, String help, String type, String[] labels, Object metric) {
+        if (labels.length % 2 != 0) {
+            throw new IllegalArgumentException("Labels of " + name + " must be name-value pairs");
+        }
+        StringBuilder rendered = new StringBuilder();
+        for (int i = 0; i < labels.length; i += 2) {
+            if (rendered.length() > 0) {
+                rendered.append(',');
+            }
+            rendered.append(labels[i]).append("=\"").append(escape(labels[i + 1])).append('"');
+        }
+        synchronized (families) {
+            Family family = families.computeIfAbsent(name, key -> new Family(name, help, type));
+            if (!family.type.equals(type)) {
+                throw new IllegalArgumentException(name + " is already registered as a " + family.type);
+            }
+            family.children.add(Map.entry(rendered.toString(), metric));
+        }
+    }
+
+    /**
+     * Выводит корзины, сумму и количество значений гистограммы. Количество считается по корзинам,
+     * чтобы оно совпадало с корзиной +Inf даже при записи во время вывода.
+     *
+     * @param out       Текст метрик.
+     * @param name      Имя метрики.
+     * @param labels    Метки метрики.
+     * @param histogram Гистограмма.
+     */
+    private static void writeHistogram(StringBuilder out, String name, String labels, Histogram histogram) {
+        long cumulative = 0;
+        for (int i = 0; i < BUCKET_LABELS.length; i++) {
+            cumulative += histogram.buckets.get(i);
+            sample(out, name + "_bucket", labels, BUCKET_LABELS[i], Long.toString(cumulative));
+        }
+        cumulative += histogram.buckets.get(BUCKET_LABELS.length);
+        sample(out, name + "_bucket", labels, "+Inf", Long.toString(cumulative));
+        sample(out, name + "_sum", labels, null, formatDouble(histogram.sumNanos.sum() / 1e9));
+        sample(out, name + "_count", labels, null, Long.toString(cumulative));
+    }
+
+    /**
+     * Выводит одно значение метрики.
+     *
+     * @param out    Текст метрик.
+     * @param name   Имя значения.
+     * @param labels Метки метрики.
+     * @param le     Граница корзины гистограммы или null.
+     * @param value  Значение.
+     */
+    private static void sample(StringBuilder out, String name, String labels, String le, String value) {
+        out.append(name);
+        if (!labels.isEmpty() || le != null) {
+            out.append('{').append(labels);
+            if (le != null) {
+                if (!labels.isEmpty()) {
+                    out.append(',');
+                }
+                out.append("le=\"").append(le).append('"');
+            }
+            out.append('}');
+        }
+        out.append(' ').append(value).append('\n');
+    }
+
+    /**
+     * Экранирует значение метки.
+     *
+     * @param value Значение метки.
+     * @return Экранированное значение.
+     */
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    /**
+     * Форматирует дробное число без лишних нулей.
+     *
+     * @param value Число.
+     * @return Строковое представление.
+     */
+    private static String formatDouble(double value) {
+        String text = String.format(Locale.ROOT, "%.9f", value);
+        text = text.replaceAll("0+$", "");
+        return text.endsWith(".") ? text.substring(0, text.length() - 1) : text;
+    }
+}
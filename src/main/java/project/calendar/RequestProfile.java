@@ -0,0 +1,130 @@
+package project.calendar;
+
+import java.util.Arrays;
+
+/**
+ * Класс RequestProfile накапливает время, потраченное запросом в отдельных фазах обработки.
+ * Профиль привязан к потоку, обрабатывающему запрос: обработчики и {@link TaskDatabase} отмечают фазы
+ * статическим методом {@link #record(Phase, long)}, не передавая профиль через параметры.
+ * Вне запроса отметки ничего не делают. Профиль потока переиспользуется, поэтому отметки не создают объектов.
+ */
+public final class RequestProfile {
+    /**
+     * Фаза обработки запроса.
+     */
+    public enum Phase {
+        /**
+         * Разбор тела запроса.
+         */
+        DECODE("decode"),
+        /**
+         * Получение типа дня; в /getList - только ожидание после чтения задач, так как тип дня
+         * запрашивается параллельно с базой данных.
+         */
+        HOLIDAY("holiday"),
+        /**
+         * Ожидание блокировки даты.
+         */
+        DB_LOCK("db.lock"),
+        /**
+         * Получение соединения из пула.
+         */
+        DB_CONNECTION("db.connection"),
+        /**
+         * Выполнение запроса к базе данных и чтение результата; в /getRange включает запись ответа,
+         * так как задачи пишутся по мере чтения.
+         */
+        DB_QUERY("db.query"),
+        /**
+         * Ожидание фиксации группы изменений, в которую попало изменение запроса.
+         */
+        DB_COMMIT("db.commit"),
+        /**
+         * Ожидание результата такого же запроса, выполняющегося в другом потоке.
+         */
+        COALESCED("coalesced"),
+        /**
+         * Запись ответа.
+         */
+        RESPONSE("response");
+
+        /**
+         * Имя фазы в журнале и в /admin/slow.
+         */
+        private final String key;
+
+        Phase(String key) {
+            this.key = key;
+        }
+
+        /**
+         * Возвращает имя фазы.
+         *
+         * @return Имя фазы.
+         */
+        public String getKey() {
+            return key;
+        }
+    }
+
+    /**
+     * Профиль текущего потока.
+     */
+    private static final ThreadLocal<RequestProfile> CURRENT = ThreadLocal.withInitial(RequestProfile::new);
+
+    /**
+     * Время по фазам в наносекундах.
+     */
+    private final long[] nanos = new long[Phase.values().length];
+    /**
+     * Признак того, что поток обрабатывает запрос.
+     */
+    private boolean active;
+
+    private RequestProfile() {
+    }
+
+    /**
+     * Начинает профиль запроса в текущем потоке.
+     *
+     * @return Профиль текущего потока, очищенный от предыдущего запроса.
+     */
+    static RequestProfile begin() {
+        RequestProfile profile = CURRENT.get();
+        Arrays.fill(profile.nanos, 0);
+        profile.active = true;
+        return profile;
+    }
+
+    /**
+     * Завершает профиль запроса; последующие отметки в потоке игнорируются до следующего {@link #begin()}.
+     */
+    void end() {
+        active = false;
+    }
+
+    /**
+     * Добавляет к фазе время от указанного момента до текущего, если поток обрабатывает запрос.
+     *
+     * @param phase      Фаза.
+     * @param startNanos Начало фазы по {@link System#nanoTime()}.
+     * @return Текущий момент по {@link System#nanoTime()}, с которого можно отсчитывать следующую фазу.
+     */
+    public static long record(Phase phase, long startNanos) {
+        long now = System.nanoTime();
+        RequestProfile profile = CURRENT.get();
+        if (profile.active) {
+            profile.nanos[phase.ordinal()] += now - startNanos;
+        }
+        return now;
+    }
+
+    /**
+     * Возвращает копию времени по фазам.
+     *
+     * @return Время по фазам в наносекундах в порядке {@link Phase#values()}.
+     */
+    long[] snapshot() {
+        return nanos.clone();
+    }
+}
@@ -0,0 +1,149 @@
+package project.calendar;
+
+import com.sun.net.httpserver.HttpExchange;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.time.Instant;
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Класс RequestProfiler отбирает медленные запросы по их профилю {@link RequestProfile}.
+ * Запрос дольше порога записывается в отдельный журнал SlowRequests с разбивкой по фазам,
+ * а выборка медленных запросов хранится в кольцевом буфере для /admin/slow.
+ */
+public class RequestProfiler {
+    /**
+     * Журнал медленных запросов.
+     */
+    private static final Logger slowLog = LogManager.getLogger("SlowRequests");
+
+    /**
+     * Медленный запрос.
+     *
+     * @param timestamp  Момент завершения запроса.
+     * @param method     HTTP-метод.
+     * @param path       Путь и параметры запроса.
+     * @param status     Код ответа.
+     * @param totalNanos Общее время обработки в наносекундах.
+     * @param phaseNanos Время по фазам в наносекундах в порядке {@link RequestProfile.Phase#values()}.
+     */
+    record SlowRequest(Instant timestamp, String method, String path, int status, long totalNanos, long[] phaseNanos) {
+        /**
+         * Возвращает JSON-представление запроса; время указывается в миллисекундах, пустые фазы пропускаются.
+         *
+         * @return {@link JSONObject} с описанием запроса.
+         */
+        JSONObject toJson() {
+            JSONObject phases = new JSONObject();
+            for (RequestProfile.Phase phase : RequestProfile.Phase.values()) {
+                if (phaseNanos[phase.ordinal()] > 0) {
+                    phases.put(phase.getKey(), phaseNanos[phase.ordinal()] / 1e6);
+                }
+            }
+            JSONObject json = new JSONObject();
+            json.put("timestamp", timestamp.toString());
+            json.put("method", method);
+            json.put("path", path);
+            json.put("status", status);
+            json.put("totalMs", totalNanos / 1e6);
+            json.put("phasesMs", phases);
+            return json;
+        }
+
+        /**
+         * Возвращает строку для журнала медленных запросов.
+         *
+         * @return Строка вида "GET /getList?date=... 200 1520.3 ms: holiday=1500.1 ms, db.query=12.0 ms".
+         */
+        @Override
+        public String toString() {
+            StringBuilder line = new StringBuilder();
+            line.append(method).append(' ').append(path).append(' ').append(status).append(' ')
+                    .append(String.format(Locale.ROOT, "%.1f ms", totalNanos / 1e6));
+            char separator = ':';
+            for (RequestProfile.Phase phase : RequestProfile.Phase.values()) {
+                if (phaseNanos[phase.ordinal()] > 0) {
+                    line.append(separator).append(' ').append(phase.getKey()).append('=')
+                            .append(String.format(Locale.ROOT, "%.1f ms", phaseNanos[phase.ordinal()] / 1e6));
+                    separator = ',';
+                }
+            }
+            return line.toString();
+        }
+    }
+
+    /**
+     * Порог медленного запроса в наносекундах.
+     */
+    private final long thresholdNanos;
+    /**
+     * Доля медленных запросов, сохраняемых в буфере.
+     */
+    private final double sampleRate;
+    /**
+     * Кольцевой буфер последних сохраненных медленных запросов.
+     */
+    private final AtomicReferenceArray<SlowRequest> recent;
+    /**
+     * Количество сохраненных в буфер запросов за все время.
+     */
+    private final AtomicLong stored = new AtomicLong();
+
+    /**
+     * Конструктор класса RequestProfiler.
+     *
+     * @param thresholdMillis Порог медленного запроса в миллисекундах.
+     * @param bufferSize      Количество последних медленных запросов в буфере.
+     * @param sampleRate      Доля медленных запросов от 0 до 1, сохраняемых в буфере; в журнал пишутся все.
+     */
+    public RequestProfiler(long thresholdMillis, int bufferSize, double sampleRate) {
+        this.thresholdNanos = thresholdMillis * 1_000_000L;
+        this.recent = new AtomicReferenceArray<>(Math.max(bufferSize, 1));
+        this.sampleRate = sampleRate;
+    }
+
+    /**
+     * Завершает профиль запроса и, если запрос медленный, записывает его в журнал и буфер.
+     *
+     * @param profile    Профиль запроса.
+     * @param exchange   Объект HttpExchange запроса.
+     * @param status     Код ответа.
+     * @param totalNanos Общее время обработки в наносекундах.
+     */
+    void finish(RequestProfile profile, HttpExchange exchange, int status, long totalNanos) {
+        profile.end();
+        if (totalNanos < thresholdNanos) {
+            return;
+        }
+        SlowRequest slow = new SlowRequest(Instant.now(), exchange.getRequestMethod(),
+                exchange.getRequestURI().toString(), status, totalNanos, profile.snapshot());
+        slowLog.warn(slow);
+        if (sampleRate >= 1 || ThreadLocalRandom.current().nextDouble() < sampleRate) {
+            recent.set((int) (stored.getAndIncrement() % recent.length()), slow);
+        }
+    }
+
+    /**
+     * Возвращает сохраненные медленные запросы, начиная с последнего.
+     *
+     * @return {@link JSONArray} медленных запросов.
+     */
+    public JSONArray recentToJson() {
+        JSONArray json = new JSONArray();
+        long last = stored.get();
+        for (long i = last - 1; i >= Math.max(0, last - recent.length()); i--) {
+            SlowRequest slow = recent.get((int) (i % recent.length()));
+            if (slow != null) {
+                json.put(slow.toJson());
+            }
+        }
+        return json;
+    }
+}
@@ -0,0 +1,265 @@
+package project.calendar;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Класс SchemaMigrations поддерживает схему базы данных в актуальном состоянии.
+ * Версия схемы хранится в {@code PRAGMA user_version}; при запуске сервера по порядку
+ * применяются все миграции с номером больше текущей версии, каждая в своей транзакции.
+ */
+public class SchemaMigrations {
+    /**
+     * Поле для логирования
+     */
+    private static final Logger logger = LogManager.getLogger(SchemaMigrations.class);
+
+    /**
+     * Шаг миграции.
+     */
+    @FunctionalInterface
+    interface Step {
+        /**
+         * Применяет шаг к базе данных внутри открытой транзакции.
+         *
+         * @param connection Соединение с базой данных.
+         * @throws SQLException Если шаг не удалось применить.
+         */
+        void apply(Connection connection) throws SQLException;
+    }
+
+    /**
+     * Миграция схемы.
+     *
+     * @param version     Версия схемы после применения миграции.
+     * @param description Описание миграции для журнала.
+     * @param step        Шаг миграции.
+     */
+    record Migration(int version, String description, Step step) {
+    }
+
+    /**
+     * Выражение, переводящее текстовую дату "yyyy-MM-dd" в количество дней от 1970-01-01.
+     */
+    private static final String EPOCH_DAY = "CAST(julianday(date) - 2440587.5 AS INTEGER)";
+    /**
+     * Условие отбора строк, текстовую дату которых нельзя разобрать как "yyyy-MM-dd". Дата сравнивается
+     * с собственным julianday, потому что date('2024-02-30') возвращает строку без изменений,
+     * а julianday переводит ее в 2024-03-01, и такая задача совпала бы с задачами этого дня.
+     */
+    private static final String UNPARSEABLE_DATE = " WHERE julianday(date) IS NULL OR date(julianday(date)) <> date";
+
+    /**
+     * Миграции в порядке применения.
+     */
+    private static final List<Migration> MIGRATIONS = List.of(
+            new Migration(1, "create tasks table", sql(
+                    "CREATE TABLE IF NOT EXISTS tasks" +
+                            "(id INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                            "text TEXT NOT NULL, " +
+                            "date TEXT NOT NULL, " +
+                            "position INTEGER NOT NULL);")),
+            new Migration(2, "create day_types table", sql(
+                    "CREATE TABLE IF NOT EXISTS day_types" +
+                            "(date TEXT PRIMARY KEY, " +
+                            "type TEXT NOT NULL, " +
+                            "updated_at INTEGER NOT NULL);")),
+            new Migration(3, "unique index on tasks(date, position)", connection -> {
+                // Обычный индекс ускоряет поиск дубликатов и свободных позиций на больших таблицах
+                // и заменяется уникальным после переноса дубликатов.
+                sql("CREATE INDEX IF NOT EXISTS idx_tasks_date_position ON tasks(date, position);").apply(connection);
+                resolveDuplicatePositions(connection);
+                sql("DROP INDEX IF EXISTS idx_tasks_date_position;",
+                        "CREATE UNIQUE INDEX IF NOT EXISTS ux_tasks_date_position ON tasks(date, position);")
+                        .apply(connection);
+            }),
+            new Migration(4, "store dates as epoch days", connection -> {
+                quarantineUnparseableTasks(connection);
+                dropUnparseableDayTypes(connection);
+                sql("CREATE TABLE tasks_new" +
+                                "(id INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                                "text TEXT NOT NULL, " +
+                                "date INTEGER NOT NULL, " +
+                                "position INTEGER NOT NULL);",
+                        "INSERT INTO tasks_new (id, text, date, position) " +
+                                "SELECT id, text, " + EPOCH_DAY + ", position FROM tasks;",
+                        "DROP TABLE tasks;",
+                        "ALTER TABLE tasks_new RENAME TO tasks;",
+                        "CREATE UNIQUE INDEX ux_tasks_date_position ON tasks(date, position);",
+                        "CREATE TABLE day_types_new" +
+                                "(date INTEGER PRIMARY KEY, " +
+                                "type TEXT NOT NULL, " +
+                                "updated_at INTEGER NOT NULL);",
+                        "INSERT INTO day_types_new (date, type, updated_at) " +
+                                "SELECT " + EPOCH_DAY + ", type, updated_at FROM day_types;",
+                        "DROP TABLE day_types;",
+                        "ALTER TABLE day_types_new RENAME TO day_types;")
+                        .apply(connection);
+            })
+    );
+
+    /**
+     * Пул соединений с базой данных.
+     */
+    private final ConnectionPool pool;
+
+    /**
+     * Конструктор класса SchemaMigrations.
+     *
+     * @param pool Пул соединений с базой данных.
+     */
+    public SchemaMigrations(ConnectionPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Применяет все миграции, которые еще не применены к базе данных.
+     *
+     * @throws SQLException Если миграцию не удалось применить; база данных остается в версии предыдущей миграции.
+     */
+    public void migrate() throws SQLException {
+        try (ConnectionPool.PooledConnection pooled = pool.borrow()) {
+            Connection connection = pooled.getConnection();
+            int current = readVersion(connection);
+            for (Migration migration : MIGRATIONS) {
+                if (migration.version() <= current) {
+                    continue;
+                }
+                connection.setAutoCommit(false);
+                try {
+                    migration.step().apply(connection);
+                    try (Statement statement = connection.createStatement()) {
+                        statement.execute("PRAGMA user_version = " + migration.version() + ";");
+                    }
+                    connection.commit();
+                    logger.info("Schema migrated to version " + migration.version() + ": " + migration.description());
+                } catch (SQLException e) {
+                    connection.rollback();
+                    logger.error("Error when applying migration " + migration.version() + ": " + e.getMessage());
+                    throw e;
+                } finally {
+                    connection.setAutoCommit(true);
+                }
+            }
+            logger.info("Schema version is " + readVersion(connection));
+        }
+    }
+
+    /**
+     * Возвращает текущую версию схемы.
+     *
+     * @param connection Соединение с базой данных.
+     * @return Версия схемы.
+     * @throws SQLException Если версию не удалось прочитать.
+     */
+    private static int readVersion(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("PRAGMA user_version;")) {
+            return resultSet.next() ? resultSet.getInt(1) : 0;
+        }
+    }
+
+    /**
+     * Переносит задачи с повторяющейся позицией в пределах даты на свободные позиции в конце дня,
+     * чтобы по таблице можно было построить уникальный индекс. Первая по идентификатору задача сохраняет позицию.
+     * Дубликаты находятся одним проходом с группировкой по индексу (date, position).
+     *
+     * @param connection Соединение с базой данных.
+     * @throws SQLException Если задачи не удалось перенести.
+     */
+    private static void resolveDuplicatePositions(Connection connection) throws SQLException {
+        String duplicatesSQL = "SELECT t.id FROM tasks t JOIN " +
+                "(SELECT date, position, MIN(id) AS first FROM tasks GROUP BY date, position HAVING COUNT(*) > 1) d " +
+                "ON t.date = d.date AND t.position = d.position AND t.id <> d.first ORDER BY t.id;";
+        String moveSQL = "UPDATE tasks SET position = " +
+                "(SELECT MAX(position) + 1 FROM tasks d WHERE d.date = tasks.date) WHERE id = ?;";
+        List<Integer> duplicates = new ArrayList<>();
+        try (Statement select = connection.createStatement();
+             ResultSet resultSet = select.executeQuery(duplicatesSQL)) {
+            while (resultSet.next()) {
+                duplicates.add(resultSet.getInt("id"));
+            }
+        }
+        int moved = 0;
+        try (PreparedStatement move = connection.prepareStatement(moveSQL)) {
+            for (int id : duplicates) {
+                move.setInt(1, id);
+                moved += move.executeUpdate();
+            }
+        }
+        if (moved > 0) {
+            logger.warn("Moved " + moved + " tasks with duplicate positions");
+        }
+    }
+
+    /**
+     * Переносит задачи, дату которых нельзя разобрать как "yyyy-MM-dd", в таблицу tasks_unparsed
+     * с исходными столбцами, чтобы перевод дат в epoch-day не потерял их. Перенесенные задачи
+     * не видны клиентам, но могут быть исправлены вручную и возвращены в таблицу tasks.
+     *
+     * @param connection Соединение с базой данных.
+     * @throws SQLException Если задачи не удалось перенести.
+     */
+    private static void quarantineUnparseableTasks(Connection connection) throws SQLException {
+        List<String> rows = new ArrayList<>();
+        try (Statement select = connection.createStatement();
+             ResultSet resultSet = select.executeQuery("SELECT id, date FROM tasks" + UNPARSEABLE_DATE + " ORDER BY id;")) {
+            while (resultSet.next()) {
+                rows.add(resultSet.getInt("id") + "=" + resultSet.getString("date"));
+            }
+        }
+        sql("CREATE TABLE IF NOT EXISTS tasks_unparsed" +
+                        "(id INTEGER PRIMARY KEY, " +
+                        "text TEXT NOT NULL, " +
+                        "date TEXT NOT NULL, " +
+                        "position INTEGER NOT NULL);",
+                "INSERT INTO tasks_unparsed (id, text, date, position) " +
+                        "SELECT id, text, date, position FROM tasks" + UNPARSEABLE_DATE + ";",
+                "DELETE FROM tasks" + UNPARSEABLE_DATE + ";")
+                .apply(connection);
+        if (!rows.isEmpty()) {
+            logger.warn("Moved " + rows.size() + " tasks with unparseable dates to tasks_unparsed, id=date: "
+                    + (rows.size() > 100 ? rows.subList(0, 100) + " ..." : rows));
+        }
+    }
+
+    /**
+     * Удаляет из таблицы типов дня строки, дату которых нельзя разобрать как "yyyy-MM-dd".
+     * Таблица типов дня заполняется из сервиса isdayoff.ru, поэтому удаленные дни загрузятся повторно.
+     *
+     * @param connection Соединение с базой данных.
+     * @throws SQLException Если строки не удалось удалить.
+     */
+    private static void dropUnparseableDayTypes(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            int dropped = statement.executeUpdate("DELETE FROM day_types" + UNPARSEABLE_DATE + ";");
+            if (dropped > 0) {
+                logger.warn("Dropped " + dropped + " day types with unparseable dates");
+            }
+        }
+    }
+
+    /**
+     * Создает шаг миграции, выполняющий SQL-команды по порядку.
+     *
+     * @param statements SQL-команды.
+     * @return Шаг миграции.
+     */
+    private static Step sql(String... statements) {
+        return connection -> {
+            try (Statement statement = connection.createStatement()) {
+                for (String sql : statements) {
+                    statement.execute(sql);
+                }
+            }
+        };
+    }
+}
@@ -3,25 +3,81 @@ package project.calendar;
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
 import com.sun.net.httpserver.HttpServer;
-import org.json.JSONArray;
-import org.json.JSONObject;
 
 import java.io.*;
-import java.net.HttpURLConnection;
 import java.net.InetSocketAddress;
-import java.net.URI;
-import java.net.URL;
 import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
-
-import static project.calendar.Convertor.stringToJson;
-
 /**
  * Запускает HTTP-сервер для обработки запросов календаря.
- * Сервер обрабатывает запросы для получения списка задач, добавления, удаления и очистки задач.
+ * Сервер обрабатывает запросы для получения списка задач и сводки месяца, добавления, удаления и очистки задач.
+ * Метрики сервера выводятся по адресу /metrics в текстовом формате Prometheus,
+ * последние медленные запросы - по адресу /admin/slow.
+ * <p>
+ * Настройки сервера задаются системными свойствами:
+ * <ul>
+ *     <li>{@code server.port} - порт сервера;</li>
+ *     <li>{@code server.executor} - режим обработки запросов: {@code virtual} - виртуальный поток на запрос
+ *     (при поддержке JDK), {@code pool} - ограниченный пул потоков, {@code legacy} - единственный
+ *     поток-диспетчер HttpServer;</li>
+ *     <li>{@code server.threads} - размер пула потоков в режиме {@code pool};</li>
+ *     <li>{@code db.url} - URL базы данных SQLite, по умолчанию файл tasks.db в рабочем каталоге;</li>
+ *     <li>{@code db.pool.size} - размер пула соединений с базой данных;</li>
+ *     <li>{@code db.synchronous} - режим записи SQLite на диск: {@code NORMAL} не сбрасывает журнал на диск
+ *     при каждой фиксации, {@code FULL} сбрасывает, {@code OFF} не сбрасывает никогда; при групповой фиксации
+ *     используется не слабее {@code FULL} (по умолчанию), без нее по умолчанию {@code NORMAL};</li>
+ *     <li>{@code write.group.size} - наибольшее количество изменений /create, /delete и /clean, фиксируемых
+ *     одной транзакцией, 0 - каждое изменение фиксируется отдельно в потоке запроса;</li>
+ *     <li>{@code write.group.delay.ms} - наибольшее время ожидания новых изменений для группы,
+ *     0 - группа фиксируется сразу из накопившихся изменений;</li>
+ *     <li>{@code tasks.cache.size}, {@code tasks.cache.ttl.seconds} - размер и время жизни кэша задач по дате;</li>
+ *     <li>{@code tasks.versions.max} - наибольшее количество дат, версии которых для ETag хранятся
+ *     по отдельности; при превышении версии всех дат поднимаются до общей нижней границы;</li>
+ *     <li>{@code holiday.url} - базовый URL сервиса isdayoff.ru;</li>
+ *     <li>{@code holiday.connect.timeout.ms}, {@code holiday.read.timeout.ms} - время ожидания
+ *     подключения и ответа сервиса isdayoff.ru;</li>
+ *     <li>{@code holiday.breaker.failures}, {@code holiday.breaker.open.ms} - количество ошибок подряд,
+ *     размыкающее предохранитель, и пауза до пробного запроса;</li>
+ *     <li>{@code holiday.hedge.ms} - задержка перед дублирующим запросом, 0 - без дублирования;</li>
+ *     <li>{@code holiday.cache.size}, {@code holiday.cache.ttl.minutes} - размер и время жизни кэша типов дня;</li>
+ *     <li>{@code holiday.refresh.hours} - период фонового обновления таблицы типов дня;</li>
+ *     <li>{@code holiday.deadline.ms} - предельное время ожидания типа дня в /getList;</li>
+ *     <li>{@code holiday.lookup.threads}, {@code holiday.lookup.queue} - количество потоков запроса типа дня
+ *     для /getList и длина их очереди; при заполненной очереди ответ сразу содержит неизвестный тип дня;</li>
+ *     <li>{@code range.max.days} - наибольшее количество дней в одном запросе /getRange;</li>
+ *     <li>{@code batch.max.ops}, {@code batch.max.bytes} - наибольшее количество операций и размер тела
+ *     одного запроса /batch;</li>
+ *     <li>{@code request.max.bytes} - наибольший размер тела запросов /create, /delete и /clean;</li>
+ *     <li>{@code slow.request.ms} - порог медленного запроса, который записывается в журнал SlowRequests
+ *     с разбивкой по фазам;</li>
+ *     <li>{@code slow.request.buffer}, {@code slow.request.sample} - количество последних медленных
+ *     запросов, доступных по адресу /admin/slow, и доля медленных запросов, попадающих в эту выборку;</li>
+ *     <li>{@code sun.net.httpserver.nodelay} - отключение алгоритма Нейгла для соединений, по умолчанию true.</li>
+ * </ul>
  */
 
 public class Server {
@@ -32,78 +88,762 @@ public class Server {
     private static final Logger logger = LogManager.getLogger(Server.class);
 
     /**
-     * Запускает HTTP-сервер на порту 8000.
-     * Создает контексты для обработки различных запросов.
+     * URL-адрес базы данных SQLite по умолчанию.
+     */
+    private static final String DB_URL = "jdbc:sqlite:tasks.db";
+
+    /**
+     * Запущенный HTTP-сервер.
+     */
+    private static HttpServer server;
+    /**
+     * Пул потоков обработки запросов или null в режиме {@code legacy}.
+     */
+    private static ExecutorService requestExecutor;
+    /**
+     * Пул соединений с базой данных, общий для всех обработчиков.
+     */
+    private static ConnectionPool pool;
+    /**
+     * База данных задач с кэшем списков задач по дате.
+     */
+    private static TaskDatabase taskDatabase;
+    /**
+     * Групповая запись изменений задач.
+     */
+    private static GroupCommitWriter writer;
+    /**
+     * Метрики сервера, выводимые по адресу /metrics.
+     */
+    private static Metrics metrics;
+    /**
+     * Отбор медленных запросов, общий для всех обработчиков.
+     */
+    private static RequestProfiler profiler;
+    /**
+     * Клиент сервиса isdayoff.ru.
+     */
+    private static HolidayClient holidayClient;
+    /**
+     * Кэш кодов типа дня, общий для всех обработчиков.
+     */
+    private static HolidayCache holidayCache;
+    /**
+     * Планировщик фонового обновления типов дня.
+     */
+    private static ScheduledExecutorService scheduler;
+    /**
+     * Пул потоков для фоновых обращений к сервису isdayoff.ru.
+     */
+    private static ExecutorService lookupExecutor;
+
+    /**
+     * Запускает HTTP-сервер на порту 8000 или на порту из свойства {@code server.port}.
+     * Создает пул соединений с базой данных, клиент сервиса isdayoff.ru и контексты для обработки различных запросов.
      * @throws IOException Если возникает ошибка ввода-вывода.
      */
     public static void startServer() throws IOException {
 
-        HttpServer server = HttpServer.create(new InetSocketAddress(8000), 0);
+        int port = Integer.getInteger("server.port", 8000);
+        enableNoDelay();
+        server = HttpServer.create(new InetSocketAddress(port), 0);
 
-        TaskDatabase db = new TaskDatabase();
-        db.createTable();
+        metrics = new Metrics();
+        profiler = new RequestProfiler(Long.getLong("slow.request.ms", 1000),
+                Integer.getInteger("slow.request.buffer", 100),
+                Double.parseDouble(System.getProperty("slow.request.sample", "1")));
+        int writeGroupSize = Integer.getInteger("write.group.size", 256);
+        pool = new ConnectionPool(System.getProperty("db.url", DB_URL), Integer.getInteger("db.pool.size", 4), 5000,
+                synchronousMode(writeGroupSize));
+        migrateSchema();
+        TaskDatabase db = new TaskDatabase(pool, Integer.getInteger("tasks.cache.size", 512),
+                TimeUnit.SECONDS.toMillis(Long.getLong("tasks.cache.ttl.seconds", 300)),
+                Integer.getInteger("tasks.versions.max", 65536), metrics);
+        taskDatabase = db;
+        writer = new GroupCommitWriter(db, writeGroupSize, Long.getLong("write.group.delay.ms", 0), metrics);
+        holidayClient = new HolidayClient(System.getProperty("holiday.url", "https://isdayoff.ru"),
+                Integer.getInteger("holiday.connect.timeout.ms", 1000),
+                Integer.getInteger("holiday.read.timeout.ms", 2000),
+                Long.getLong("holiday.hedge.ms", 0),
+                new CircuitBreaker("isdayoff", Integer.getInteger("holiday.breaker.failures", 5),
+                        Long.getLong("holiday.breaker.open.ms", 30000)), metrics);
+        DayTypeStore dayTypes = new DayTypeStore(pool, holidayClient::getYearTypes, holidayClient::getMonthTypes,
+                holidayClient::getDayType);
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "day-types-refresher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        dayTypes.scheduleRefresh(scheduler, TimeUnit.HOURS.toMillis(Long.getLong("holiday.refresh.hours", 24)));
+        holidayCache = new HolidayCache(dayTypes::get,
+                Integer.getInteger("holiday.cache.size", 1024),
+                TimeUnit.MINUTES.toMillis(Long.getLong("holiday.cache.ttl.minutes", 24 * 60)), metrics);
 
-        server.createContext("/getList", new GetListHandler());
-        server.createContext("/create", new PostCreateHandler());
-        server.createContext("/delete", new PostDeleteHandler());
-        server.createContext("/clean", new PostCleanHandler());
+        int lookupThreads = Math.max(1, Integer.getInteger("holiday.lookup.threads", 16));
+        ThreadPoolExecutor lookups = new ThreadPoolExecutor(lookupThreads, lookupThreads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, Integer.getInteger("holiday.lookup.queue", 64))), runnable -> {
+            Thread thread = new Thread(runnable, "holiday-lookup");
+            thread.setDaemon(true);
+            return thread;
+        });
+        lookups.allowCoreThreadTimeOut(true);
+        lookupExecutor = lookups;
 
-        server.setExecutor(null);
+        route("/getList", new GetListHandler(db, holidayCache, lookupExecutor,
+                Long.getLong("holiday.deadline.ms", 500)));
+        route("/getRange", new GetRangeHandler(db, holidayCache,
+                Integer.getInteger("range.max.days", 366)));
+        route("/getMonth", new GetMonthHandler(db, dayTypes));
+        int maxBodyBytes = Integer.getInteger("request.max.bytes", 64 * 1024);
+        route("/create", new PostCreateHandler(writer, maxBodyBytes));
+        route("/delete", new PostDeleteHandler(writer, maxBodyBytes));
+        route("/clean", new PostCleanHandler(writer, maxBodyBytes));
+        route("/batch", new PostBatchHandler(db, Integer.getInteger("batch.max.ops", 50000),
+                Integer.getInteger("batch.max.bytes", 8 * 1024 * 1024)));
+        route("/holidayStatus", new HolidayStatusHandler(holidayClient));
+        server.createContext("/metrics", new MetricsHandler(metrics));
+        server.createContext("/admin/slow", new SlowRequestsHandler(profiler));
+
+        requestExecutor = createRequestExecutor(System.getProperty("server.executor", "pool"));
+        server.setExecutor(requestExecutor);
         server.start();
-        logger.info("The server is running on port 8000");
+        logger.info("The server is running on port " + port);
+    }
+
+    /**
+     * Регистрирует обработчик по адресу, оборачивая его учетом количества, длительности
+     * и выполняющихся запросов под именем класса обработчика и профилем запроса.
+     * @param path    Адрес обработчика.
+     * @param handler Обработчик.
+     */
+    private static void route(String path, HttpHandler handler) {
+        server.createContext(path, new InstrumentedHandler(handler.getClass().getSimpleName(), handler,
+                metrics, profiler));
+    }
+
+    /**
+     * Включает TCP_NODELAY для соединений HttpServer, если свойство {@code sun.net.httpserver.nodelay}
+     * не задано явно. Без него заголовки и тело ответа уходят отдельными сегментами, и второй из них
+     * ждет подтверждения первого, что добавляет к каждому запросу на постоянном соединении около 40 мс.
+     * Свойство читается при создании первого HttpServer в процессе, поэтому метод вызывается до него.
+     */
+    static void enableNoDelay() {
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+
+    /**
+     * Приводит схему базы данных к актуальной версии.
+     * @throws IOException Если схему не удалось обновить.
+     */
+    private static void migrateSchema() throws IOException {
+        try {
+            new SchemaMigrations(pool).migrate();
+        } catch (SQLException e) {
+            throw new IOException("Error when migrating the database schema", e);
+        }
+    }
+
+    /**
+     * Выбирает режим записи SQLite на диск. Групповая фиксация задерживает ответ до фиксации
+     * группы ради того, чтобы подтвержденное изменение было сохранено на диске; при режиме слабее
+     * {@code FULL} это не так, поэтому при включенной группировке режим поднимается до {@code FULL}.
+     * @param writeGroupSize Наибольшее количество изменений в группе; 0 - без групповой фиксации.
+     * @return Значение настройки synchronous.
+     */
+    static String synchronousMode(int writeGroupSize) {
+        String mode = System.getProperty("db.synchronous", writeGroupSize > 0 ? "FULL" : "NORMAL")
+                .toUpperCase(Locale.ROOT);
+        if (writeGroupSize > 0 && !mode.equals("FULL") && !mode.equals("EXTRA")) {
+            logger.warn("db.synchronous=" + mode + " is raised to FULL: group commit acknowledges a change"
+                    + " only after it is durable");
+            return "FULL";
+        }
+        return mode;
+    }
+
+    /**
+     * Создает пул потоков обработки запросов для указанного режима.
+     * @param mode Режим: {@code virtual}, {@code pool} или {@code legacy}.
+     * @return Пул потоков или null для обработки запросов потоком-диспетчером HttpServer.
+     */
+    private static ExecutorService createRequestExecutor(String mode) {
+        switch (mode) {
+            case "legacy":
+                logger.info("Requests are handled on the dispatcher thread");
+                return null;
+            case "virtual":
+                try {
+                    ExecutorService executor = (ExecutorService) Executors.class
+                            .getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+                    logger.info("Requests are handled on virtual threads");
+                    return executor;
+                } catch (ReflectiveOperationException e) {
+                    logger.warn("Virtual threads are not supported by this JDK, falling back to a thread pool");
+                }
+                return createRequestPool();
+            case "pool":
+                return createRequestPool();
+            default:
+                logger.warn("Unknown executor mode " + mode + ", falling back to a thread pool");
+                return createRequestPool();
+        }
+    }
+
+    /**
+     * Создает ограниченный пул потоков обработки запросов размером из свойства {@code server.threads}.
+     * @return Пул потоков.
+     */
+    private static ExecutorService createRequestPool() {
+        int threads = Integer.getInteger("server.threads", Runtime.getRuntime().availableProcessors() * 4);
+        AtomicInteger counter = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "http-worker-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        logger.info("Requests are handled by a pool of " + threads + " threads");
+        return executor;
+    }
+
+    /**
+     * Останавливает HTTP-сервер и закрывает пул соединений с базой данных.
+     */
+    public static void stopServer() {
+        if (server != null) {
+            server.stop(0);
+            server = null;
+        }
+        if (requestExecutor != null) {
+            requestExecutor.shutdownNow();
+            requestExecutor = null;
+        }
+        if (writer != null) {
+            writer.close();
+            writer = null;
+        }
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+        if (lookupExecutor != null) {
+            lookupExecutor.shutdownNow();
+            lookupExecutor = null;
+        }
+        if (holidayClient != null) {
+            holidayClient.close();
+            holidayClient = null;
+        }
+        if (pool != null) {
+            pool.close();
+            pool = null;
+        }
+        if (holidayCache != null) {
+            holidayCache.logStats();
+            holidayCache = null;
+        }
+        if (taskDatabase != null) {
+            logger.info("Task cache: " + taskDatabase.getDayCache());
+            taskDatabase = null;
+        }
+        metrics = null;
+        profiler = null;
+        logger.info("The server is stopped");
     }
 
 
     /**
      * Внутренний класс, обрабатывающий GET-запросы для получения списка задач по дате.
+     * Тип дня запрашивается параллельно с чтением задач из базы данных; если он не получен
+     * за отведенное время, ответ содержит задачи с неизвестным типом дня.
+     * Одновременные запросы одной даты объединяются и получают задачи и тип дня из одного чтения.
      */
     static class GetListHandler implements HttpHandler {
+        /**
+         * Задачи и код типа дня, полученные для даты.
+         * @param holiday Код ответа сервиса isdayoff.ru или null, если его не удалось получить вовремя.
+         * @param tasks   Задачи даты.
+         */
+        private record DayResult(String holiday, List<Task> tasks) {
+        }
+
+        /**
+         * База данных задач.
+         */
+        private final TaskDatabase db;
+        /**
+         * Кэш кодов типа дня.
+         */
+        private final HolidayCache holidays;
+        /**
+         * Ограниченный пул потоков для запроса типа дня.
+         */
+        private final ExecutorService executor;
+        /**
+         * Предельное время ожидания типа дня в миллисекундах.
+         */
+        private final long holidayDeadlineMillis;
+        /**
+         * Объединение одновременных чтений по дате и ее версии.
+         */
+        private final SingleFlight<String, DayResult> flights = new SingleFlight<>();
+
+        /**
+         * Конструктор обработчика.
+         * @param db                    База данных задач.
+         * @param holidays              Кэш кодов типа дня.
+         * @param executor              Ограниченный пул потоков для запроса типа дня.
+         * @param holidayDeadlineMillis Предельное время ожидания типа дня в миллисекундах.
+         */
+        GetListHandler(TaskDatabase db, HolidayCache holidays, ExecutorService executor, long holidayDeadlineMillis) {
+            this.db = db;
+            this.holidays = holidays;
+            this.executor = executor;
+            this.holidayDeadlineMillis = holidayDeadlineMillis;
+        }
+
         @Override
         public void handle(HttpExchange exchange) throws IOException {
 
             if ("GET".equalsIgnoreCase(exchange.getRequestMethod())) {
 
-                URI requestURI = exchange.getRequestURI();
-                String query = requestURI.getQuery();
+                String query = exchange.getRequestURI().getQuery();
+                String date = parseQuery(query).get("date");
+                String holiday = null;
+                String etag = null;
+                List<Task> tasks = List.of();
+                if (date != null) {
+                    LocalDate value;
+                    try {
+                        value = LocalDate.parse(date);
+                    } catch (DateTimeParseException e) {
+                        logger.error("Incorrect date: " + date);
+                        exchange.sendResponseHeaders(400, -1);
+                        return;
+                    }
 
+                    // Версия читается до задач, чтобы ETag не оказался новее содержимого ответа.
+                    // Она же входит в ключ объединения: запрос, пришедший после изменения даты,
+                    // не присоединяется к чтению, начатому до изменения.
+                    String version = db.getVersion(value);
+                    DayResult result = flights.execute(value + "@" + version, () -> load(value));
+                    tasks = result.tasks();
+                    holiday = result.holiday();
+                    if (isDefinitive(holiday)) {
+                        etag = entityTag(version, holiday);
+                        if (notModified(exchange, etag)) {
+                            return;
+                        }
+                    }
+                } else if (query != null) {
+                    logger.error("Incorrect parameter format: " + query);
+                } else {
+                    logger.error("There are no parameters");
+                }
 
-                String date = null;
-                String holiday = null;
-                String result = null;
-                JSONArray jsonArray = new JSONArray();
-                if (query != null) {
+                exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+                if (etag != null) {
+                    exchange.getResponseHeaders().set("ETag", etag);
+                }
+                long writing = System.nanoTime();
+                exchange.sendResponseHeaders(200, 0);
+                try (JsonWriter json = new JsonWriter(exchange.getResponseBody())) {
+                    json.beginObject().name("type").value(getStatusMessage(holiday)).name("tasks").beginArray();
+                    for (Task task : tasks) {
+                        json.task(task);
+                    }
+                    json.endArray().endObject();
+                }
+                RequestProfile.record(RequestProfile.Phase.RESPONSE, writing);
+            } else {
+                exchange.sendResponseHeaders(405, -1);
+            }
+        }
 
-                    String[] pair = query.split("=");
-                    if (pair.length == 2) {
-                        date = pair[0];
-                        String value = pair[1];
+        /**
+         * Читает задачи даты, параллельно запрашивая тип дня с ограничением времени ожидания.
+         * Запрос типа дня, не начавшийся к сроку, отменяется; начавшийся не прерывается, потому что
+         * его результат может ждать другой запрос той же даты, а его обращение к сервису ограничено
+         * временем ожидания ответа клиента isdayoff.ru.
+         * @param date Дата.
+         * @return Задачи и код типа дня.
+         */
+        private DayResult load(LocalDate date) {
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(holidayDeadlineMillis);
+            Future<String> holidayFuture;
+            try {
+                holidayFuture = executor.submit(() -> lookupHoliday(date));
+            } catch (RejectedExecutionException e) {
+                holidayFuture = null;
+                logger.warn("Day type lookup for " + date + " is rejected: the lookup queue is full");
+            }
+            List<Task> tasks = db.listTasksByDate(date);
 
-                        holiday = sendGetHolidayRequest(value);
+            long waiting = System.nanoTime();
+            String holiday = holidayFuture != null ? awaitHoliday(holidayFuture, deadline) : null;
+            RequestProfile.record(RequestProfile.Phase.HOLIDAY, waiting);
+            if (holiday == null) {
+                logger.warn("Day type for " + date + " is unknown: lookup failed or missed the deadline");
+            }
+            return new DayResult(holiday, tasks);
+        }
 
-                        TaskDatabase db = new TaskDatabase();
+        /**
+         * Ожидает тип дня до срока. Если срок истек, запрос отменяется без прерывания потока:
+         * поток может выполнять загрузку, к которой в {@link HolidayCache} присоединились
+         * другие запросы со своими сроками.
+         * @param holidayFuture Запрос типа дня.
+         * @param deadline      Срок по {@link System#nanoTime()}.
+         * @return Код ответа сервиса isdayoff.ru или null, если он не получен к сроку.
+         */
+        private static String awaitHoliday(Future<String> holidayFuture, long deadline) {
+            try {
+                return holidayFuture.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                holidayFuture.cancel(false);
+                return null;
+            } catch (InterruptedException e) {
+                holidayFuture.cancel(false);
+                Thread.currentThread().interrupt();
+                return null;
+            } catch (ExecutionException e) {
+                logger.error("Error when requesting the day type: " + e.getCause());
+                return null;
+            }
+        }
 
-                        for (Task task : db.listTasksByDate(value)) {
-                            jsonArray.put(task.toJson());
-                        }
+        /**
+         * Запрашивает код типа дня, не пробрасывая ошибки.
+         * @param date Дата.
+         * @return Код ответа сервиса isdayoff.ru или null, если его не удалось получить.
+         */
+        private String lookupHoliday(LocalDate date) {
+            try {
+                return holidays.get(date);
+            } catch (IOException e) {
+                logger.error("Error when requesting the day type: " + e.getMessage());
+                return null;
+            }
+        }
+    }
 
-                    } else {
-                        logger.error("Incorrect parameter format: " + query);
-                    }
+    /**
+     * Внутренний класс, обрабатывающий GET-запросы вида {@code /getRange?from=yyyy-MM-dd&to=yyyy-MM-dd}.
+     * Возвращает все дни диапазона с их типами и задачами. Задачи читаются одним запросом
+     * по индексу и записываются в ответ по мере чтения, без накопления в памяти. Если чтение
+     * завершается ошибкой после отправки заголовков, соединение закрывается без завершения ответа.
+     */
+    static class GetRangeHandler implements HttpHandler {
+        /**
+         * База данных задач.
+         */
+        private final TaskDatabase db;
+        /**
+         * Кэш кодов типа дня.
+         */
+        private final HolidayCache holidays;
+        /**
+         * Наибольшее количество дней в одном запросе.
+         */
+        private final int maxDays;
+
+        /**
+         * Конструктор обработчика.
+         * @param db       База данных задач.
+         * @param holidays Кэш кодов типа дня.
+         * @param maxDays  Наибольшее количество дней в одном запросе.
+         */
+        GetRangeHandler(TaskDatabase db, HolidayCache holidays, int maxDays) {
+            this.db = db;
+            this.holidays = holidays;
+            this.maxDays = maxDays;
+        }
+
+        /**
+         * Обрабатывает GET-запрос, записывая в ответ объект {@code {"days":[{"date","type","tasks"}, ...]}}.
+         * @param exchange Объект HttpExchange, представляющий текущий HTTP-обмен.
+         * @throws IOException Если возникает ошибка ввода-вывода.
+         */
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            if (!"GET".equalsIgnoreCase(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+
+            Map<String, String> params = parseQuery(exchange.getRequestURI().getQuery());
+            LocalDate from;
+            LocalDate to;
+            try {
+                from = LocalDate.parse(params.getOrDefault("from", ""));
+                to = LocalDate.parse(params.getOrDefault("to", ""));
+            } catch (DateTimeParseException e) {
+                logger.error("Incorrect range parameters: " + exchange.getRequestURI().getQuery());
+                exchange.sendResponseHeaders(400, -1);
+                return;
+            }
+            long days = ChronoUnit.DAYS.between(from, to) + 1;
+            if (days < 1 || days > maxDays) {
+                logger.error("Incorrect range length: " + days);
+                exchange.sendResponseHeaders(400, -1);
+                return;
+            }
+
+            String version = db.getRangeVersion(from, to);
+            Map<LocalDate, String> types = new HashMap<>();
+            StringBuilder codes = new StringBuilder((int) days);
+            long lookup = System.nanoTime();
+            for (LocalDate date = from; !date.isAfter(to); date = date.plusDays(1)) {
+                String code;
+                try {
+                    code = holidays.get(date);
+                } catch (IOException e) {
+                    logger.error("Error when requesting the day type: " + e.getMessage());
+                    code = null;
+                }
+                types.put(date, getStatusMessage(code));
+                if (codes != null && isDefinitive(code)) {
+                    codes.append(code);
                 } else {
-                    logger.error("There are no parameters");
+                    codes = null;
+                }
+            }
+            RequestProfile.record(RequestProfile.Phase.HOLIDAY, lookup);
+
+            if (codes != null) {
+                String etag = entityTag(version, codes);
+                if (notModified(exchange, etag)) {
+                    return;
                 }
+                exchange.getResponseHeaders().set("ETag", etag);
+            }
 
-                String response = jsonArray.toString();
-                result = "{\"type\":" + getStatusMessage(holiday) + ", \"tasks\":" + response + "}";
+            exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+            exchange.sendResponseHeaders(200, 0);
+            JsonWriter json = new JsonWriter(exchange.getResponseBody());
+            try {
+                RangeWriter rangeWriter = new RangeWriter(json, from, to, types);
+                db.forEachTaskInRange(from, to, rangeWriter::task);
+                rangeWriter.finish();
+            } catch (IOException | RuntimeException e) {
+                // Статус 200 уже отправлен, поэтому ответ обрывается без завершающего блока:
+                // исключение закрывает соединение, и клиент не примет обрезанный JSON за полный ответ.
+                json.abort();
+                logger.error("Range response from " + from + " to " + to + " is aborted: " + e.getMessage());
+                throw e;
+            }
+            json.close();
+        }
 
-                exchange.sendResponseHeaders(200, result.getBytes().length);
+        /**
+         * Записывает дни диапазона по мере поступления упорядоченных задач,
+         * дополняя ответ днями без задач.
+         */
+        private static class RangeWriter {
+            /**
+             * Запись ответа.
+             */
+            private final JsonWriter json;
+            /**
+             * Последняя дата диапазона.
+             */
+            private final LocalDate to;
+            /**
+             * Типы дней диапазона.
+             */
+            private final Map<LocalDate, String> types;
+            /**
+             * Следующая еще не записанная дата.
+             */
+            private LocalDate next;
+            /**
+             * Дата открытого дня или null, если открытого дня нет.
+             */
+            private LocalDate current;
 
-                OutputStream os = exchange.getResponseBody();
-                os.write(result.getBytes());
-                os.close();
-            } else {
+            /**
+             * Конструктор записи диапазона.
+             * @param json  Запись ответа.
+             * @param from  Первая дата диапазона.
+             * @param to    Последняя дата диапазона.
+             * @param types Типы дней диапазона.
+             * @throws IOException Если возникает ошибка ввода-вывода.
+             */
+            RangeWriter(JsonWriter json, LocalDate from, LocalDate to, Map<LocalDate, String> types) throws IOException {
+                this.json = json;
+                this.to = to;
+                this.types = types;
+                this.next = from;
+                json.beginObject().name("days").beginArray();
+            }
+
+            /**
+             * Записывает очередную задачу в ее день.
+             * @param task Задача.
+             * @throws IOException Если возникает ошибка ввода-вывода.
+             */
+            void task(Task task) throws IOException {
+                LocalDate date = task.getDate();
+                if (!date.equals(current)) {
+                    closeDay();
+                    while (next.isBefore(date)) {
+                        openDay(next);
+                        closeDay();
+                    }
+                    openDay(date);
+                }
+                json.task(task);
+            }
+
+            /**
+             * Закрывает последний день, дописывает оставшиеся дни без задач и завершает ответ.
+             * @throws IOException Если возникает ошибка ввода-вывода.
+             */
+            void finish() throws IOException {
+                closeDay();
+                while (!next.isAfter(to)) {
+                    openDay(next);
+                    closeDay();
+                }
+                json.endArray().endObject();
+            }
+
+            /**
+             * Открывает день.
+             * @param date Дата дня.
+             * @throws IOException Если возникает ошибка ввода-вывода.
+             */
+            private void openDay(LocalDate date) throws IOException {
+                json.beginObject().name("date").value(date).name("type").value(types.get(date)).name("tasks").beginArray();
+                current = date;
+                next = date.plusDays(1);
+            }
+
+            /**
+             * Закрывает открытый день, если он есть.
+             * @throws IOException Если возникает ошибка ввода-вывода.
+             */
+            private void closeDay() throws IOException {
+                if (current != null) {
+                    json.endArray().endObject();
+                    current = null;
+                }
+            }
+        }
+    }
+
+    /**
+     * Внутренний класс, обрабатывающий GET-запросы вида {@code /getMonth?year=yyyy&month=M} для сетки месяца.
+     * Возвращает по каждому дню месяца только код типа дня и количество задач: типы дней берутся
+     * из таблицы типов дня или загружаются одним запросом за месяц, количество задач считается
+     * одним запросом с группировкой по дате. Одновременные запросы одного месяца объединяются.
+     */
+    static class GetMonthHandler implements HttpHandler {
+        /**
+         * Коды типа дня и количество задач по дням месяца.
+         * @param types  Коды типа дня; null для дней с неизвестным типом.
+         * @param counts Количество задач.
+         */
+        private record MonthResult(String[] types, int[] counts) {
+        }
+
+        /**
+         * База данных задач.
+         */
+        private final TaskDatabase db;
+        /**
+         * Таблица типов дня.
+         */
+        private final DayTypeStore dayTypes;
+        /**
+         * Объединение одновременных чтений по месяцу и его версии.
+         */
+        private final SingleFlight<String, MonthResult> flights = new SingleFlight<>();
+
+        /**
+         * Конструктор обработчика.
+         * @param db       База данных задач.
+         * @param dayTypes Таблица типов дня.
+         */
+        GetMonthHandler(TaskDatabase db, DayTypeStore dayTypes) {
+            this.db = db;
+            this.dayTypes = dayTypes;
+        }
+
+        /**
+         * Обрабатывает GET-запрос, записывая в ответ объект {@code {"month":"yyyy-MM","days":[[type,count], ...]}},
+         * где i-й элемент days относится к (i+1)-му числу месяца, type - код ответа сервиса isdayoff.ru
+         * или null, если тип дня неизвестен, а count - количество задач.
+         * @param exchange Объект HttpExchange, представляющий текущий HTTP-обмен.
+         * @throws IOException Если возникает ошибка ввода-вывода.
+         */
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            if (!"GET".equalsIgnoreCase(exchange.getRequestMethod())) {
                 exchange.sendResponseHeaders(405, -1);
+                return;
             }
+
+            Map<String, String> params = parseQuery(exchange.getRequestURI().getQuery());
+            YearMonth month;
+            try {
+                month = YearMonth.of(Integer.parseInt(params.getOrDefault("year", "")),
+                        Integer.parseInt(params.getOrDefault("month", "")));
+            } catch (NumberFormatException | DateTimeException e) {
+                logger.error("Incorrect month parameters: " + exchange.getRequestURI().getQuery());
+                exchange.sendResponseHeaders(400, -1);
+                return;
+            }
+            LocalDate first = month.atDay(1);
+            LocalDate last = month.atEndOfMonth();
+
+            // Версия читается до задач, чтобы ETag не оказался новее содержимого ответа.
+            String version = db.getRangeVersion(first, last);
+            MonthResult result = flights.execute(month + "@" + version, () -> load(month));
+            String[] types = result.types();
+            int[] counts = result.counts();
+            StringBuilder codes = new StringBuilder(types.length);
+            for (String type : types) {
+                if (codes != null && isDefinitive(type)) {
+                    codes.append(type);
+                } else {
+                    codes = null;
+                }
+            }
+
+            if (codes != null) {
+                String etag = entityTag(version, codes);
+                if (notModified(exchange, etag)) {
+                    return;
+                }
+                exchange.getResponseHeaders().set("ETag", etag);
+            }
+
+            exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+            long writing = System.nanoTime();
+            exchange.sendResponseHeaders(200, 0);
+            try (JsonWriter json = new JsonWriter(exchange.getResponseBody())) {
+                json.beginObject().name("month").value(month.toString()).name("days").beginArray();
+                for (int i = 0; i < counts.length; i++) {
+                    json.beginArray().value(isDefinitive(types[i]) ? types[i] : null).value(counts[i]).endArray();
+                }
+                json.endArray().endObject();
+            }
+            RequestProfile.record(RequestProfile.Phase.RESPONSE, writing);
+        }
+
+        /**
+         * Читает типы дней и количество задач месяца.
+         * @param month Месяц.
+         * @return Коды типа дня и количество задач.
+         * @throws IOException Если количество задач не удалось получить.
+         */
+        private MonthResult load(YearMonth month) throws IOException {
+            long lookup = System.nanoTime();
+            String[] types = dayTypes.getMonth(month);
+            RequestProfile.record(RequestProfile.Phase.HOLIDAY, lookup);
+            return new MonthResult(types, db.countTasksByDate(month.atDay(1), month.atEndOfMonth()));
         }
     }
 
@@ -111,6 +851,26 @@ public class Server {
      * Внутренний класс, обрабатывающий POST-запросы для создания новой задачи.
      */
     static class PostCreateHandler implements HttpHandler {
+        /**
+         * Групповая запись изменений задач.
+         */
+        private final GroupCommitWriter writer;
+
+        /**
+         * Наибольший размер тела запроса в байтах.
+         */
+        private final int maxBodyBytes;
+
+        /**
+         * Конструктор обработчика.
+         * @param writer       Групповая запись изменений задач.
+         * @param maxBodyBytes Наибольший размер тела запроса в байтах.
+         */
+        PostCreateHandler(GroupCommitWriter writer, int maxBodyBytes) {
+            this.writer = writer;
+            this.maxBodyBytes = maxBodyBytes;
+        }
+
         /**
          * Обрабатывает POST-запрос, получая данные задачи из тела запроса и добавляя задачу в базу данных.
          * @param exchange Объект HttpExchange, представляющий текущий HTTP-обмен.
@@ -121,21 +881,32 @@ public class Server {
 
             if ("POST".equalsIgnoreCase(exchange.getRequestMethod())) {
 
-                InputStream is = exchange.getRequestBody();
-                String requestBody = new String(is.readAllBytes(), StandardCharsets.UTF_8);
-
-                JSONObject jsonObject = stringToJson(requestBody);
-                String date = jsonObject.getString("date");
-                String text = jsonObject.getString("text");
-
-                TaskDatabase db = new TaskDatabase();
-                db.addTask(date, text);
+                Convertor.CreateRequest request;
+                long decoding = System.nanoTime();
+                try {
+                    request = Convertor.decodeCreate(exchange.getRequestBody(), maxBodyBytes);
+                    RequestProfile.record(RequestProfile.Phase.DECODE, decoding);
+                } catch (Convertor.RequestFormatException e) {
+                    logger.error("Incorrect create request: " + e.getMessage());
+                    exchange.sendResponseHeaders(e.getStatus(), -1);
+                    return;
+                }
+                LocalDate date = request.date();
 
+                int status = 200;
                 String response = "Добавлена новая заметка на день - " + date;
-                exchange.sendResponseHeaders(200, response.getBytes().length);
+                try {
+                    writer.submit(BatchOperation.create(date, request.text()));
+                } catch (IOException e) {
+                    logger.error("Error when adding an issue: " + e.getMessage());
+                    status = 500;
+                    response = "Заметка на день - " + date + " не добавлена";
+                }
+                byte[] body = response.getBytes(StandardCharsets.UTF_8);
+                exchange.sendResponseHeaders(status, body.length);
 
                 OutputStream os = exchange.getResponseBody();
-                os.write(response.getBytes());
+                os.write(body);
                 os.close();
             } else {
                 exchange.sendResponseHeaders(405, -1);
@@ -147,6 +918,26 @@ public class Server {
      * Внутренний класс, обрабатывающий POST-запросы для удаления задачи.
      */
     static class PostDeleteHandler implements HttpHandler {
+        /**
+         * Групповая запись изменений задач.
+         */
+        private final GroupCommitWriter writer;
+
+        /**
+         * Наибольший размер тела запроса в байтах.
+         */
+        private final int maxBodyBytes;
+
+        /**
+         * Конструктор обработчика.
+         * @param writer       Групповая запись изменений задач.
+         * @param maxBodyBytes Наибольший размер тела запроса в байтах.
+         */
+        PostDeleteHandler(GroupCommitWriter writer, int maxBodyBytes) {
+            this.writer = writer;
+            this.maxBodyBytes = maxBodyBytes;
+        }
+
         /**
          * Обрабатывает POST-запрос, получая данные задачи из тела запроса и удаляя задачу из базы данных.
          * @param exchange Объект HttpExchange, представляющий текущий HTTP-обмен.
@@ -155,22 +946,34 @@ public class Server {
         @Override
         public void handle(HttpExchange exchange) throws IOException {
             if ("POST".equalsIgnoreCase(exchange.getRequestMethod())) {
-                InputStream is = exchange.getRequestBody();
-                String requestBody = new String(is.readAllBytes(), StandardCharsets.UTF_8);
-
-                JSONObject jsonObject = stringToJson(requestBody);
-                String date = jsonObject.getString("date");
-                int position = jsonObject.getInt("position");
-
-                TaskDatabase db = new TaskDatabase();
-                db.deleteTaskByPositionAndDate(position, date);
+                Convertor.DeleteRequest request;
+                long decoding = System.nanoTime();
+                try {
+                    request = Convertor.decodeDelete(exchange.getRequestBody(), maxBodyBytes);
+                    RequestProfile.record(RequestProfile.Phase.DECODE, decoding);
+                } catch (Convertor.RequestFormatException e) {
+                    logger.error("Incorrect delete request: " + e.getMessage());
+                    exchange.sendResponseHeaders(e.getStatus(), -1);
+                    return;
+                }
+                LocalDate date = request.date();
+                int position = request.position();
 
+                int status = 200;
                 String response = "Удалена запись на дату - " + date + " с позицией - " + position;
+                try {
+                    writer.submit(BatchOperation.delete(date, position));
+                } catch (IOException e) {
+                    logger.error("Error deleting issues: " + e.getMessage());
+                    status = 500;
+                    response = "Запись на дату - " + date + " с позицией - " + position + " не удалена";
+                }
 
-                exchange.sendResponseHeaders(200, response.getBytes().length);
+                byte[] body = response.getBytes(StandardCharsets.UTF_8);
+                exchange.sendResponseHeaders(status, body.length);
 
                 OutputStream os = exchange.getResponseBody();
-                os.write(response.getBytes());
+                os.write(body);
                 os.close();
             } else {
                 exchange.sendResponseHeaders(405, -1);
@@ -182,6 +985,26 @@ public class Server {
      * Внутренний класс, обрабатывающий POST-запросы для очистки всех задач на заданную дату.
      */
     static class PostCleanHandler implements HttpHandler {
+        /**
+         * Групповая запись изменений задач.
+         */
+        private final GroupCommitWriter writer;
+
+        /**
+         * Наибольший размер тела запроса в байтах.
+         */
+        private final int maxBodyBytes;
+
+        /**
+         * Конструктор обработчика.
+         * @param writer       Групповая запись изменений задач.
+         * @param maxBodyBytes Наибольший размер тела запроса в байтах.
+         */
+        PostCleanHandler(GroupCommitWriter writer, int maxBodyBytes) {
+            this.writer = writer;
+            this.maxBodyBytes = maxBodyBytes;
+        }
+
         /**
          * Обрабатывает POST-запрос, получая дату из тела запроса и удаляя все задачи на эту дату из базы данных.
          * @param exchange Объект HttpExchange, представляющий текущий HTTP-обмен.
@@ -192,20 +1015,216 @@ public class Server {
 
             if ("POST".equalsIgnoreCase(exchange.getRequestMethod())) {
 
-                InputStream is = exchange.getRequestBody();
-                String requestBody = new String(is.readAllBytes(), StandardCharsets.UTF_8);
+                Convertor.CleanRequest request;
+                long decoding = System.nanoTime();
+                try {
+                    request = Convertor.decodeClean(exchange.getRequestBody(), maxBodyBytes);
+                    RequestProfile.record(RequestProfile.Phase.DECODE, decoding);
+                } catch (Convertor.RequestFormatException e) {
+                    logger.error("Incorrect clean request: " + e.getMessage());
+                    exchange.sendResponseHeaders(e.getStatus(), -1);
+                    return;
+                }
+                LocalDate date = request.date();
 
-                JSONObject jsonObject = stringToJson(requestBody);
-                String date = jsonObject.getString("date");
+                int status = 200;
+                String response = "Все заметки на дату - " + date + " удалены.";
+                try {
+                    writer.submit(BatchOperation.clean(date));
+                } catch (IOException e) {
+                    logger.error("Error deleting issues: " + e.getMessage());
+                    status = 500;
+                    response = "Заметки на дату - " + date + " не удалены.";
+                }
+                byte[] body = response.getBytes(StandardCharsets.UTF_8);
+                exchange.sendResponseHeaders(status, body.length);
 
-                TaskDatabase db = new TaskDatabase();
-                db.deleteAllTasksByDate(date);
+                OutputStream os = exchange.getResponseBody();
+                os.write(body);
+                os.close();
+            } else {
+                exchange.sendResponseHeaders(405, -1);
+            }
+        }
+    }
 
-                String response = "Все заметки на дату - " + date + " удалены.";
-                exchange.sendResponseHeaders(200, response.getBytes().length);
+    /**
+     * Внутренний класс, обрабатывающий POST-запросы с пакетом операций создания, удаления и очистки задач.
+     * Тело запроса - JSON-массив объектов {@code {"op":"create|delete|clean", ...}}, см. {@link BatchOperation}.
+     * Все операции пакета применяются одной транзакцией.
+     */
+    static class PostBatchHandler implements HttpHandler {
+        /**
+         * База данных задач.
+         */
+        private final TaskDatabase db;
+        /**
+         * Наибольшее количество операций в одном запросе.
+         */
+        private final int maxOperations;
+        /**
+         * Наибольший размер тела запроса в байтах.
+         */
+        private final int maxBodyBytes;
+
+        /**
+         * Конструктор обработчика.
+         * @param db            База данных задач.
+         * @param maxOperations Наибольшее количество операций в одном запросе.
+         * @param maxBodyBytes  Наибольший размер тела запроса в байтах.
+         */
+        PostBatchHandler(TaskDatabase db, int maxOperations, int maxBodyBytes) {
+            this.db = db;
+            this.maxOperations = maxOperations;
+            this.maxBodyBytes = maxBodyBytes;
+        }
+
+        /**
+         * Обрабатывает POST-запрос, применяя пакет операций к базе данных.
+         * @param exchange Объект HttpExchange, представляющий текущий HTTP-обмен.
+         * @throws IOException Если возникает ошибка ввода-вывода.
+         */
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            if (!"POST".equalsIgnoreCase(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+
+            List<BatchOperation> operations;
+            long decoding = System.nanoTime();
+            try {
+                operations = Convertor.decodeBatch(exchange.getRequestBody(), maxBodyBytes, maxOperations);
+                RequestProfile.record(RequestProfile.Phase.DECODE, decoding);
+            } catch (Convertor.RequestFormatException e) {
+                logger.error("Incorrect batch: " + e.getMessage());
+                exchange.sendResponseHeaders(e.getStatus(), -1);
+                return;
+            }
+
+            int status = 200;
+            String response = "Применено операций - " + operations.size();
+            try {
+                db.applyBatch(operations);
+            } catch (IOException e) {
+                status = 500;
+                response = "Пакет операций не применен";
+            }
+
+            byte[] body = response.getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(status, body.length);
+
+            OutputStream os = exchange.getResponseBody();
+            os.write(body);
+            os.close();
+        }
+    }
+
+    /**
+     * Внутренний класс, оборачивающий обработчик учетом запросов: количество по классу кода ответа,
+     * гистограмма длительности и количество выполняющихся запросов. Кроме того, на время запроса
+     * в потоке открывается профиль {@link RequestProfile}, по которому отбираются медленные запросы.
+     */
+    static class InstrumentedHandler implements HttpHandler {
+        /**
+         * Обработчик запросов.
+         */
+        private final HttpHandler delegate;
+        /**
+         * Длительность запросов.
+         */
+        private final Metrics.Histogram duration;
+        /**
+         * Количество выполняющихся запросов.
+         */
+        private final Metrics.Gauge inFlight;
+        /**
+         * Количество запросов по классу кода ответа: 1xx-5xx.
+         */
+        private final Metrics.Counter[] responses = new Metrics.Counter[5];
+        /**
+         * Отбор медленных запросов.
+         */
+        private final RequestProfiler profiler;
+
+        /**
+         * Конструктор обработчика.
+         * @param name     Имя обработчика в метке handler.
+         * @param delegate Обработчик запросов.
+         * @param metrics  Реестр метрик.
+         * @param profiler Отбор медленных запросов.
+         */
+        InstrumentedHandler(String name, HttpHandler delegate, Metrics metrics, RequestProfiler profiler) {
+            this.delegate = delegate;
+            this.profiler = profiler;
+            this.duration = metrics.histogram("calendar_http_request_duration_seconds",
+                    "Duration of HTTP requests by handler", "handler", name);
+            this.inFlight = metrics.gauge("calendar_http_requests_in_flight",
+                    "HTTP requests in progress by handler", "handler", name);
+            for (int i = 0; i < responses.length; i++) {
+                responses[i] = metrics.counter("calendar_http_requests_total",
+                        "HTTP requests by handler and status class", "handler", name, "status", (i + 1) + "xx");
+            }
+        }
+
+        /**
+         * Передает запрос обработчику и учитывает его. Запрос, завершившийся исключением
+         * или без ответа, учитывается как 5xx.
+         * @param exchange Объект HttpExchange, представляющий текущий HTTP-обмен.
+         * @throws IOException Если возникает ошибка ввода-вывода.
+         */
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            long start = System.nanoTime();
+            inFlight.increment();
+            RequestProfile profile = RequestProfile.begin();
+            boolean failed = true;
+            try {
+                delegate.handle(exchange);
+                failed = false;
+            } finally {
+                inFlight.decrement();
+                long elapsed = System.nanoTime() - start;
+                duration.record(elapsed);
+                int status = failed ? 500 : exchange.getResponseCode();
+                int statusClass = status / 100;
+                responses[statusClass >= 1 && statusClass <= 5 ? statusClass - 1 : 4].increment();
+                profiler.finish(profile, exchange, status, elapsed);
+            }
+        }
+    }
+
+    /**
+     * Внутренний класс, обрабатывающий GET-запросы метрик сервера в текстовом формате Prometheus.
+     */
+    static class MetricsHandler implements HttpHandler {
+        /**
+         * Реестр метрик.
+         */
+        private final Metrics metrics;
+
+        /**
+         * Конструктор обработчика.
+         * @param metrics Реестр метрик.
+         */
+        MetricsHandler(Metrics metrics) {
+            this.metrics = metrics;
+        }
+
+        /**
+         * Обрабатывает GET-запрос, возвращая все метрики сервера.
+         * @param exchange Объект HttpExchange, представляющий текущий HTTP-обмен.
+         * @throws IOException Если возникает ошибка ввода-вывода.
+         */
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            if ("GET".equalsIgnoreCase(exchange.getRequestMethod())) {
+                byte[] response = metrics.scrape().getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+                exchange.sendResponseHeaders(200, response.length);
 
                 OutputStream os = exchange.getResponseBody();
-                os.write(response.getBytes());
+                os.write(response);
                 os.close();
             } else {
                 exchange.sendResponseHeaders(405, -1);
@@ -214,53 +1233,155 @@ public class Server {
     }
 
     /**
-     * Отправляет GET-запрос на сервис isdayoff.ru для определения типа дня (рабочий/выходной).
-     * @param date Дата в формате YYYY-MM-DD.
-     * @return Строковое представление кода ответа сервиса isdayoff.ru.
-     * @throws IOException Если возникает ошибка ввода-вывода.
+     * Внутренний класс, обрабатывающий GET-запросы последних медленных запросов в формате JSON.
+     */
+    static class SlowRequestsHandler implements HttpHandler {
+        /**
+         * Отбор медленных запросов.
+         */
+        private final RequestProfiler profiler;
+
+        /**
+         * Конструктор обработчика.
+         * @param profiler Отбор медленных запросов.
+         */
+        SlowRequestsHandler(RequestProfiler profiler) {
+            this.profiler = profiler;
+        }
+
+        /**
+         * Обрабатывает GET-запрос, возвращая медленные запросы с разбивкой по фазам, начиная с последнего.
+         * @param exchange Объект HttpExchange, представляющий текущий HTTP-обмен.
+         * @throws IOException Если возникает ошибка ввода-вывода.
+         */
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            if ("GET".equalsIgnoreCase(exchange.getRequestMethod())) {
+                byte[] response = profiler.recentToJson().toString().getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+                exchange.sendResponseHeaders(200, response.length);
+
+                OutputStream os = exchange.getResponseBody();
+                os.write(response);
+                os.close();
+            } else {
+                exchange.sendResponseHeaders(405, -1);
+            }
+        }
+    }
+
+    /**
+     * Внутренний класс, обрабатывающий GET-запросы состояния клиента сервиса isdayoff.ru:
+     * состояния предохранителя, счетчиков запросов и времен ответа.
      */
-    private static String sendGetHolidayRequest(String date) throws IOException {
-        String result = null;
-        String[] parts = date.split("-");
-        String year = parts[0];
-        String month = parts[1];
-        String day = parts[2];
-        String urlAddress = "https://isdayoff.ru/api/getdata?year=" + year + "&month=" + month + "&day=" + day;
-        URL url = new URL(urlAddress);
-        logger.info("Request to - " + url);
-        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+    static class HolidayStatusHandler implements HttpHandler {
+        /**
+         * Клиент сервиса isdayoff.ru.
+         */
+        private final HolidayClient holidayClient;
 
-        connection.setRequestMethod("GET");
+        /**
+         * Конструктор обработчика.
+         * @param holidayClient Клиент сервиса isdayoff.ru.
+         */
+        HolidayStatusHandler(HolidayClient holidayClient) {
+            this.holidayClient = holidayClient;
+        }
 
-        int responseCode = connection.getResponseCode();
-        logger.info("GET Response Code :: " + responseCode);
+        /**
+         * Обрабатывает GET-запрос, возвращая состояние клиента в формате JSON.
+         * @param exchange Объект HttpExchange, представляющий текущий HTTP-обмен.
+         * @throws IOException Если возникает ошибка ввода-вывода.
+         */
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            if ("GET".equalsIgnoreCase(exchange.getRequestMethod())) {
+                byte[] response = holidayClient.toJson().toString().getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().set("Content-Type", "application/json");
+                exchange.sendResponseHeaders(200, response.length);
 
-        if (responseCode == HttpURLConnection.HTTP_OK) {
-            BufferedReader in = new BufferedReader(new InputStreamReader(
-                    connection.getInputStream()));
-            String inputLine;
-            StringBuilder response = new StringBuilder();
+                OutputStream os = exchange.getResponseBody();
+                os.write(response);
+                os.close();
+            } else {
+                exchange.sendResponseHeaders(405, -1);
+            }
+        }
+    }
 
-            while ((inputLine = in.readLine()) != null) {
-                response.append(inputLine);
+    /**
+     * Разбирает строку параметров запроса вида {@code name=value&name=value}.
+     * @param query Строка параметров или null.
+     * @return Параметры запроса.
+     */
+    static Map<String, String> parseQuery(String query) {
+        Map<String, String> params = new HashMap<>();
+        if (query != null) {
+            for (String pair : query.split("&")) {
+                String[] parts = pair.split("=", 2);
+                if (parts.length == 2) {
+                    params.put(parts[0], parts[1]);
+                }
             }
-            in.close();
+        }
+        return params;
+    }
 
-            result = response.toString();
+    /**
+     * Проверяет, что код типа дня получен окончательно и ответ с ним можно проверять по ETag.
+     * Ошибки сервиса и неизвестный тип дня не должны закрепляться у клиента ответом 304.
+     * @param code Код ответа сервиса isdayoff.ru или null.
+     * @return true, если код является типом дня.
+     */
+    private static boolean isDefinitive(String code) {
+        return code != null && code.length() == 1 && Character.isDigit(code.charAt(0));
+    }
+
+    /**
+     * Формирует ETag ответа из версии задач и кодов типа дня.
+     * @param version Версия задач.
+     * @param codes   Коды типа дня всех дат ответа.
+     * @return Значение заголовка ETag.
+     */
+    static String entityTag(String version, CharSequence codes) {
+        return "\"" + version + "-" + Integer.toString(codes.toString().hashCode() & 0x7fffffff, 36) + "\"";
+    }
 
-        } else {
-            result = "GET запрос не удался";
+    /**
+     * Отвечает 304 без тела, если заголовок If-None-Match запроса совпадает с ETag.
+     * @param exchange Объект HttpExchange, представляющий текущий HTTP-обмен.
+     * @param etag     Текущий ETag.
+     * @return true, если отправлен ответ 304.
+     * @throws IOException Если возникает ошибка ввода-вывода.
+     */
+    static boolean notModified(HttpExchange exchange, String etag) throws IOException {
+        String ifNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            candidate = candidate.trim();
+            if (candidate.startsWith("W/")) {
+                candidate = candidate.substring(2);
+            }
+            if (candidate.equals(etag) || candidate.equals("*")) {
+                exchange.getResponseHeaders().set("ETag", etag);
+                exchange.sendResponseHeaders(304, -1);
+                return true;
+            }
         }
-        connection.disconnect();
-        return result;
+        return false;
     }
 
     /**
      * Возвращает текстовое сообщение, соответствующее коду ответа сервиса isdayoff.ru.
-     * @param code Код ответа сервиса isdayoff.ru.
+     * @param code Код ответа сервиса isdayoff.ru или null, если тип дня неизвестен.
      * @return Текстовое сообщение, описывающее тип дня.
      */
     private static String getStatusMessage(String code) {
+        if (code == null) {
+            return "Неизвестный статус";
+        }
         return switch (code) {
             case "0" -> "Рабочий день";
             case "1" -> "Нерабочий день";
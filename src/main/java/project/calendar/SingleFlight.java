@@ -0,0 +1,124 @@
+package project.calendar;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Класс SingleFlight объединяет одновременные вычисления с одинаковым ключом: первый запрос выполняет
+ * вычисление, а запросы, пришедшие до его завершения, ждут и получают тот же результат или ту же ошибку.
+ * Запись о вычислении удаляется сразу после его завершения, поэтому результаты не кэшируются
+ * и следующий запрос с тем же ключом выполняет вычисление заново.
+ *
+ * @param <K> Тип ключа.
+ * @param <V> Тип результата.
+ */
+public class SingleFlight<K, V> {
+    /**
+     * Вычисление результата.
+     *
+     * @param <V> Тип результата.
+     */
+    @FunctionalInterface
+    public interface Computation<V> {
+        /**
+         * Вычисляет результат.
+         *
+         * @return Результат.
+         * @throws IOException Если возникает ошибка ввода-вывода.
+         */
+        V compute() throws IOException;
+    }
+
+    /**
+     * Выполняющиеся вычисления по ключу.
+     */
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    /**
+     * Количество запросов, присоединившихся к уже выполняющемуся вычислению.
+     */
+    private final LongAdder coalesced = new LongAdder();
+
+    /**
+     * Возвращает результат вычисления с указанным ключом: присоединяется к уже выполняющемуся
+     * вычислению или выполняет его в текущем потоке. Время ожидания чужого вычисления
+     * отмечается в профиле запроса как {@link RequestProfile.Phase#COALESCED}.
+     *
+     * @param key         Ключ вычисления.
+     * @param computation Вычисление, выполняемое, если вычисления с этим ключом сейчас нет.
+     * @return Результат вычисления.
+     * @throws IOException Если вычисление завершилось ошибкой.
+     */
+    public V execute(K key, Computation<V> computation) throws IOException {
+        CompletableFuture<V> future = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, future);
+        if (existing != null) {
+            coalesced.increment();
+            long waiting = System.nanoTime();
+            try {
+                return await(existing);
+            } finally {
+                RequestProfile.record(RequestProfile.Phase.COALESCED, waiting);
+            }
+        }
+
+        try {
+            V value = computation.compute();
+            future.complete(value);
+            return value;
+        } catch (IOException | RuntimeException | Error e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, future);
+        }
+    }
+
+    /**
+     * Возвращает количество запросов, присоединившихся к уже выполняющемуся вычислению.
+     *
+     * @return Количество объединенных запросов.
+     */
+    public long getCoalesced() {
+        return coalesced.sum();
+    }
+
+    /**
+     * Возвращает количество выполняющихся в данный момент вычислений.
+     *
+     * @return Количество вычислений.
+     */
+    public int getInFlight() {
+        return inFlight.size();
+    }
+
+    /**
+     * Ожидает завершения чужого вычисления.
+     *
+     * @param future Выполняющееся вычисление.
+     * @return Результат вычисления.
+     * @throws IOException Если вычисление завершилось ошибкой.
+     */
+    private static <V> V await(CompletableFuture<V> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for a coalesced request", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IOException("Coalesced request failed", cause);
+        }
+    }
+}
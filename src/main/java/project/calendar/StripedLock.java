@@ -0,0 +1,80 @@
+package project.calendar;
+
+import java.util.Collection;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Класс StripedLock предоставляет блокировки по ключу с фиксированным набором полос.
+ * Разные ключи могут попасть в одну полосу, но один ключ всегда блокируется одной и той же полосой.
+ */
+public class StripedLock {
+    /**
+     * Блокировки полос.
+     */
+    private final ReentrantLock[] stripes;
+
+    /**
+     * Конструктор класса StripedLock.
+     *
+     * @param count Количество полос.
+     */
+    public StripedLock(int count) {
+        stripes = new ReentrantLock[count];
+        for (int i = 0; i < count; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Захватывает блокировку полосы ключа.
+     *
+     * @param key Ключ.
+     * @return Захваченная блокировка, которую необходимо освободить.
+     */
+    public ReentrantLock lock(Object key) {
+        ReentrantLock lock = stripes[indexOf(key)];
+        lock.lock();
+        return lock;
+    }
+
+    /**
+     * Захватывает блокировки полос всех ключей в порядке номеров полос, что исключает взаимную блокировку.
+     *
+     * @param keys Ключи.
+     * @return Номера захваченных полос для передачи в {@link #unlockAll(Collection)}.
+     */
+    public Collection<Integer> lockAll(Collection<?> keys) {
+        TreeSet<Integer> indexes = new TreeSet<>();
+        for (Object key : keys) {
+            indexes.add(indexOf(key));
+        }
+        for (int index : indexes) {
+            stripes[index].lock();
+        }
+        return indexes;
+    }
+
+    /**
+     * Освобождает блокировки, захваченные {@link #lockAll(Collection)}.
+     *
+     * @param indexes Номера захваченных полос.
+     */
+    public void unlockAll(Collection<Integer> indexes) {
+        for (int index : indexes) {
+            stripes[index].unlock();
+        }
+    }
+
+    /**
+     * Возвращает номер полосы ключа.
+     *
+     * @param key Ключ.
+     * @return Номер полосы.
+     */
+    private int indexOf(Object key) {
+        int hash = key.hashCode();
+        hash ^= hash >>> 16;
+        return Math.floorMod(hash, stripes.length);
+    }
+}
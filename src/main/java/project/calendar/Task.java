@@ -2,6 +2,8 @@ package project.calendar;
 
 import org.json.JSONObject;
 
+import java.time.LocalDate;
+
 /**
  * Класс Task представляет собой задачу с идентификатором, датой, позицией и текстом.
  */
@@ -15,9 +17,9 @@ public class Task {
      */
     private final int position;
     /**
-     * Дата, к которой относится задача, в формате "yyyy-MM-dd".
+     * Дата, к которой относится задача.
      */
-    private final String date;
+    private final LocalDate date;
     /**
      * Текст задачи.
      */
@@ -27,11 +29,11 @@ public class Task {
      * Конструктор класса Task.
      *
      * @param id       Уникальный идентификатор задачи.
-     * @param date     Дата, к которой относится задача, в формате "yyyy-MM-dd".
+     * @param date     Дата, к которой относится задача.
      * @param position Позиция задачи в списке задач на день.
      * @param text     Текст задачи.
      */
-    public Task(int id, String date, int position, String text) {
+    public Task(int id, LocalDate date, int position, String text) {
         this.id = id;
         this.date = date;
         this.position = position;
@@ -68,9 +70,9 @@ public class Task {
     /**
      * Возвращает дату, к которой относится задача.
      *
-     * @return Дата задачи в формате "yyyy-MM-dd".
+     * @return Дата задачи.
      */
-    public String getDate() {
+    public LocalDate getDate() {
         return date;
     }
 
@@ -82,7 +84,7 @@ public class Task {
     public JSONObject toJson() {
         JSONObject json = new JSONObject();
         json.put("id", id);
-        json.put("date", date);
+        json.put("date", date.toString());
         json.put("position", position);
         json.put("text", text);
         return json;
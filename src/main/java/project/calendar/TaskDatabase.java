@@ -1,194 +1,686 @@
 package project.calendar;
 
+import java.io.IOException;
 import java.sql.*;
+import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 /**
  * Класс TaskDatabase предоставляет методы для взаимодействия с базой данных задач.
+ * Даты хранятся и индексируются как количество дней от 1970-01-01 (epoch-day).
+ * Списки задач по дате кэшируются; любое изменение даты через этот класс сбрасывает ее запись в кэше
+ * и меняет версию даты, по которой клиенты проверяют актуальность полученных данных.
  */
 public class TaskDatabase {
     /**
      * Поле для логирования
      */
     private static final Logger logger = LogManager.getLogger(TaskDatabase.class);
-    /**
-     * URL-адрес базы данных SQLite.
-     */
-    private static final String DB_URL = "jdbc:sqlite:tasks.db";
     /**
      * Имя таблицы задач в базе данных.
      */
     private static final String TABLE_NAME = "tasks";
+    /**
+     * Запрос добавления задачи.
+     */
+    private static final String INSERT_SQL = "INSERT INTO " + TABLE_NAME + "(text, date, position) VALUES (?, ?, ?);";
+    /**
+     * Запрос добавления задачи на следующую свободную позицию даты одной атомарной командой.
+     */
+    private static final String INSERT_NEXT_SQL = "INSERT INTO " + TABLE_NAME + "(text, date, position) " +
+            "SELECT ?, ?, COALESCE(MAX(position), 0) + 1 FROM " + TABLE_NAME + " WHERE date = ?;";
+    /**
+     * Запрос удаления задачи по позиции и дате.
+     */
+    private static final String DELETE_SQL = "DELETE FROM " + TABLE_NAME + " WHERE position = ? AND date = ?;";
+    /**
+     * Запрос удаления всех задач на дату.
+     */
+    private static final String CLEAN_SQL = "DELETE FROM " + TABLE_NAME + " WHERE date = ?;";
+    /**
+     * Запрос задач на дату.
+     */
+    private static final String SELECT_BY_DATE_SQL = "SELECT * FROM " + TABLE_NAME + " WHERE date = ?;";
+    /**
+     * Запрос задач за диапазон дат, упорядоченных по дате и позиции.
+     */
+    private static final String SELECT_RANGE_SQL = "SELECT id, text, date, position FROM " + TABLE_NAME +
+            " WHERE date >= ? AND date <= ? ORDER BY date, position;";
+    /**
+     * Запрос количества задач по датам диапазона.
+     */
+    private static final String COUNT_BY_DATE_SQL = "SELECT date, COUNT(*) AS tasks FROM " + TABLE_NAME +
+            " WHERE date >= ? AND date <= ? GROUP BY date;";
+    /**
+     * Запрос наибольшей занятой позиции на дату.
+     */
+    private static final String FREE_POSITION_SQL = "SELECT position FROM " + TABLE_NAME +
+            " WHERE date = ? ORDER BY position DESC LIMIT 1;";
+    /**
+     * Код ошибки SQLite при нарушении ограничения.
+     */
+    private static final int SQLITE_CONSTRAINT = 19;
+    /**
+     * Количество попыток добавления задачи при конфликте позиций.
+     */
+    private static final int INSERT_ATTEMPTS = 3;
 
     /**
-     * Соединение с базой данных.
+     * Пул соединений с базой данных.
      */
-    private Connection connection;
+    private final ConnectionPool pool;
+    /**
+     * Блокировки изменений задач и заполнения кэша по дате.
+     */
+    private final StripedLock dateLocks = new StripedLock(64);
 
     /**
-     * Устанавливает соединение с базой данных.
+     * Кэш списков задач по дате.
      */
-    public void connect() {
-        try {
-            connection = DriverManager.getConnection(DB_URL);
-            logger.info("The connection to the database is established.");
-        } catch (SQLException e) {
-            logger.error("Error connecting to the database: " + e.getMessage());
+    private final LruCache<LocalDate, List<Task>> dayCache;
+    /**
+     * Версии дат, изменявшихся с момента запуска. Версия - значение общего счетчика изменений
+     * в момент последнего изменения даты; у дат без записи версия равна {@link #versionFloor}.
+     */
+    private final ConcurrentHashMap<LocalDate, Long> versions = new ConcurrentHashMap<>();
+    /**
+     * Наибольшее количество дат в {@link #versions}.
+     */
+    private final int maxVersions;
+    /**
+     * Общий счетчик изменений.
+     */
+    private final AtomicLong changes = new AtomicLong();
+    /**
+     * Нижняя граница версий: значение счетчика изменений в момент последнего сброса
+     * {@link #versions}. Не уменьшается.
+     */
+    private final AtomicLong versionFloor = new AtomicLong();
+    /**
+     * Идентификатор запуска, отличающий версии разных запусков сервера.
+     */
+    private final String bootId = Long.toString(System.currentTimeMillis(), 36);
+
+    /**
+     * Длительность и количество ошибок операции с базой данных.
+     *
+     * @param duration Длительность операции, включая ожидание блокировки даты и соединения.
+     * @param errors   Количество операций, завершившихся ошибкой SQL.
+     */
+    private record OperationMetrics(Metrics.Histogram duration, Metrics.Counter errors) {
+        /**
+         * Регистрирует метрики операции.
+         *
+         * @param metrics Реестр метрик.
+         * @param method  Имя метода TaskDatabase.
+         * @return Метрики операции.
+         */
+        static OperationMetrics of(Metrics metrics, String method) {
+            return new OperationMetrics(
+                    metrics.histogram("calendar_db_operation_duration_seconds",
+                            "Duration of TaskDatabase operations", "method", method),
+                    metrics.counter("calendar_db_operation_errors_total",
+                            "TaskDatabase operations that failed with an SQL error", "method", method));
         }
     }
 
     /**
-     * Закрывает соединение с базой данных.
+     * Метрики {@link #addTask(LocalDate, String)}.
      */
-    public void disconnect() {
-        try {
-            if (connection != null && !connection.isClosed()) {
-                connection.close();
-                logger.info("The connection to the database is closed.");
-            }
-        } catch (SQLException e) {
-            logger.error("Error when closing the connection: " + e.getMessage());
-        }
+    private final OperationMetrics addTaskMetrics;
+    /**
+     * Метрики {@link #listTasksByDate(LocalDate)}.
+     */
+    private final OperationMetrics listMetrics;
+    /**
+     * Метрики {@link #forEachTaskInRange(LocalDate, LocalDate, TaskConsumer)}.
+     */
+    private final OperationMetrics rangeMetrics;
+    /**
+     * Метрики {@link #countTasksByDate(LocalDate, LocalDate)}.
+     */
+    private final OperationMetrics countMetrics;
+    /**
+     * Метрики {@link #deleteAllTasksByDate(LocalDate)}.
+     */
+    private final OperationMetrics cleanMetrics;
+    /**
+     * Метрики {@link #deleteTaskByPositionAndDate(int, LocalDate)}.
+     */
+    private final OperationMetrics deleteMetrics;
+    /**
+     * Метрики {@link #applyBatch(List)}.
+     */
+    private final OperationMetrics batchMetrics;
+    /**
+     * Метрики {@link #findFreePosition(LocalDate)}.
+     */
+    private final OperationMetrics freePositionMetrics;
+
+    /**
+     * Конструктор класса TaskDatabase.
+     *
+     * @param pool           Пул соединений, из которого берутся соединения для каждого запроса.
+     * @param cacheSize      Максимальное количество дат в кэше задач.
+     * @param cacheTtlMillis Время жизни записи кэша задач в миллисекундах; ограничивает устаревание
+     *                       при изменении базы данных другими программами.
+     * @param metrics        Реестр, в котором регистрируются длительности и ошибки операций.
+     */
+    public TaskDatabase(ConnectionPool pool, int cacheSize, long cacheTtlMillis, Metrics metrics) {
+        this(pool, cacheSize, cacheTtlMillis, 65536, metrics);
     }
 
     /**
-     * Создает таблицу задач в базе данных, если она не существует.
+     * Конструктор класса TaskDatabase.
+     *
+     * @param pool           Пул соединений, из которого берутся соединения для каждого запроса.
+     * @param cacheSize      Максимальное количество дат в кэше задач.
+     * @param cacheTtlMillis Время жизни записи кэша задач в миллисекундах; ограничивает устаревание
+     *                       при изменении базы данных другими программами.
+     * @param maxVersions    Максимальное количество дат, версии которых хранятся по отдельности.
+     * @param metrics        Реестр, в котором регистрируются длительности и ошибки операций.
      */
-    public void createTable() {
-        connect();
-        String createTableSQL = "CREATE TABLE IF NOT EXISTS " + TABLE_NAME +
-                "(id INTEGER PRIMARY KEY AUTOINCREMENT, " +
-                "text TEXT NOT NULL, " +
-                "date TEXT NOT NULL, " +
-                "position INTEGER NOT NULL);";
-        try (Statement statement = connection.createStatement()) {
-            statement.execute(createTableSQL);
-            logger.info("The table has been created or already exists.");
-        } catch (SQLException e) {
-            logger.error("Error when creating the table: " + e.getMessage());
-        }
-        disconnect();
+    public TaskDatabase(ConnectionPool pool, int cacheSize, long cacheTtlMillis, int maxVersions, Metrics metrics) {
+        this.pool = pool;
+        this.maxVersions = maxVersions;
+        this.dayCache = new LruCache<>(cacheSize, cacheTtlMillis);
+        dayCache.registerMetrics(metrics, "calendar_task_cache", "Task list by date");
+        this.addTaskMetrics = OperationMetrics.of(metrics, "addTask");
+        this.listMetrics = OperationMetrics.of(metrics, "listTasksByDate");
+        this.rangeMetrics = OperationMetrics.of(metrics, "forEachTaskInRange");
+        this.countMetrics = OperationMetrics.of(metrics, "countTasksByDate");
+        this.cleanMetrics = OperationMetrics.of(metrics, "deleteAllTasksByDate");
+        this.deleteMetrics = OperationMetrics.of(metrics, "deleteTaskByPositionAndDate");
+        this.batchMetrics = OperationMetrics.of(metrics, "applyBatch");
+        this.freePositionMetrics = OperationMetrics.of(metrics, "findFreePosition");
+    }
+
+    /**
+     * Возвращает запросы чтения, которые должны выполняться по индексу.
+     *
+     * @return Запросы с параметрами-заполнителями.
+     */
+    static List<String> indexedQueries() {
+        return List.of(SELECT_BY_DATE_SQL, SELECT_RANGE_SQL, COUNT_BY_DATE_SQL, FREE_POSITION_SQL, INSERT_NEXT_SQL, DELETE_SQL, CLEAN_SQL);
     }
 
     /**
      * Добавляет новую задачу в базу данных.
+     * Позиция вычисляется и занимается одной командой INSERT ... SELECT под блокировкой даты,
+     * поэтому одновременные добавления на одну дату не получают одинаковых позиций.
+     * Если позицию одновременно заняла другая программа, работающая с той же базой,
+     * уникальный индекс отклоняет вставку и она повторяется.
      *
-     * @param date Дата, к которой относится задача, в формате "yyyy-MM-dd".
+     * @param date Дата, к которой относится задача.
      * @param text Текст задачи.
      */
-    public void addTask(String date, String text) {
-        connect();
-        String insertSQL = "INSERT INTO " + TABLE_NAME + "(text, date, position) VALUES (?, ?, ?);";
-
-        try (PreparedStatement preparedStatement = connection.prepareStatement(insertSQL)) {
+    public void addTask(LocalDate date, String text) {
+        long start = System.nanoTime();
+        ReentrantLock lock = dateLocks.lock(date);
+        long locked = RequestProfile.record(RequestProfile.Phase.DB_LOCK, start);
+        try (ConnectionPool.PooledConnection connection = pool.borrow()) {
+            long borrowed = RequestProfile.record(RequestProfile.Phase.DB_CONNECTION, locked);
+            PreparedStatement preparedStatement = connection.prepare(INSERT_NEXT_SQL);
             preparedStatement.setString(1, text);
-            preparedStatement.setString(2, date);
-            preparedStatement.setInt(3, findFreePosition(date));
-            preparedStatement.executeUpdate();
+            preparedStatement.setLong(2, date.toEpochDay());
+            preparedStatement.setLong(3, date.toEpochDay());
+            for (int attempt = 1; ; attempt++) {
+                try {
+                    preparedStatement.executeUpdate();
+                    break;
+                } catch (SQLException e) {
+                    if (e.getErrorCode() != SQLITE_CONSTRAINT || attempt == INSERT_ATTEMPTS) {
+                        throw e;
+                    }
+                    logger.warn("Position conflict when adding an issue, retrying");
+                }
+            }
+            RequestProfile.record(RequestProfile.Phase.DB_QUERY, borrowed);
             logger.info("The task has been added.");
         } catch (SQLException e) {
             logger.error("Error when adding an issue: " + e.getMessage());
+            addTaskMetrics.errors().increment();
+        } finally {
+            changed(date);
+            lock.unlock();
+            addTaskMetrics.duration().recordSince(start);
         }
-        disconnect();
     }
 
     /**
-     * Получает список задач для указанной даты.
+     * Получает список задач для указанной даты из кэша или из базы данных.
+     * Промах читается из базы под блокировкой даты, поэтому параллельное изменение
+     * не может оставить в кэше список, прочитанный до него.
      *
-     * @param date Дата, для которой необходимо получить задачи, в формате "yyyy-MM-dd".
-     * @return Список задач для указанной даты.
+     * @param date Дата, для которой необходимо получить задачи.
+     * @return Неизменяемый список задач для указанной даты.
      */
-    public List<Task> listTasksByDate(String date) {
-        connect();
-        String selectSQL = "SELECT * FROM " + TABLE_NAME + " WHERE date = ?;";
-        List<Task> tasks = new ArrayList<>();
+    public List<Task> listTasksByDate(LocalDate date) {
+        long start = System.nanoTime();
+        List<Task> tasks = dayCache.get(date);
+        if (tasks != null) {
+            listMetrics.duration().recordSince(start);
+            return tasks;
+        }
+
+        ReentrantLock lock = dateLocks.lock(date);
+        RequestProfile.record(RequestProfile.Phase.DB_LOCK, start);
+        try {
+            tasks = readTasksByDate(date);
+            if (tasks != null) {
+                tasks = Collections.unmodifiableList(tasks);
+                dayCache.put(date, tasks);
+                return tasks;
+            }
+            listMetrics.errors().increment();
+            return Collections.emptyList();
+        } finally {
+            lock.unlock();
+            listMetrics.duration().recordSince(start);
+        }
+    }
+
+    /**
+     * Возвращает кэш списков задач для чтения статистики.
+     *
+     * @return Кэш списков задач.
+     */
+    public LruCache<LocalDate, List<Task>> getDayCache() {
+        return dayCache;
+    }
+
+    /**
+     * Возвращает версию даты. Версия меняется при каждом изменении задач даты через этот класс;
+     * чтобы версия не оказалась новее прочитанных данных, ее нужно получать до чтения задач.
+     *
+     * @param date Дата.
+     * @return Версия даты в виде "идентификатор запуска-счетчик".
+     */
+    public String getVersion(LocalDate date) {
+        return bootId + "-" + Long.toString(versionOf(date), 36);
+    }
 
-        try (PreparedStatement preparedStatement = connection.prepareStatement(selectSQL)) {
-            preparedStatement.setString(1, date);
-            ResultSet resultSet = preparedStatement.executeQuery();
+    /**
+     * Возвращает версию диапазона дат: наибольшую версию его дат. Поскольку версии берутся
+     * из общего счетчика, любое изменение внутри диапазона увеличивает версию диапазона.
+     *
+     * @param from Первая дата диапазона.
+     * @param to   Последняя дата диапазона.
+     * @return Версия диапазона в виде "идентификатор запуска-счетчик".
+     */
+    public String getRangeVersion(LocalDate from, LocalDate to) {
+        long version = 0;
+        for (LocalDate date = from; !date.isAfter(to); date = date.plusDays(1)) {
+            version = Math.max(version, versionOf(date));
+        }
+        return bootId + "-" + Long.toString(version, 36);
+    }
 
-            while (resultSet.next()) {
-                int id = resultSet.getInt("id");
-                String text = resultSet.getString("text");
-                String dt = resultSet.getString("date");
-                int position = resultSet.getInt("position");
+    /**
+     * Отмечает изменение даты: сбрасывает ее запись в кэше и увеличивает ее версию.
+     * Вызывается под блокировкой даты.
+     *
+     * @param date Дата.
+     */
+    private void changed(LocalDate date) {
+        dayCache.invalidate(date);
+        versions.put(date, changes.incrementAndGet());
+        if (versions.size() > maxVersions) {
+            forgetVersions();
+        }
+    }
 
-                Task task = new Task(id, dt, position, text);
-                tasks.add(task);
+    /**
+     * Возвращает версию даты в виде значения счетчика изменений.
+     *
+     * @param date Дата.
+     * @return Версия даты.
+     */
+    private long versionOf(LocalDate date) {
+        long floor = versionFloor.get();
+        Long version = versions.get(date);
+        return version == null ? floor : Math.max(version, floor);
+    }
+
+    /**
+     * Ограничивает память под версии: поднимает нижнюю границу до текущего значения счетчика
+     * и удаляет версии, не превышающие ее. Версии удаленных дат при этом только растут,
+     * поэтому клиент с сохраненным ETag в худшем случае получит данные повторно, но никогда
+     * не получит 304 для изменившейся даты. Версии, записанные одновременно со сбросом,
+     * больше границы и не удаляются.
+     */
+    private void forgetVersions() {
+        long floor = versionFloor.accumulateAndGet(changes.get(), Math::max);
+        versions.values().removeIf(version -> version <= floor);
+    }
+
+    /**
+     * Возвращает количество дат, версии которых хранятся по отдельности.
+     *
+     * @return Количество дат.
+     */
+    int trackedVersions() {
+        return versions.size();
+    }
+
+    /**
+     * Читает список задач для указанной даты из базы данных.
+     *
+     * @param date Дата, для которой необходимо получить задачи.
+     * @return Список задач или null, если запрос не удалось выполнить.
+     */
+    private List<Task> readTasksByDate(LocalDate date) {
+        List<Task> tasks = new ArrayList<>();
+
+        long start = System.nanoTime();
+        try (ConnectionPool.PooledConnection connection = pool.borrow()) {
+            long borrowed = RequestProfile.record(RequestProfile.Phase.DB_CONNECTION, start);
+            PreparedStatement preparedStatement = connection.prepare(SELECT_BY_DATE_SQL);
+            preparedStatement.setLong(1, date.toEpochDay());
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                while (resultSet.next()) {
+                    int id = resultSet.getInt("id");
+                    String text = resultSet.getString("text");
+                    LocalDate dt = LocalDate.ofEpochDay(resultSet.getLong("date"));
+                    int position = resultSet.getInt("position");
+
+                    Task task = new Task(id, dt, position, text);
+                    tasks.add(task);
+                }
             }
+            RequestProfile.record(RequestProfile.Phase.DB_QUERY, borrowed);
             logger.info("DB return list of tasks");
         } catch (SQLException e) {
             logger.error("Error when outputting tasks: " + e.getMessage());
+            return null;
         }
-        disconnect();
         return tasks;
     }
 
     /**
-     * Удаляет все задачи для указанной даты.
+     * Получатель задач, читаемых из базы данных по одной.
+     */
+    @FunctionalInterface
+    public interface TaskConsumer {
+        /**
+         * Принимает очередную задачу.
+         *
+         * @param task Задача.
+         * @throws IOException Если возникает ошибка ввода-вывода при обработке задачи.
+         */
+        void accept(Task task) throws IOException;
+    }
+
+    /**
+     * Передает получателю все задачи в диапазоне дат, упорядоченные по дате и позиции.
+     * Задачи читаются одним запросом по индексу и не накапливаются в памяти.
+     *
+     * @param from     Первая дата диапазона.
+     * @param to       Последняя дата диапазона.
+     * @param consumer Получатель задач.
+     * @throws IOException Если получатель завершился ошибкой или запрос не удалось выполнить.
+     */
+    public void forEachTaskInRange(LocalDate from, LocalDate to, TaskConsumer consumer) throws IOException {
+        long start = System.nanoTime();
+        try (ConnectionPool.PooledConnection connection = pool.borrow()) {
+            long borrowed = RequestProfile.record(RequestProfile.Phase.DB_CONNECTION, start);
+            PreparedStatement preparedStatement = connection.prepare(SELECT_RANGE_SQL);
+            preparedStatement.setLong(1, from.toEpochDay());
+            preparedStatement.setLong(2, to.toEpochDay());
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                while (resultSet.next()) {
+                    consumer.accept(new Task(resultSet.getInt("id"), LocalDate.ofEpochDay(resultSet.getLong("date")),
+                            resultSet.getInt("position"), resultSet.getString("text")));
+                }
+            }
+            RequestProfile.record(RequestProfile.Phase.DB_QUERY, borrowed);
+            logger.info("DB return tasks from " + from + " to " + to);
+        } catch (SQLException e) {
+            logger.error("Error when outputting tasks: " + e.getMessage());
+            rangeMetrics.errors().increment();
+            throw new IOException("Error when outputting tasks", e);
+        } finally {
+            rangeMetrics.duration().recordSince(start);
+        }
+    }
+
+    /**
+     * Считает задачи по датам диапазона одним запросом с группировкой по дате.
      *
-     * @param date Дата, для которой необходимо удалить задачи, в формате "yyyy-MM-dd".
+     * @param from Первая дата диапазона.
+     * @param to   Последняя дата диапазона.
+     * @return Количество задач по датам диапазона, начиная с первой.
+     * @throws IOException Если запрос не удалось выполнить.
      */
-    public void deleteAllTasksByDate(String date) {
-        connect();
-        String deleteSQL = "DELETE FROM " + TABLE_NAME + " WHERE date = ?;";
+    public int[] countTasksByDate(LocalDate from, LocalDate to) throws IOException {
+        long start = System.nanoTime();
+        int[] counts = new int[(int) (to.toEpochDay() - from.toEpochDay() + 1)];
+        try (ConnectionPool.PooledConnection connection = pool.borrow()) {
+            long borrowed = RequestProfile.record(RequestProfile.Phase.DB_CONNECTION, start);
+            PreparedStatement preparedStatement = connection.prepare(COUNT_BY_DATE_SQL);
+            preparedStatement.setLong(1, from.toEpochDay());
+            preparedStatement.setLong(2, to.toEpochDay());
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                while (resultSet.next()) {
+                    counts[(int) (resultSet.getLong("date") - from.toEpochDay())] = resultSet.getInt("tasks");
+                }
+            }
+            RequestProfile.record(RequestProfile.Phase.DB_QUERY, borrowed);
+            return counts;
+        } catch (SQLException e) {
+            logger.error("Error when counting tasks: " + e.getMessage());
+            countMetrics.errors().increment();
+            throw new IOException("Error when counting tasks", e);
+        } finally {
+            countMetrics.duration().recordSince(start);
+        }
+    }
 
-        try (PreparedStatement preparedStatement = connection.prepareStatement(deleteSQL)) {
-            preparedStatement.setString(1, date);
+    /**
+     * Удаляет все задачи для указанной даты.
+     *
+     * @param date Дата, для которой необходимо удалить задачи.
+     */
+    public void deleteAllTasksByDate(LocalDate date) {
+        long start = System.nanoTime();
+        ReentrantLock lock = dateLocks.lock(date);
+        long locked = RequestProfile.record(RequestProfile.Phase.DB_LOCK, start);
+        try (ConnectionPool.PooledConnection connection = pool.borrow()) {
+            long borrowed = RequestProfile.record(RequestProfile.Phase.DB_CONNECTION, locked);
+            PreparedStatement preparedStatement = connection.prepare(CLEAN_SQL);
+            preparedStatement.setLong(1, date.toEpochDay());
             int rowsAffected = preparedStatement.executeUpdate();
+            RequestProfile.record(RequestProfile.Phase.DB_QUERY, borrowed);
             logger.info("Deleted entries: " + rowsAffected);
         } catch (SQLException e) {
             logger.error("Error deleting issues: " + e.getMessage());
+            cleanMetrics.errors().increment();
+        } finally {
+            changed(date);
+            lock.unlock();
+            cleanMetrics.duration().recordSince(start);
         }
-        disconnect();
     }
 
     /**
      * Удаляет задачу по указанной позиции и дате.
      *
      * @param position Позиция задачи для удаления.
-     * @param date     Дата, к которой относится задача, в формате "yyyy-MM-dd".
+     * @param date     Дата, к которой относится задача.
      */
-    public void deleteTaskByPositionAndDate(int position, String date) {
-        connect();
-        String deleteSQL = "DELETE FROM " + TABLE_NAME + " WHERE position = ? AND date = ?;";
-
-        try (PreparedStatement preparedStatement = connection.prepareStatement(deleteSQL)) {
+    public void deleteTaskByPositionAndDate(int position, LocalDate date) {
+        long start = System.nanoTime();
+        ReentrantLock lock = dateLocks.lock(date);
+        long locked = RequestProfile.record(RequestProfile.Phase.DB_LOCK, start);
+        try (ConnectionPool.PooledConnection connection = pool.borrow()) {
+            long borrowed = RequestProfile.record(RequestProfile.Phase.DB_CONNECTION, locked);
+            PreparedStatement preparedStatement = connection.prepare(DELETE_SQL);
             preparedStatement.setInt(1, position);
-            preparedStatement.setString(2, date);
+            preparedStatement.setLong(2, date.toEpochDay());
             int rowsAffected = preparedStatement.executeUpdate();
+            RequestProfile.record(RequestProfile.Phase.DB_QUERY, borrowed);
             logger.info("Deleted entries: " + rowsAffected);
         } catch (SQLException e) {
             logger.error("Error deleting issues: " + e.getMessage());
+            deleteMetrics.errors().increment();
+        } finally {
+            changed(date);
+            lock.unlock();
+            deleteMetrics.duration().recordSince(start);
+        }
+    }
+
+    /**
+     * Применяет пакет операций одной транзакцией. Подряд идущие операции одного вида
+     * отправляются в базу данных одним JDBC-пакетом, позиции новых задач распределяются
+     * с учетом предыдущих операций пакета. На время пакета блокируются все затронутые даты.
+     *
+     * @param operations Операции в порядке применения.
+     * @throws IOException Если пакет не удалось применить; в этом случае ни одна операция не применяется.
+     */
+    public void applyBatch(List<BatchOperation> operations) throws IOException {
+        long start = System.nanoTime();
+        Set<LocalDate> dates = new HashSet<>();
+        for (BatchOperation operation : operations) {
+            dates.add(operation.date());
+        }
+        Collection<Integer> locks = dateLocks.lockAll(dates);
+        long locked = RequestProfile.record(RequestProfile.Phase.DB_LOCK, start);
+        try (ConnectionPool.PooledConnection connection = pool.borrow()) {
+            long borrowed = RequestProfile.record(RequestProfile.Phase.DB_CONNECTION, locked);
+            Connection conn = connection.getConnection();
+            conn.setAutoCommit(false);
+            try {
+                Map<LocalDate, Integer> nextPositions = new HashMap<>();
+                PreparedStatement pending = null;
+                for (BatchOperation operation : operations) {
+                    PreparedStatement statement;
+                    switch (operation.type()) {
+                        case CREATE:
+                            statement = connection.prepare(INSERT_SQL);
+                            if (statement != pending) {
+                                flush(pending);
+                                pending = statement;
+                            }
+                            Integer position = nextPositions.get(operation.date());
+                            if (position == null) {
+                                position = findFreePosition(connection, operation.date());
+                            }
+                            nextPositions.put(operation.date(), position + 1);
+                            statement.setString(1, operation.text());
+                            statement.setLong(2, operation.date().toEpochDay());
+                            statement.setInt(3, position);
+                            break;
+                        case DELETE:
+                            statement = connection.prepare(DELETE_SQL);
+                            if (statement != pending) {
+                                flush(pending);
+                                pending = statement;
+                            }
+                            // Свободная позиция пересчитывается после применения удалений.
+                            nextPositions.remove(operation.date());
+                            statement.setInt(1, operation.position());
+                            statement.setLong(2, operation.date().toEpochDay());
+                            break;
+                        default:
+                            statement = connection.prepare(CLEAN_SQL);
+                            if (statement != pending) {
+                                flush(pending);
+                                pending = statement;
+                            }
+                            nextPositions.put(operation.date(), 1);
+                            statement.setLong(1, operation.date().toEpochDay());
+                            break;
+                    }
+                    statement.addBatch();
+                }
+                flush(pending);
+                conn.commit();
+                RequestProfile.record(RequestProfile.Phase.DB_QUERY, borrowed);
+                logger.info("Batch of " + operations.size() + " operations has been applied.");
+            } catch (SQLException e) {
+                conn.rollback();
+                for (String sql : new String[]{INSERT_SQL, DELETE_SQL, CLEAN_SQL}) {
+                    connection.prepare(sql).clearBatch();
+                }
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            logger.error("Error when applying a batch: " + e.getMessage());
+            batchMetrics.errors().increment();
+            throw new IOException("Error when applying a batch", e);
+        } finally {
+            for (LocalDate date : dates) {
+                changed(date);
+            }
+            dateLocks.unlockAll(locks);
+            batchMetrics.duration().recordSince(start);
+        }
+    }
+
+    /**
+     * Выполняет накопленный JDBC-пакет.
+     *
+     * @param statement Запрос с накопленным пакетом или null.
+     * @throws SQLException Если пакет не удалось выполнить.
+     */
+    private static void flush(PreparedStatement statement) throws SQLException {
+        if (statement != null) {
+            statement.executeBatch();
         }
-        disconnect();
     }
 
     /**
      * Находит свободную позицию для добавления задачи на указанную дату.
      *
-     * @param date Дата, для которой необходимо найти свободную позицию, в формате "yyyy-MM-dd".
+     * @param date Дата, для которой необходимо найти свободную позицию.
+     * @return Свободная позиция для добавления задачи.
+     */
+    public int findFreePosition(LocalDate date) {
+        long start = System.nanoTime();
+        try (ConnectionPool.PooledConnection connection = pool.borrow()) {
+            return findFreePosition(connection, date);
+        } catch (SQLException e) {
+            logger.error("Error when searching for a vacant position: " + e.getMessage());
+            freePositionMetrics.errors().increment();
+            return 1;
+        } finally {
+            freePositionMetrics.duration().recordSince(start);
+        }
+    }
+
+    /**
+     * Находит свободную позицию для добавления задачи на указанную дату, используя уже выданное соединение.
+     *
+     * @param connection Соединение с базой данных.
+     * @param date       Дата, для которой необходимо найти свободную позицию.
      * @return Свободная позиция для добавления задачи.
+     * @throws SQLException Если запрос не удалось выполнить.
      */
-    public int findFreePosition(String date) {
-        connect();
-        String selectSQL = "SELECT position FROM " + TABLE_NAME + " WHERE date = ? ORDER BY position DESC LIMIT 1;";
+    private int findFreePosition(ConnectionPool.PooledConnection connection, LocalDate date) throws SQLException {
         int freePosition = 1; // Default to 1 if no tasks exist for the date
 
-        try (PreparedStatement preparedStatement = connection.prepareStatement(selectSQL)) {
-            preparedStatement.setString(1, date);
-            try (ResultSet resultSet = preparedStatement.executeQuery()) {
-                if (resultSet.next()) {
-                    freePosition = resultSet.getInt("position") + 1;
-                }
+        PreparedStatement preparedStatement = connection.prepare(FREE_POSITION_SQL);
+        preparedStatement.setLong(1, date.toEpochDay());
+        try (ResultSet resultSet = preparedStatement.executeQuery()) {
+            if (resultSet.next()) {
+                freePosition = resultSet.getInt("position") + 1;
             }
-        } catch (SQLException e) {
-            logger.error("Error when searching for a vacant position: " + e.getMessage());
         }
-        disconnect();
         return freePosition;
     }
 
-}
\ No newline at end of file
+}
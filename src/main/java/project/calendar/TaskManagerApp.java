@@ -1,6 +1,7 @@
 package project.calendar;
 
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.geometry.Insets;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
@@ -11,12 +12,21 @@ import java.util.List;
 
 import java.io.IOException;
 import java.time.LocalDate;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
 
 /**
  * Главный класс приложения TaskManagerApp.
  * Предоставляет графический интерфейс для управления задачами.
+ * Запросы к серверу выполняются асинхронно, а их результаты применяются в потоке JavaFX;
+ * результаты запросов, отправленных до выбора другой даты, отбрасываются.
  */
 public class TaskManagerApp extends Application {
+    /**
+     * Количество дней до и после выбранной даты, загружаемых в фоне.
+     */
+    private static final int PREFETCH_DAYS = 3;
     /**
      * Текстовая область для взаимодействия с пользователем.
      */
@@ -29,6 +39,24 @@ public class TaskManagerApp extends Application {
      * Правая панель.
      */
     private VBox rightPanel;
+    /**
+     * Клиент сервера календаря; адрес задается свойством {@code client.url}.
+     */
+    private final Client client = new Client(System.getProperty("client.url",
+            "http://localhost:" + Integer.getInteger("server.port", 8000)));
+    /**
+     * Индикатор выполняющихся запросов.
+     */
+    private ProgressIndicator busyIndicator;
+    /**
+     * Номер выбора даты; чтения, отправленные при другом номере, устарели.
+     * Используется только в потоке JavaFX.
+     */
+    private long selection;
+    /**
+     * Количество выполняющихся запросов. Используется только в потоке JavaFX.
+     */
+    private int pending;
 
     /**
      * Точка входа в приложение.
@@ -103,23 +131,17 @@ public class TaskManagerApp extends Application {
 
         createButton.setOnAction(e -> handleCreate());
         exitButton.setOnAction(e -> handleExit());
-        deleteAllButton.setOnAction(e -> {
-            try {
-                handleDeleteAll();
-            } catch (IOException ex) {
-                showMessage("Ошибка при удалении заметок: " + ex.getMessage());
-            }
-        });
+        deleteAllButton.setOnAction(e -> handleDeleteAll());
         deleteByPositionButton.setOnAction(e -> handleDeleteByPosition());
-        showTasksButton.setOnAction(e -> {
-            try {
-                handleShowTasks();
-            } catch (IOException ex) {
-                showMessage("Ошибка при отображении заметок: " + ex.getMessage());
-            }
-        });
+        showTasksButton.setOnAction(e -> handleShowTasks());
+
+        // Индикатор выполняющихся запросов
+        busyIndicator = new ProgressIndicator();
+        busyIndicator.setPrefSize(24, 24);
+        busyIndicator.setVisible(false);
 
-        buttonBox.getChildren().addAll(createButton, deleteAllButton, deleteByPositionButton, showTasksButton, exitButton);
+        buttonBox.getChildren().addAll(createButton, deleteAllButton, deleteByPositionButton, showTasksButton, exitButton,
+                busyIndicator);
 
         Label interactionLabel = new Label("Область взаимодействия:");
         rightPanel.getChildren().addAll(interactionLabel, interactionArea, buttonBox);
@@ -128,9 +150,12 @@ public class TaskManagerApp extends Application {
     }
 
     /**
-     * Обрабатывает событие выбора даты в календаре.
+     * Обрабатывает событие выбора даты в календаре и загружает в фоне соседние дни.
+     * Результаты чтения задач предыдущей даты, которое еще выполняется, будут отброшены.
      */
     private void handleDateSelection() {
+        selection++;
+        client.prefetch(getDate(), PREFETCH_DAYS);
         showMessage("Выбрана дата: " + getDate() + "\n\nВыберите действие:\n" +
                 "1. Показать заметки\n" +
                 "2. Добавить заметку\n" +
@@ -139,23 +164,21 @@ public class TaskManagerApp extends Application {
     }
 
     /**
-     * Возвращает выбранную дату в формате строки.
+     * Возвращает выбранную дату.
      *
-     * @return Выбранная дата в формате "yyyy-MM-dd".
+     * @return Выбранная дата.
      */
-    private String getDate() {
-        LocalDate selectedDate = datePicker.getValue();
-        return selectedDate.toString();
+    private LocalDate getDate() {
+        return datePicker.getValue();
     }
 
     /**
      * Обрабатывает событие нажатия на кнопку "Удалить все заметки".
-     *
-     * @throws IOException Если произошла ошибка при удалении заметок.
      */
-    private void handleDeleteAll() throws IOException {
-        Client.sendCleanRequest(getDate());
-        showMessage("Все заметки удалены.");
+    private void handleDeleteAll() {
+        LocalDate date = getDate();
+        submit(client.cleanDay(date), response -> showMessage("Все заметки на " + date + " удалены."),
+                "Ошибка при удалении заметок на " + date, false);
     }
 
     /**
@@ -174,14 +197,11 @@ public class TaskManagerApp extends Application {
         dialog.setTitle("Добавление заметки");
         dialog.setHeaderText("Введите текст заметки:");
         dialog.setContentText("Текст:");
-        dialog.showAndWait().ifPresent(text -> {
-            try {
-                Client.sendCreateRequest(getDate(), text); // Отправляем запрос на добавление
-                showMessage("Заметка \"" + text + "\" добавлена.");
-            } catch (IOException e) {
-                showMessage("Ошибка при добавлении заметки: " + e.getMessage());
-            }
-        });
+        LocalDate date = getDate();
+        dialog.showAndWait().ifPresent(text ->
+                submit(client.createTask(date, text), // Отправляем запрос на добавление
+                        response -> showMessage("Заметка \"" + text + "\" на " + date + " добавлена."),
+                        "Ошибка при добавлении заметки на " + date, false));
     }
 
     /**
@@ -192,26 +212,26 @@ public class TaskManagerApp extends Application {
         dialog.setTitle("Удаление по позиции");
         dialog.setHeaderText("Введите номер позиции для удаления:");
         dialog.setContentText("Позиция:");
-        StringBuilder output = new StringBuilder();
         dialog.showAndWait().ifPresent(position ->
         {
+            int pos;
             try {
-                int pos = Integer.parseInt(position);
-                Day day = Client.sendGetRequest(getDate());
+                pos = Integer.parseInt(position);
+            } catch (NumberFormatException e) {
+                showMessage("Пожалуйста, введите корректное число.");
+                return;
+            }
+            LocalDate date = getDate();
+            submit(client.getDay(date).thenCompose(day -> {
                 if (day.getTasks().isEmpty()) {
-                    output.append("Список заметок пуст.");
+                    return CompletableFuture.completedFuture("Список заметок пуст.");
                 }
-                else if (findPosition(day.getTasks(), pos)) {
-                    output.append("Такой заметки нет.");
+                if (findPosition(day.getTasks(), pos)) {
+                    return CompletableFuture.completedFuture("Такой заметки нет.");
                 }
-                else {
-                    Client.sendDeleteRequest(getDate(), pos);
-                    output.append("Заметка на позиции ").append(pos).append(" удалена.");
-                }
-            } catch(NumberFormatException | IOException e){
-                output.append("Пожалуйста, введите корректное число.");
-            }
-            showMessage(output.toString());
+                return client.deleteTask(date, pos)
+                        .thenApply(response -> "Заметка на позиции " + pos + " на " + date + " удалена.");
+            }), this::showMessage, "Ошибка при удалении заметки на " + date, false);
         });
     }
 
@@ -226,11 +246,17 @@ public class TaskManagerApp extends Application {
 
     /**
      * Обрабатывает событие нажатия на кнопку "Показать заметки".
+     */
+    private void handleShowTasks() {
+        submit(client.getDay(getDate()), this::showTasks, "Ошибка при отображении заметок", true);
+    }
+
+    /**
+     * Отображает задачи дня.
      *
-     * @throws IOException Если произошла ошибка при получении заметок.
+     * @param day День с задачами.
      */
-    private void handleShowTasks() throws IOException {
-        Day day = Client.sendGetRequest(getDate());
+    private void showTasks(Day day) {
         if (day == null){
             showMessage("Сервер не вернул данные. Пожалуйста, попробуйте еще раз.");
         } else if (day.getTasks().isEmpty()) {
@@ -250,6 +276,47 @@ public class TaskManagerApp extends Application {
         }
     }
 
+    /**
+     * Ожидает завершения запроса в фоне и применяет его результат в потоке JavaFX.
+     * Пока запрос выполняется, показывается индикатор. Результат чтения, отправленного
+     * до выбора другой даты, можно отбросить; результат и ошибка изменения показываются
+     * всегда, иначе пользователь не узнает, что изменение не применилось.
+     *
+     * @param request        Выполняющийся запрос.
+     * @param onSuccess      Обработчик результата, вызываемый в потоке JavaFX.
+     * @param errorMessage   Текст сообщения об ошибке.
+     * @param discardIfStale Отбрасывать ли результат и ошибку, если после отправки выбрана другая дата.
+     * @param <T>            Тип результата.
+     */
+    private <T> void submit(CompletableFuture<T> request, Consumer<T> onSuccess, String errorMessage,
+                            boolean discardIfStale) {
+        long requestSelection = selection;
+        setPending(pending + 1);
+        request.whenComplete((result, error) -> Platform.runLater(() -> {
+            setPending(pending - 1);
+            if (discardIfStale && requestSelection != selection) {
+                return;
+            }
+            if (error != null) {
+                Throwable cause = error instanceof CompletionException && error.getCause() != null
+                        ? error.getCause() : error;
+                showMessage(errorMessage + ": " + cause.getMessage());
+            } else {
+                onSuccess.accept(result);
+            }
+        }));
+    }
+
+    /**
+     * Изменяет количество выполняющихся запросов и видимость индикатора.
+     *
+     * @param count Количество выполняющихся запросов.
+     */
+    private void setPending(int count) {
+        pending = count;
+        busyIndicator.setVisible(count > 0);
+    }
+
     /**
      * Отображает сообщение в области взаимодействия.
      *
@@ -260,12 +327,21 @@ public class TaskManagerApp extends Application {
     }
 
     /**
-     * Главный метод приложения.
+     * Главный метод приложения. С первым аргументом {@code --load-test} вместо приложения
+     * запускается нагрузочное испытание сервера без JavaFX, см. {@link LoadGenerator}.
      *
      * @param args Аргументы командной строки.
      * @throws IOException Если произошла ошибка при запуске сервера или приложения.
      */
     public static void main(String[] args) throws IOException {
+        if (args.length > 0 && args[0].equals("--load-test")) {
+            try {
+                LoadGenerator.main(args);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return;
+        }
         Server.startServer();
         launch(args);
     }
@@ -0,0 +1,74 @@
+package project.calendar;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Проверки публикации статистики кэшей задач и типов дня в /metrics.
+ */
+class CacheMetricsTest {
+    @TempDir
+    Path dir;
+
+    private HolidayStub stub;
+    private TestServer server;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        stub = new HolidayStub(0, 0);
+        server = new TestServer(dir, Map.of("holiday.url", stub.getUrl()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.close();
+        stub.stop();
+    }
+
+    @Test
+    void cacheStatisticsArePublished() throws Exception {
+        Map<String, Long> before = scrape();
+        assertEquals(200, server.post("/create", "{\"date\":\"2015-03-02\",\"text\":\"Заметка\"}").statusCode());
+
+        assertEquals(200, server.get("/getList?date=2015-03-02").statusCode());
+        assertEquals(200, server.get("/getList?date=2015-03-02").statusCode());
+
+        Map<String, Long> after = scrape();
+        assertEquals(1, delta(before, after, "calendar_task_cache_misses_total"));
+        assertEquals(1, delta(before, after, "calendar_task_cache_hits_total"));
+        assertEquals(1, after.get("calendar_task_cache_size"));
+        assertEquals(1, delta(before, after, "calendar_holiday_cache_misses_total"));
+        assertEquals(1, delta(before, after, "calendar_holiday_cache_hits_total"));
+        assertEquals(1, after.get("calendar_holiday_cache_size"));
+        assertEquals(0, after.get("calendar_holiday_cache_coalesced_total"));
+        assertEquals(0, after.get("calendar_task_cache_evictions_total"));
+    }
+
+    /**
+     * Читает значения метрик без меток.
+     *
+     * @return Значения по имени метрики.
+     */
+    private Map<String, Long> scrape() throws Exception {
+        Map<String, Long> values = new HashMap<>();
+        for (String line : server.get("/metrics").body().split("\n")) {
+            String[] parts = line.split(" ");
+            if (!line.startsWith("#") && parts.length == 2 && !parts[0].contains("{")) {
+                values.put(parts[0], (long) Double.parseDouble(parts[1]));
+            }
+        }
+        return values;
+    }
+
+    private static long delta(Map<String, Long> before, Map<String, Long> after, String name) {
+        return after.get(name) - before.getOrDefault(name, 0L);
+    }
+}
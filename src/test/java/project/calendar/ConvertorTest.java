@@ -0,0 +1,74 @@
+package project.calendar;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Проверки разбора тел запросов /create, /delete и /clean.
+ */
+class ConvertorTest {
+    private static final int MAX_BYTES = 1024;
+    private static final LocalDate DATE = LocalDate.of(2024, 3, 1);
+
+    @Test
+    void decodesCreate() throws Exception {
+        Convertor.CreateRequest request = decodeCreate("{\"date\":\"2024-03-01\",\"text\":\"Купить \\\"хлеб\\\"\\n\"}");
+
+        assertEquals(DATE, request.date());
+        assertEquals("Купить \"хлеб\"\n", request.text());
+    }
+
+    @Test
+    void rejectsCreateWithTextThatIsNotString() {
+        for (String text : new String[]{"42", "-1.5e3", "true", "false", "{\"a\":\"b\"}", "[\"a\"]"}) {
+            Convertor.RequestFormatException e = assertThrows(Convertor.RequestFormatException.class,
+                    () -> decodeCreate("{\"date\":\"2024-03-01\",\"text\":" + text + "}"), text);
+            assertEquals(400, e.getStatus(), text);
+        }
+    }
+
+    @Test
+    void rejectsCreateWithoutText() {
+        for (String body : new String[]{"{\"date\":\"2024-03-01\"}", "{\"date\":\"2024-03-01\",\"text\":null}"}) {
+            Convertor.RequestFormatException e = assertThrows(Convertor.RequestFormatException.class,
+                    () -> decodeCreate(body), body);
+            assertEquals(400, e.getStatus(), body);
+        }
+    }
+
+    @Test
+    void decodesDeleteWithNumberOrStringPosition() throws Exception {
+        assertEquals(3, decodeDelete("{\"date\":\"2024-03-01\",\"position\":3}").position());
+        assertEquals(3, decodeDelete("{\"date\":\"2024-03-01\",\"position\":\"3\"}").position());
+    }
+
+    @Test
+    void rejectsOversizedBody() {
+        String body = "{\"date\":\"2024-03-01\",\"text\":\"" + "x".repeat(MAX_BYTES) + "\"}";
+
+        Convertor.RequestFormatException e = assertThrows(Convertor.RequestFormatException.class,
+                () -> decodeCreate(body));
+        assertEquals(413, e.getStatus());
+    }
+
+    private static Convertor.CreateRequest decodeCreate(String body)
+            throws Convertor.RequestFormatException, IOException {
+        return Convertor.decodeCreate(stream(body), MAX_BYTES);
+    }
+
+    private static Convertor.DeleteRequest decodeDelete(String body)
+            throws Convertor.RequestFormatException, IOException {
+        return Convertor.decodeDelete(stream(body), MAX_BYTES);
+    }
+
+    private static ByteArrayInputStream stream(String body) {
+        return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,49 @@
+package project.calendar;
+
+import org.json.JSONTokener;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Проверки неизменяемости дней, которые клиент хранит в общем кэше.
+ */
+class DayTest {
+    private static final LocalDate DATE = LocalDate.of(2024, 3, 1);
+
+    @Test
+    void constructorCopiesTasks() {
+        List<Task> tasks = new ArrayList<>();
+        tasks.add(new Task(1, DATE, 0, "Первая"));
+        Day day = new Day(DATE, "0", tasks);
+
+        tasks.add(new Task(2, DATE, 1, "Вторая"));
+
+        assertEquals(1, day.getTasks().size());
+    }
+
+    @Test
+    void parsedDayRejectsChanges() {
+        Day day = Client.parseTasksFromJson(
+                "{\"type\":\"0\",\"tasks\":[{\"id\":1,\"date\":\"" + DATE + "\",\"position\":0,\"text\":\"Первая\"}]}");
+
+        assertEquals(1, day.getTasks().size());
+        assertThrows(UnsupportedOperationException.class, () -> day.getTasks().add(new Task(2, DATE, 1, "Вторая")));
+        assertThrows(UnsupportedOperationException.class, () -> day.getTasks().clear());
+    }
+
+    @Test
+    void parsedRangeRejectsChanges() {
+        List<Day> days = Client.parseDaysFromJson(new JSONTokener(
+                "{\"days\":[{\"date\":\"" + DATE + "\",\"type\":\"1\",\"tasks\":[]}]}"));
+
+        assertEquals(DATE, days.get(0).getDate());
+        assertThrows(UnsupportedOperationException.class,
+                () -> days.get(0).getTasks().add(new Task(1, DATE, 0, "Первая")));
+    }
+}
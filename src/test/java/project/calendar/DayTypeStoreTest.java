@@ -0,0 +1,170 @@
+package project.calendar;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Проверки загрузки типов дня в таблицу базы данных.
+ */
+class DayTypeStoreTest {
+    @TempDir
+    Path dir;
+
+    private ConnectionPool pool;
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        pool = new ConnectionPool("jdbc:sqlite:" + dir.resolve("tasks.db"), 4, 5000);
+        new SchemaMigrations(pool).migrate();
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+        pool.close();
+    }
+
+    @Test
+    void concurrentPrefetchesOfOneYearLoadItOnce() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        DayTypeStore store = new DayTypeStore(pool, year -> {
+            loads.incrementAndGet();
+            sleep(200);
+            return HolidayStub.dayTypes(LocalDate.of(year, 1, 1), LocalDate.of(year + 1, 1, 1));
+        }, null, null);
+
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<String>> results = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            results.add(executor.submit(() -> {
+                start.await();
+                return store.get(LocalDate.of(2024, 3, 2));
+            }));
+        }
+        start.countDown();
+        for (Future<String> result : results) {
+            assertEquals("1", result.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, loads.get());
+
+        store.prefetchYear(2024);
+        assertEquals(1, loads.get());
+        store.refreshYear(2024);
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void slowYearDoesNotBlockOtherYears() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        DayTypeStore store = new DayTypeStore(pool, year -> {
+            if (year == 2024) {
+                await(release);
+            }
+            return HolidayStub.dayTypes(LocalDate.of(year, 1, 1), LocalDate.of(year + 1, 1, 1));
+        }, null, null);
+
+        Future<?> slow = executor.submit(() -> {
+            store.prefetchYear(2024);
+            return null;
+        });
+        try {
+            Future<String> fast = executor.submit(() -> store.get(LocalDate.of(2025, 1, 1)));
+            assertEquals("0", fast.get(5, TimeUnit.SECONDS));
+            assertFalse(slow.isDone());
+        } finally {
+            release.countDown();
+        }
+        slow.get(5, TimeUnit.SECONDS);
+        assertEquals("1", store.get(LocalDate.of(2024, 3, 2)));
+    }
+
+    @Test
+    void concurrentLoadsOfOneMonthLoadItOnce() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        DayTypeStore store = new DayTypeStore(pool, null, month -> {
+            loads.incrementAndGet();
+            sleep(200);
+            return HolidayStub.dayTypes(month.atDay(1), month.plusMonths(1).atDay(1));
+        }, null);
+        YearMonth month = YearMonth.of(2024, 3);
+
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<String[]>> results = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            results.add(executor.submit(() -> {
+                start.await();
+                return store.getMonth(month);
+            }));
+        }
+        start.countDown();
+        String[] expected = HolidayStub.dayTypes(month.atDay(1), month.plusMonths(1).atDay(1)).split("");
+        List<String[]> arrays = new ArrayList<>();
+        for (Future<String[]> result : results) {
+            String[] types = result.get(5, TimeUnit.SECONDS);
+            assertArrayEquals(expected, types);
+            for (String[] other : arrays) {
+                assertFalse(other == types, "callers share one array");
+            }
+            arrays.add(types);
+        }
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void slowMonthDoesNotBlockOtherMonths() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        DayTypeStore store = new DayTypeStore(pool, null, month -> {
+            if (month.getMonthValue() == 3) {
+                await(release);
+            }
+            return HolidayStub.dayTypes(month.atDay(1), month.plusMonths(1).atDay(1));
+        }, null);
+
+        Future<String[]> slow = executor.submit(() -> store.getMonth(YearMonth.of(2024, 3)));
+        try {
+            Future<String[]> fast = executor.submit(() -> store.getMonth(YearMonth.of(2024, 4)));
+            assertEquals("0", fast.get(5, TimeUnit.SECONDS)[0]);
+            assertFalse(slow.isDone());
+        } finally {
+            release.countDown();
+        }
+        assertEquals("1", slow.get(5, TimeUnit.SECONDS)[1]);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
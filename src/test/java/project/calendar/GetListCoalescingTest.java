@@ -0,0 +1,120 @@
+package project.calendar;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.json.JSONObject;
+
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Проверки объединения одновременных одинаковых запросов /getList.
+ */
+class GetListCoalescingTest {
+    private static final int REQUESTS = 16;
+
+    @TempDir
+    Path dir;
+
+    private HolidayStub stub;
+    private TestServer server;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        stub = new HolidayStub(0, 0);
+        server = new TestServer(dir, Map.of(
+                "holiday.url", stub.getUrl(),
+                "holiday.deadline.ms", "5000",
+                "server.threads", "64"));
+        awaitStartupLoads();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.close();
+        stub.stop();
+    }
+
+    @Test
+    void identicalConcurrentRequestsShareOneLookupAndOneRead() throws Exception {
+        assertEquals(200, server.post("/create", "{\"date\":\"2015-03-02\",\"text\":\"Заметка\"}").statusCode());
+        stub.setDelayMillis(300);
+        long upstreamBefore = stub.getRequestCount();
+        long readsBefore = listReads();
+
+        ExecutorService clients = Executors.newFixedThreadPool(REQUESTS);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<HttpResponse<String>>> responses = new ArrayList<>();
+            for (int i = 0; i < REQUESTS; i++) {
+                responses.add(clients.submit(() -> {
+                    start.await();
+                    return server.get("/getList?date=2015-03-02");
+                }));
+            }
+            start.countDown();
+            for (Future<HttpResponse<String>> response : responses) {
+                HttpResponse<String> result = response.get(10, TimeUnit.SECONDS);
+                assertEquals(200, result.statusCode());
+                JSONObject body = new JSONObject(result.body());
+                assertEquals("Рабочий день", body.getString("type"));
+                assertEquals(1, body.getJSONArray("tasks").length());
+            }
+        } finally {
+            clients.shutdownNow();
+        }
+
+        assertEquals(1, stub.getRequestCount() - upstreamBefore);
+        assertEquals(1, listReads() - readsBefore);
+    }
+
+    @Test
+    void dateIsReadFromNamedParameter() throws Exception {
+        assertEquals(200, server.post("/create", "{\"date\":\"2015-03-02\",\"text\":\"Заметка\"}").statusCode());
+
+        HttpResponse<String> response = server.get("/getList?lang=ru&date=2015-03-02");
+        assertEquals(200, response.statusCode());
+        assertEquals(1, new JSONObject(response.body()).getJSONArray("tasks").length());
+
+        assertEquals(400, server.get("/getList?date=2015-02-30").statusCode());
+        assertEquals(0, new JSONObject(server.get("/getList?day=2015-03-02").body()).getJSONArray("tasks").length());
+    }
+
+    /**
+     * Возвращает количество вызовов listTasksByDate из /metrics.
+     */
+    private long listReads() throws Exception {
+        String prefix = "calendar_db_operation_duration_seconds_count{method=\"listTasksByDate\"} ";
+        for (String line : server.get("/metrics").body().split("\n")) {
+            if (line.startsWith(prefix)) {
+                return (long) Double.parseDouble(line.substring(prefix.length()).trim());
+            }
+        }
+        throw new AssertionError("No listTasksByDate count in /metrics");
+    }
+
+    /**
+     * Ждет, пока сервер после запуска загрузит текущий и следующий годы,
+     * чтобы эти запросы не смешивались с запросами проверки.
+     */
+    private void awaitStartupLoads() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (stub.getRequestCount() < 2) {
+            assertTrue(System.nanoTime() < deadline, "startup loads did not finish");
+            Thread.sleep(20);
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package project.calendar;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.json.JSONObject;
+
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Проверки ответа /getList, когда сервис isdayoff.ru отвечает дольше предельного времени ожидания.
+ */
+class GetListHolidayDeadlineTest {
+    /**
+     * Предельное время ожидания типа дня в миллисекундах.
+     */
+    private static final long DEADLINE_MILLIS = 200;
+
+    @TempDir
+    Path dir;
+
+    private HolidayStub stub;
+    private TestServer server;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        stub = new HolidayStub(0, 3000);
+        server = new TestServer(dir, Map.of(
+                "holiday.url", stub.getUrl(),
+                "holiday.read.timeout.ms", "1000",
+                "holiday.breaker.failures", "1000",
+                "holiday.deadline.ms", Long.toString(DEADLINE_MILLIS),
+                "holiday.lookup.threads", "1",
+                "holiday.lookup.queue", "1",
+                "server.threads", "16"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.close();
+        stub.stop();
+    }
+
+    @Test
+    void slowLookupReturnsTasksWithUnknownType() throws Exception {
+        assertEquals(200, server.post("/create", "{\"date\":\"2015-03-02\",\"text\":\"Заметка\"}").statusCode());
+
+        long start = System.nanoTime();
+        HttpResponse<String> response = server.get("/getList?date=2015-03-02");
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertEquals(200, response.statusCode());
+        JSONObject body = new JSONObject(response.body());
+        assertEquals("Неизвестный статус", body.getString("type"));
+        assertEquals(1, body.getJSONArray("tasks").length());
+        assertTrue(elapsedMillis < 1000, "response took " + elapsedMillis + " ms");
+    }
+
+    @Test
+    void lookupPoolStaysBoundedUnderBurst() throws Exception {
+        int requests = 12;
+        ExecutorService clients = Executors.newFixedThreadPool(requests);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<HttpResponse<String>>> responses = new ArrayList<>();
+            for (int i = 0; i < requests; i++) {
+                LocalDate date = LocalDate.of(2015, 4, 1).plusDays(i);
+                responses.add(clients.submit(() -> {
+                    start.await();
+                    return server.get("/getList?date=" + date);
+                }));
+            }
+            long begin = System.nanoTime();
+            start.countDown();
+            for (Future<HttpResponse<String>> response : responses) {
+                HttpResponse<String> result = response.get(10, TimeUnit.SECONDS);
+                assertEquals(200, result.statusCode());
+                assertEquals("Неизвестный статус", new JSONObject(result.body()).getString("type"));
+            }
+            long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin);
+            assertTrue(elapsedMillis < 2000, "burst took " + elapsedMillis + " ms");
+        } finally {
+            clients.shutdownNow();
+        }
+
+        long lookupThreads = Thread.getAllStackTraces().keySet().stream()
+                .filter(thread -> thread.getName().equals("holiday-lookup"))
+                .count();
+        assertTrue(lookupThreads <= 1, lookupThreads + " lookup threads");
+    }
+}
@@ -0,0 +1,94 @@
+package project.calendar;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.json.JSONObject;
+
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Проверка того, что истекший срок одного запроса /getList не обрывает загрузку типа дня,
+ * к которой присоединился другой запрос той же даты.
+ */
+class GetListSharedLookupTest {
+    /**
+     * Задержка ответа заглушки в миллисекундах.
+     */
+    private static final long STUB_DELAY_MILLIS = 700;
+    /**
+     * Предельное время ожидания типа дня в миллисекундах.
+     */
+    private static final long DEADLINE_MILLIS = 500;
+
+    @TempDir
+    Path dir;
+
+    private HolidayStub stub;
+    private TestServer server;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        stub = new HolidayStub(0, 0);
+        server = new TestServer(dir, Map.of(
+                "holiday.url", stub.getUrl(),
+                "holiday.read.timeout.ms", "5000",
+                // Дублирующий запрос заставляет поток загрузки ждать ответ на Future, а такое ожидание
+                // прерывание обрывает, в отличие от чтения сокета HttpURLConnection.
+                "holiday.hedge.ms", "300",
+                "holiday.deadline.ms", Long.toString(DEADLINE_MILLIS),
+                "server.threads", "16"));
+        awaitStartupLoads();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.close();
+        stub.stop();
+    }
+
+    @Test
+    void expiredRequestDoesNotBreakSharedLookup() throws Exception {
+        stub.setDelayMillis(STUB_DELAY_MILLIS);
+        ExecutorService clients = Executors.newFixedThreadPool(2);
+        try {
+            Future<HttpResponse<String>> first = clients.submit(() -> server.get("/getList?date=2015-03-02"));
+            Thread.sleep(150);
+            // Изменение даты меняет ее версию, поэтому второй запрос не присоединяется к первому
+            // в обработчике, а ждет ту же загрузку типа дня в HolidayCache со своим сроком.
+            assertEquals(200, server.post("/create", "{\"date\":\"2015-03-02\",\"text\":\"Заметка\"}").statusCode());
+            Thread.sleep(200);
+            Future<HttpResponse<String>> second = clients.submit(() -> server.get("/getList?date=2015-03-02"));
+
+            assertEquals("Неизвестный статус",
+                    new JSONObject(first.get(5, TimeUnit.SECONDS).body()).getString("type"));
+            JSONObject body = new JSONObject(second.get(5, TimeUnit.SECONDS).body());
+            assertEquals("Рабочий день", body.getString("type"));
+            assertEquals(1, body.getJSONArray("tasks").length());
+        } finally {
+            clients.shutdownNow();
+        }
+    }
+
+    /**
+     * Ждет, пока сервер после запуска загрузит текущий и следующий годы,
+     * чтобы эти запросы не смешивались с запросами проверки.
+     */
+    private void awaitStartupLoads() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (stub.getRequestCount() < 2) {
+            assertTrue(System.nanoTime() < deadline, "startup loads did not finish");
+            Thread.sleep(20);
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package project.calendar;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Проверки сводки месяца /getMonth: типов дня и количества задач по дням.
+ */
+class GetMonthHandlerTest {
+    private static final YearMonth MONTH = YearMonth.of(2015, 3);
+
+    @TempDir
+    Path dir;
+
+    private HolidayStub stub;
+    private TestServer server;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        stub = new HolidayStub(0, 0);
+        server = new TestServer(dir, Map.of(
+                "holiday.url", stub.getUrl(),
+                "server.threads", "16"));
+        awaitStartupLoads();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.close();
+        stub.stop();
+    }
+
+    @Test
+    void countsTasksPerDay() throws Exception {
+        create(MONTH.atDay(2), "Первая");
+        create(MONTH.atDay(2), "Вторая");
+        create(MONTH.atDay(15), "Третья");
+        create(MONTH.plusMonths(1).atDay(1), "Следующий месяц");
+
+        HttpResponse<String> response = server.get("/getMonth?year=2015&month=3");
+
+        assertEquals(200, response.statusCode());
+        JSONObject body = new JSONObject(response.body());
+        assertEquals("2015-03", body.getString("month"));
+        JSONArray days = body.getJSONArray("days");
+        assertEquals(MONTH.lengthOfMonth(), days.length());
+        for (int i = 0; i < days.length(); i++) {
+            LocalDate date = MONTH.atDay(i + 1);
+            int expected = date.getDayOfMonth() == 2 ? 2 : date.getDayOfMonth() == 15 ? 1 : 0;
+            assertEquals(HolidayStub.dayType(date), days.getJSONArray(i).getString(0), date.toString());
+            assertEquals(expected, days.getJSONArray(i).getInt(1), date.toString());
+        }
+    }
+
+    @Test
+    void concurrentRequestsLoadMonthOnce() throws Exception {
+        create(MONTH.atDay(10), "Заметка");
+        stub.setDelayMillis(300);
+        long before = stub.getRequestCount();
+
+        int requests = 8;
+        ExecutorService clients = Executors.newFixedThreadPool(requests);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<HttpResponse<String>>> responses = new ArrayList<>();
+            for (int i = 0; i < requests; i++) {
+                responses.add(clients.submit(() -> {
+                    start.await();
+                    return server.get("/getMonth?year=2015&month=3");
+                }));
+            }
+            start.countDown();
+            for (Future<HttpResponse<String>> response : responses) {
+                HttpResponse<String> result = response.get(10, TimeUnit.SECONDS);
+                assertEquals(200, result.statusCode());
+                JSONArray day = new JSONObject(result.body()).getJSONArray("days").getJSONArray(9);
+                assertEquals("0", day.getString(0));
+                assertEquals(1, day.getInt(1));
+            }
+        } finally {
+            clients.shutdownNow();
+        }
+        assertEquals(1, stub.getRequestCount() - before);
+
+        assertEquals(200, server.get("/getMonth?year=2015&month=3").statusCode());
+        assertEquals(1, stub.getRequestCount() - before);
+    }
+
+    private void create(LocalDate date, String text) throws Exception {
+        assertEquals(200, server.post("/create",
+                new JSONObject().put("date", date.toString()).put("text", text).toString()).statusCode());
+    }
+
+    /**
+     * Ждет, пока сервер после запуска загрузит текущий и следующий годы,
+     * чтобы эти запросы не смешивались с запросами проверки.
+     */
+    private void awaitStartupLoads() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (stub.getRequestCount() < 2) {
+            assertTrue(System.nanoTime() < deadline, "startup loads did not finish");
+            Thread.sleep(20);
+        }
+    }
+}
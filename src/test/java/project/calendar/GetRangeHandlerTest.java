@@ -0,0 +1,94 @@
+package project.calendar;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Проверки потоковой выдачи /getRange, в том числе при ошибке базы данных посреди ответа.
+ */
+class GetRangeHandlerTest {
+    private static final LocalDate FROM = LocalDate.of(2024, 3, 1);
+    private static final LocalDate TO = LocalDate.of(2024, 3, 7);
+
+    @TempDir
+    Path dir;
+
+    private ConnectionPool pool;
+    private HttpServer server;
+    private final HttpClient http = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+
+    @BeforeEach
+    void setUp() throws SQLException, IOException {
+        pool = new ConnectionPool("jdbc:sqlite:" + dir.resolve("tasks.db"), 2, 5000);
+        new SchemaMigrations(pool).migrate();
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+        pool.close();
+    }
+
+    @Test
+    void streamsAllDaysOfRange() throws Exception {
+        TaskDatabase db = new TaskDatabase(pool, 16, TimeUnit.MINUTES.toMillis(1), new Metrics());
+        db.addTask(FROM.plusDays(2), "Первая");
+        db.addTask(FROM.plusDays(2), "Вторая");
+        route(db);
+
+        HttpResponse<String> response = http.send(request(), HttpResponse.BodyHandlers.ofString());
+
+        assertEquals(200, response.statusCode());
+        JSONObject body = new JSONObject(response.body());
+        assertEquals(7, body.getJSONArray("days").length());
+        assertEquals(2, body.getJSONArray("days").getJSONObject(2).getJSONArray("tasks").length());
+    }
+
+    @Test
+    void databaseErrorMidStreamAbortsResponse() throws Exception {
+        TaskDatabase db = new TaskDatabase(pool, 16, TimeUnit.MINUTES.toMillis(1), new Metrics()) {
+            @Override
+            public void forEachTaskInRange(LocalDate from, LocalDate to, TaskConsumer consumer) throws IOException {
+                consumer.accept(new Task(1, from.plusDays(1), 1, "Успела записаться"));
+                throw new IOException("Error when outputting tasks");
+            }
+        };
+        route(db);
+
+        assertThrows(IOException.class, () -> http.send(request(), HttpResponse.BodyHandlers.ofString()));
+    }
+
+    private void route(TaskDatabase db) {
+        HolidayCache holidays = new HolidayCache(date -> HolidayStub.dayType(date), 16, TimeUnit.MINUTES.toMillis(1));
+        server.createContext("/getRange", new Server.GetRangeHandler(db, holidays, 31));
+    }
+
+    private HttpRequest request() {
+        return HttpRequest.newBuilder(URI.create("http://localhost:" + server.getAddress().getPort()
+                        + "/getRange?from=" + FROM + "&to=" + TO))
+                .timeout(Duration.ofSeconds(10))
+                .GET()
+                .build();
+    }
+}
@@ -0,0 +1,179 @@
+package project.calendar;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Проверки групповой фиксации изменений и ее остановки.
+ */
+class GroupCommitWriterTest {
+    private static final LocalDate DATE = LocalDate.of(2024, 3, 1);
+    private static final int WAITING = 8;
+
+    @TempDir
+    Path dir;
+
+    private ConnectionPool pool;
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        pool = new ConnectionPool("jdbc:sqlite:" + dir.resolve("tasks.db"), 2, 5000);
+        new SchemaMigrations(pool).migrate();
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+        pool.close();
+        System.clearProperty("db.synchronous");
+    }
+
+    @Test
+    void closeCommitsQueuedChanges() throws Exception {
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicBoolean first = new AtomicBoolean(true);
+        TaskDatabase db = new TaskDatabase(pool, 16, TimeUnit.MINUTES.toMillis(1), new Metrics()) {
+            @Override
+            public void applyBatch(List<BatchOperation> operations) throws IOException {
+                if (first.getAndSet(false)) {
+                    entered.countDown();
+                    awaitUninterruptibly(release);
+                }
+                super.applyBatch(operations);
+            }
+        };
+        GroupCommitWriter writer = new GroupCommitWriter(db, 256, 0, new Metrics());
+
+        // Первое изменение занимает поток записи, остальные ждут в очереди.
+        Future<?> blocking = executor.submit(() -> {
+            writer.submit(BatchOperation.create(DATE, "Первая"));
+            return null;
+        });
+        assertTrue(entered.await(5, TimeUnit.SECONDS));
+        List<Future<?>> queued = new ArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < WAITING; i++) {
+            String text = "Задача " + i;
+            CountDownLatch started = new CountDownLatch(1);
+            queued.add(executor.submit(() -> {
+                threads.add(Thread.currentThread());
+                started.countDown();
+                writer.submit(BatchOperation.create(DATE, text));
+                return null;
+            }));
+            started.await();
+        }
+        awaitWaiting(threads);
+
+        Future<?> closing = executor.submit(writer::close);
+        release.countDown();
+        closing.get(10, TimeUnit.SECONDS);
+
+        blocking.get(1, TimeUnit.SECONDS);
+        for (Future<?> change : queued) {
+            change.get(1, TimeUnit.SECONDS);
+        }
+        assertEquals(WAITING + 1, db.listTasksByDate(DATE).size());
+        assertThrows(IOException.class, () -> writer.submit(BatchOperation.create(DATE, "После закрытия")));
+    }
+
+    @Test
+    void failedChangeAnswers500WithoutGrouping() throws Exception {
+        assertFailedChangeAnswers500("0");
+    }
+
+    @Test
+    void failedChangeAnswers500WithGrouping() throws Exception {
+        assertFailedChangeAnswers500("256");
+    }
+
+    @Test
+    void groupCommitRequiresFullSync() {
+        assertEquals("FULL", Server.synchronousMode(256));
+        assertEquals("NORMAL", Server.synchronousMode(0));
+
+        System.setProperty("db.synchronous", "normal");
+        assertEquals("FULL", Server.synchronousMode(256));
+        assertEquals("NORMAL", Server.synchronousMode(0));
+
+        System.setProperty("db.synchronous", "EXTRA");
+        assertEquals("EXTRA", Server.synchronousMode(256));
+    }
+
+    /**
+     * Запускает сервер с заданным размером группы, ломает таблицу задач и проверяет,
+     * что изменения, которые не удалось записать, получают ответ 500.
+     *
+     * @param groupSize Значение write.group.size.
+     */
+    private void assertFailedChangeAnswers500(String groupSize) throws Exception {
+        try (TestServer server = new TestServer(dir, Map.of(
+                "holiday.url", "http://localhost:1",
+                "write.group.size", groupSize))) {
+            assertEquals(200, server.post("/create", "{\"date\":\"2024-03-01\",\"text\":\"Первая\"}").statusCode());
+
+            try (ConnectionPool.PooledConnection pooled = pool.borrow();
+                 Statement statement = pooled.getConnection().createStatement()) {
+                statement.execute("DROP TABLE tasks;");
+            }
+
+            assertEquals(500, server.post("/create", "{\"date\":\"2024-03-01\",\"text\":\"Вторая\"}").statusCode());
+            assertEquals(500, server.post("/delete", "{\"date\":\"2024-03-01\",\"position\":1}").statusCode());
+            assertEquals(500, server.post("/clean", "{\"date\":\"2024-03-01\"}").statusCode());
+        }
+    }
+
+    /**
+     * Ждет, пока все потоки не начнут ожидать фиксации своих изменений.
+     *
+     * @param threads Потоки, отправившие изменения.
+     */
+    private static void awaitWaiting(List<Thread> threads) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        for (Thread thread : threads) {
+            while (thread.getState() != Thread.State.WAITING) {
+                assertTrue(System.nanoTime() < deadline, thread.getName() + " is " + thread.getState());
+                Thread.sleep(10);
+            }
+        }
+    }
+
+    private static void awaitUninterruptibly(CountDownLatch latch) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                latch.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package project.calendar;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Проверки кэша типов дня против локальной заглушки isdayoff.ru.
+ */
+class HolidayCacheTest {
+    /**
+     * Время ожидания ответа клиента в миллисекундах.
+     */
+    private static final int READ_TIMEOUT_MILLIS = 300;
+
+    private HolidayStub stub;
+    private HolidayClient client;
+    private HolidayCache cache;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        stub = new HolidayStub(0, 0);
+        client = new HolidayClient(stub.getUrl(), 1000, READ_TIMEOUT_MILLIS, 0,
+                new CircuitBreaker("test", 100, 60000), new Metrics());
+        cache = new HolidayCache(client::getDayType, 16, TimeUnit.MINUTES.toMillis(1));
+    }
+
+    @AfterEach
+    void tearDown() {
+        client.close();
+        stub.stop();
+    }
+
+    @Test
+    void concurrentMissesMakeOneUpstreamCall() throws Exception {
+        stub.setDelayMillis(200);
+        LocalDate saturday = LocalDate.of(2024, 3, 2);
+        int threads = 16;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return cache.get(saturday);
+                }));
+            }
+            start.countDown();
+            for (Future<String> result : results) {
+                assertEquals("1", result.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(1, stub.getRequestCount());
+        assertEquals(threads - 1, cache.getCoalesced());
+        assertEquals("1", cache.get(saturday));
+        assertEquals(1, stub.getRequestCount());
+    }
+
+    @Test
+    void slowUpstreamFailsAfterReadTimeoutAndIsNotCached() throws IOException {
+        LocalDate monday = LocalDate.of(2024, 3, 4);
+        stub.setDelayMillis(READ_TIMEOUT_MILLIS * 5L);
+
+        long start = System.nanoTime();
+        assertThrows(IOException.class, () -> cache.get(monday));
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertTrue(elapsedMillis < READ_TIMEOUT_MILLIS * 4L, "lookup took " + elapsedMillis + " ms");
+        assertEquals(0, cache.getCache().size());
+
+        stub.setDelayMillis(0);
+        assertEquals("0", cache.get(monday));
+        assertEquals(2, stub.getRequestCount());
+        assertEquals(1, cache.getCache().size());
+    }
+}
@@ -0,0 +1,89 @@
+package project.calendar;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Проверки предохранителя клиента isdayoff.ru против заглушки с внесением ошибок.
+ */
+class HolidayClientTest {
+    /**
+     * Количество ошибок подряд, размыкающее предохранитель.
+     */
+    private static final int FAILURES = 3;
+    /**
+     * Пауза до пробного запроса в миллисекундах.
+     */
+    private static final long OPEN_MILLIS = 300;
+
+    private final LocalDate saturday = LocalDate.of(2024, 3, 2);
+
+    private HolidayStub stub;
+    private CircuitBreaker breaker;
+    private HolidayClient client;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        stub = new HolidayStub(0, 0);
+        breaker = new CircuitBreaker("test", FAILURES, OPEN_MILLIS);
+        client = new HolidayClient(stub.getUrl(), 1000, 1000, 0, breaker, new Metrics());
+    }
+
+    @AfterEach
+    void tearDown() {
+        client.close();
+        stub.stop();
+    }
+
+    @Test
+    void breakerOpensAfterFailuresAndClosesAfterRecovery() throws Exception {
+        openBreaker();
+
+        // Разомкнутый предохранитель отклоняет запрос, не обращаясь к сервису.
+        assertThrows(IOException.class, () -> client.getDayType(saturday));
+        assertEquals(FAILURES, stub.getRequestCount());
+        assertEquals(1, client.toJson().getLong("rejected"));
+        assertEquals("OPEN", client.toJson().getString("breakerState"));
+
+        stub.setFailureRate(0);
+        Thread.sleep(OPEN_MILLIS + 50);
+        assertEquals("1", client.getDayType(saturday));
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertEquals(FAILURES + 1, stub.getRequestCount());
+        assertEquals(0, breaker.getConsecutiveFailures());
+    }
+
+    @Test
+    void failedProbeReopensBreaker() throws Exception {
+        openBreaker();
+
+        Thread.sleep(OPEN_MILLIS + 50);
+        assertThrows(IOException.class, () -> client.getDayType(saturday));
+        assertEquals(FAILURES + 1, stub.getRequestCount());
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertEquals(2, breaker.getOpenCount());
+
+        assertThrows(IOException.class, () -> client.getDayType(saturday));
+        assertEquals(FAILURES + 1, stub.getRequestCount());
+    }
+
+    /**
+     * Размыкает предохранитель ошибками сервиса.
+     */
+    private void openBreaker() {
+        stub.setFailureRate(1);
+        for (int i = 0; i < FAILURES; i++) {
+            assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+            assertThrows(IOException.class, () -> client.getDayType(saturday));
+        }
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertEquals(FAILURES, stub.getRequestCount());
+    }
+}
@@ -0,0 +1,204 @@
+package project.calendar;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Локальная заглушка сервиса isdayoff.ru для тестов и замеров задержек.
+ * Отвечает на запросы {@code /api/getdata?year=&month=&day=}, а также на запросы за целый месяц
+ * ({@code year=&month=}) и год ({@code year=}): суббота и воскресенье считаются нерабочими днями,
+ * остальные дни - рабочими.
+ * Для подключения сервера к заглушке задайте системное свойство {@code holiday.url}.
+ * Задержку и долю ошибочных ответов можно менять на ходу для проверки поведения сервера при сбоях.
+ */
+public class HolidayStub {
+    /**
+     * Поле для логирования
+     */
+    private static final Logger logger = LogManager.getLogger(HolidayStub.class);
+
+    /**
+     * HTTP-сервер заглушки.
+     */
+    private final HttpServer server;
+    /**
+     * Пул потоков обработки запросов заглушки.
+     */
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    /**
+     * Искусственная задержка ответа в миллисекундах.
+     */
+    private volatile long delayMillis;
+    /**
+     * Доля запросов, на которые возвращается ошибка 503.
+     */
+    private volatile double failureRate;
+    /**
+     * Количество обработанных запросов.
+     */
+    private final AtomicLong requests = new AtomicLong();
+
+    /**
+     * Запускает заглушку на указанном порту.
+     *
+     * @param port        Порт, 0 - любой свободный.
+     * @param delayMillis Искусственная задержка ответа в миллисекундах.
+     * @throws IOException Если не удалось открыть порт.
+     */
+    public HolidayStub(int port, long delayMillis) throws IOException {
+        this.delayMillis = delayMillis;
+        Server.enableNoDelay();
+        this.server = HttpServer.create(new InetSocketAddress("localhost", port), 0);
+        server.createContext("/api/getdata", this::handle);
+        server.setExecutor(executor);
+        server.start();
+        logger.info("Holiday stub is running on " + getUrl());
+    }
+
+    /**
+     * Возвращает базовый URL заглушки для свойства {@code holiday.url}.
+     *
+     * @return Базовый URL заглушки.
+     */
+    public String getUrl() {
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+
+    /**
+     * Возвращает количество обработанных запросов.
+     *
+     * @return Количество запросов.
+     */
+    public long getRequestCount() {
+        return requests.get();
+    }
+
+    /**
+     * Задает искусственную задержку ответа.
+     *
+     * @param delayMillis Задержка в миллисекундах.
+     */
+    public void setDelayMillis(long delayMillis) {
+        this.delayMillis = delayMillis;
+    }
+
+    /**
+     * Задает долю запросов, на которые возвращается ошибка 503.
+     *
+     * @param failureRate Доля от 0 до 1.
+     */
+    public void setFailureRate(double failureRate) {
+        this.failureRate = failureRate;
+    }
+
+    /**
+     * Останавливает заглушку.
+     */
+    public void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    /**
+     * Обрабатывает запрос типа дня.
+     *
+     * @param exchange Объект HttpExchange, представляющий текущий HTTP-обмен.
+     * @throws IOException Если возникает ошибка ввода-вывода.
+     */
+    private void handle(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        if (delayMillis > 0) {
+            try {
+                Thread.sleep(delayMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (failureRate > 0 && ThreadLocalRandom.current().nextDouble() < failureRate) {
+            exchange.sendResponseHeaders(503, -1);
+            exchange.close();
+            return;
+        }
+
+        String response;
+        try {
+            Map<String, String> params = Server.parseQuery(exchange.getRequestURI().getQuery());
+            int year = Integer.parseInt(params.get("year"));
+            if (params.containsKey("day")) {
+                response = dayType(LocalDate.of(year,
+                        Integer.parseInt(params.get("month")), Integer.parseInt(params.get("day"))));
+            } else if (params.containsKey("month")) {
+                LocalDate first = LocalDate.of(year, Integer.parseInt(params.get("month")), 1);
+                response = dayTypes(first, first.plusMonths(1));
+            } else {
+                LocalDate first = LocalDate.of(year, 1, 1);
+                response = dayTypes(first, first.plusYears(1));
+            }
+        } catch (RuntimeException e) {
+            response = "100";
+        }
+
+        byte[] body = response.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(body);
+        }
+    }
+
+    /**
+     * Возвращает код типа дня для даты.
+     *
+     * @param date Дата.
+     * @return "1" для выходных, "0" для будних дней.
+     */
+    static String dayType(LocalDate date) {
+        DayOfWeek dayOfWeek = date.getDayOfWeek();
+        return dayOfWeek == DayOfWeek.SATURDAY || dayOfWeek == DayOfWeek.SUNDAY ? "1" : "0";
+    }
+
+    /**
+     * Возвращает коды типа дня для полуинтервала дат одной строкой, по символу на день.
+     *
+     * @param from Первая дата.
+     * @param to   Дата, следующая за последней.
+     * @return Коды типа дня.
+     */
+    static String dayTypes(LocalDate from, LocalDate to) {
+        StringBuilder codes = new StringBuilder();
+        for (LocalDate date = from; date.isBefore(to); date = date.plusDays(1)) {
+            codes.append(dayType(date));
+        }
+        return codes.toString();
+    }
+
+    /**
+     * Запускает заглушку отдельно от приложения.
+     *
+     * @param args Порт (по умолчанию 8081), задержка ответа в миллисекундах (по умолчанию 0)
+     *             и доля ошибочных ответов (по умолчанию 0).
+     * @throws IOException Если не удалось открыть порт.
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8081;
+        long delay = args.length > 1 ? Long.parseLong(args[1]) : 0;
+        HolidayStub stub = new HolidayStub(port, delay);
+        if (args.length > 2) {
+            stub.setFailureRate(Double.parseDouble(args[2]));
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package project.calendar;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.json.JSONObject;
+
+import java.nio.file.Path;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Проверки ограничений размера запроса /batch.
+ */
+class PostBatchHandlerTest {
+    @TempDir
+    Path dir;
+
+    private TestServer server;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = new TestServer(dir, Map.of(
+                "holiday.url", "http://localhost:1",
+                "batch.max.ops", "3",
+                "batch.max.bytes", "1024"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.close();
+    }
+
+    @Test
+    void appliesBatchWithinLimits() throws Exception {
+        String batch = "[{\"op\":\"create\",\"date\":\"2024-03-01\",\"text\":\"Первая\"},"
+                + "{\"op\":\"create\",\"date\":\"2024-03-01\",\"text\":\"Вторая\"}]";
+
+        assertEquals(200, server.post("/batch", batch).statusCode());
+        assertEquals(2, new JSONObject(server.get("/getList?date=2024-03-01").body()).getJSONArray("tasks").length());
+    }
+
+    @Test
+    void rejectsOversizedBody() throws Exception {
+        String batch = "[{\"op\":\"create\",\"date\":\"2024-03-01\",\"text\":\"" + "x".repeat(2048) + "\"}]";
+
+        assertEquals(413, server.post("/batch", batch).statusCode());
+        assertEquals(0, new JSONObject(server.get("/getList?date=2024-03-01").body()).getJSONArray("tasks").length());
+    }
+
+    @Test
+    void rejectsTooManyOperationsAndMalformedBatch() throws Exception {
+        String batch = "[" + "{\"op\":\"clean\",\"date\":\"2024-03-01\"},".repeat(3) + "{\"op\":\"clean\",\"date\":\"2024-03-01\"}]";
+
+        assertEquals(400, server.post("/batch", batch).statusCode());
+        assertEquals(400, server.post("/batch", "[{\"op\":\"create\"").statusCode());
+    }
+}
@@ -0,0 +1,147 @@
+package project.calendar;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Проверки миграций схемы и планов основных запросов.
+ */
+class SchemaMigrationsTest {
+    @TempDir
+    Path dir;
+
+    private ConnectionPool pool;
+
+    @BeforeEach
+    void setUp() {
+        pool = new ConnectionPool("jdbc:sqlite:" + dir.resolve("tasks.db"), 1, 5000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.close();
+    }
+
+    @Test
+    void hotQueriesDoNotScanTables() throws SQLException {
+        new SchemaMigrations(pool).migrate();
+        List<String> queries = new ArrayList<>(TaskDatabase.indexedQueries());
+        queries.addAll(DayTypeStore.indexedQueries());
+
+        List<String> scans = new ArrayList<>();
+        try (ConnectionPool.PooledConnection pooled = pool.borrow()) {
+            for (String query : queries) {
+                for (String detail : explain(pooled.getConnection(), query)) {
+                    if (detail.startsWith("SCAN tasks") || detail.startsWith("SCAN day_types")) {
+                        scans.add(query + " -> " + detail);
+                    }
+                }
+            }
+        }
+        assertTrue(scans.isEmpty(), "full scans: " + scans);
+    }
+
+    @Test
+    void duplicatePositionsAreMovedToTheEndOfTheDay() throws SQLException {
+        try (ConnectionPool.PooledConnection pooled = pool.borrow();
+             Statement statement = pooled.getConnection().createStatement()) {
+            statement.execute("CREATE TABLE tasks(id INTEGER PRIMARY KEY AUTOINCREMENT, text TEXT NOT NULL, " +
+                    "date TEXT NOT NULL, position INTEGER NOT NULL);");
+            statement.execute("INSERT INTO tasks(id, text, date, position) VALUES " +
+                    "(1, 'a', '2024-03-01', 1), (2, 'b', '2024-03-01', 2), (3, 'c', '2024-03-01', 1), " +
+                    "(4, 'd', '2024-03-01', 2), (5, 'e', '2024-03-01', 1), (6, 'f', '2024-03-02', 1);");
+            statement.execute("PRAGMA user_version = 1;");
+        }
+
+        new SchemaMigrations(pool).migrate();
+
+        try (ConnectionPool.PooledConnection pooled = pool.borrow();
+             Statement statement = pooled.getConnection().createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT id, position FROM tasks ORDER BY id;")) {
+            int[] expected = {1, 2, 3, 4, 5, 1};
+            for (int position : expected) {
+                assertTrue(resultSet.next());
+                assertEquals(position, resultSet.getInt("position"), "task " + resultSet.getInt("id"));
+            }
+        }
+    }
+
+    @Test
+    void unparseableTaskDatesAreQuarantinedNotDeleted() throws SQLException {
+        try (ConnectionPool.PooledConnection pooled = pool.borrow();
+             Statement statement = pooled.getConnection().createStatement()) {
+            statement.execute("CREATE TABLE tasks(id INTEGER PRIMARY KEY AUTOINCREMENT, text TEXT NOT NULL, " +
+                    "date TEXT NOT NULL, position INTEGER NOT NULL);");
+            statement.execute("CREATE TABLE day_types(date TEXT PRIMARY KEY, type TEXT NOT NULL, updated_at INTEGER NOT NULL);");
+            statement.execute("INSERT INTO tasks(id, text, date, position) VALUES " +
+                    "(1, 'good', '2024-03-01', 1), (2, 'bad day', '2024-02-30', 1), (3, 'garbage', '01.03.2024', 1);");
+            statement.execute("INSERT INTO day_types(date, type, updated_at) VALUES ('2024-03-01', '0', 0), ('never', '1', 0);");
+            statement.execute("PRAGMA user_version = 2;");
+        }
+
+        new SchemaMigrations(pool).migrate();
+
+        try (ConnectionPool.PooledConnection pooled = pool.borrow();
+             Statement statement = pooled.getConnection().createStatement()) {
+            try (ResultSet resultSet = statement.executeQuery("SELECT id, date FROM tasks;")) {
+                assertTrue(resultSet.next());
+                assertEquals(1, resultSet.getInt("id"));
+                assertEquals(LocalDate.of(2024, 3, 1).toEpochDay(), resultSet.getLong("date"));
+                assertFalse(resultSet.next());
+            }
+            try (ResultSet resultSet = statement.executeQuery("SELECT id, text, date, position FROM tasks_unparsed ORDER BY id;")) {
+                assertTrue(resultSet.next());
+                assertEquals(2, resultSet.getInt("id"));
+                assertEquals("bad day", resultSet.getString("text"));
+                assertEquals("2024-02-30", resultSet.getString("date"));
+                assertTrue(resultSet.next());
+                assertEquals(3, resultSet.getInt("id"));
+                assertEquals("01.03.2024", resultSet.getString("date"));
+                assertFalse(resultSet.next());
+            }
+            try (ResultSet resultSet = statement.executeQuery("SELECT COUNT(*) FROM day_types;")) {
+                assertTrue(resultSet.next());
+                assertEquals(1, resultSet.getInt(1));
+            }
+        }
+    }
+
+    /**
+     * Возвращает строки плана запроса.
+     *
+     * @param connection Соединение с базой данных.
+     * @param query      Запрос с параметрами-заполнителями.
+     * @return Описания шагов плана.
+     */
+    private static List<String> explain(Connection connection, String query) throws SQLException {
+        List<String> details = new ArrayList<>();
+        try (PreparedStatement statement = connection.prepareStatement("EXPLAIN QUERY PLAN " + query)) {
+            int parameters = statement.getParameterMetaData().getParameterCount();
+            for (int i = 1; i <= parameters; i++) {
+                statement.setLong(i, 0);
+            }
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    details.add(resultSet.getString("detail"));
+                }
+            }
+        }
+        return details;
+    }
+}
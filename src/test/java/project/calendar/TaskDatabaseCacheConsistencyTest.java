@@ -0,0 +1,137 @@
+package project.calendar;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Проверка кэша задач по дате: после подтверждения изменения чтение не возвращает список,
+ * прочитанный до него, даже когда параллельные читатели постоянно заполняют кэш.
+ */
+class TaskDatabaseCacheConsistencyTest {
+    private static final int DATES = 4;
+    private static final int READERS = 6;
+    private static final int WRITES_PER_DATE = 200;
+    private static final LocalDate FIRST_DATE = LocalDate.of(2024, 3, 1);
+
+    @TempDir
+    Path dir;
+
+    private ConnectionPool pool;
+    private TaskDatabase db;
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        pool = new ConnectionPool("jdbc:sqlite:" + dir.resolve("tasks.db"), 8, 5000);
+        new SchemaMigrations(pool).migrate();
+        db = new TaskDatabase(pool, 16, TimeUnit.MINUTES.toMillis(10), new Metrics());
+        executor = Executors.newFixedThreadPool(DATES + READERS);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+        pool.close();
+    }
+
+    @Test
+    void acknowledgedWritesAreVisibleToTheNextRead() throws Exception {
+        AtomicBoolean writing = new AtomicBoolean(true);
+        List<Future<?>> readers = new ArrayList<>();
+        for (int i = 0; i < READERS; i++) {
+            readers.add(executor.submit(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                while (writing.get()) {
+                    db.listTasksByDate(FIRST_DATE.plusDays(random.nextInt(DATES)));
+                }
+                return null;
+            }));
+        }
+
+        List<Future<?>> writers = new ArrayList<>();
+        for (int i = 0; i < DATES; i++) {
+            LocalDate date = FIRST_DATE.plusDays(i);
+            writers.add(executor.submit(() -> {
+                writeAndCheck(date);
+                return null;
+            }));
+        }
+        try {
+            for (Future<?> writer : writers) {
+                writer.get(120, TimeUnit.SECONDS);
+            }
+        } finally {
+            writing.set(false);
+        }
+        for (Future<?> reader : readers) {
+            reader.get(10, TimeUnit.SECONDS);
+        }
+        assertTrue(db.getDayCache().getHits() > 0, "the cache was never hit");
+    }
+
+    /**
+     * Изменяет задачи даты разными способами и после каждого изменения проверяет,
+     * что следующее чтение его отражает.
+     *
+     * @param date Дата, которую изменяет только этот поток.
+     * @throws Exception Если изменение не удалось применить.
+     */
+    private void writeAndCheck(LocalDate date) throws Exception {
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < WRITES_PER_DATE; i++) {
+            String text = "Задача " + date + " " + i;
+            if (i % 50 == 49) {
+                db.deleteAllTasksByDate(date);
+                expected.clear();
+            } else if (i % 10 == 9 && !expected.isEmpty()) {
+                db.deleteTaskByPositionAndDate(positionOf(date, expected.get(0)), date);
+                expected.remove(0);
+            } else if (i % 5 == 4) {
+                db.applyBatch(List.of(BatchOperation.create(date, text)));
+                expected.add(text);
+            } else {
+                db.addTask(date, text);
+                expected.add(text);
+            }
+
+            List<String> actual = new ArrayList<>();
+            for (Task task : db.listTasksByDate(date)) {
+                actual.add(task.getText());
+            }
+            assertEquals(expected, actual, "stale list for " + date + " after write " + i);
+        }
+    }
+
+    /**
+     * Находит позицию задачи по тексту.
+     *
+     * @param date Дата.
+     * @param text Текст задачи.
+     * @return Позиция задачи.
+     */
+    private int positionOf(LocalDate date, String text) {
+        for (Task task : db.listTasksByDate(date)) {
+            if (task.getText().equals(text)) {
+                return task.getPosition();
+            }
+        }
+        throw new AssertionError("No task " + text);
+    }
+}
@@ -0,0 +1,160 @@
+package project.calendar;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Проверки выделения позиций задач при одновременных добавлениях и удалениях на одну дату.
+ */
+class TaskDatabaseConcurrencyTest {
+    private static final int THREADS = 8;
+    private static final int TASKS_PER_THREAD = 50;
+    private static final LocalDate DATE = LocalDate.of(2024, 3, 1);
+
+    @TempDir
+    Path dir;
+
+    private ConnectionPool pool;
+    private ConnectionPool otherPool;
+    private TaskDatabase db;
+    private TaskDatabase otherDb;
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        String url = "jdbc:sqlite:" + dir.resolve("tasks.db");
+        pool = new ConnectionPool(url, 4, 5000);
+        new SchemaMigrations(pool).migrate();
+        // Второй экземпляр со своим пулом и своими блокировками дат изображает другую программу,
+        // работающую с той же базой: от совпадения позиций его защищает только уникальный индекс.
+        otherPool = new ConnectionPool(url, 4, 5000);
+        db = new TaskDatabase(pool, 16, TimeUnit.MINUTES.toMillis(1), new Metrics());
+        otherDb = new TaskDatabase(otherPool, 16, TimeUnit.MINUTES.toMillis(1), new Metrics());
+        executor = Executors.newFixedThreadPool(THREADS);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+        otherPool.close();
+        pool.close();
+    }
+
+    @Test
+    void concurrentAddsGetUniqueContiguousPositions() throws Exception {
+        runConcurrently(thread -> () -> {
+            TaskDatabase target = thread % 2 == 0 ? db : otherDb;
+            for (int i = 0; i < TASKS_PER_THREAD; i++) {
+                target.addTask(DATE, "Задача " + thread + "-" + i);
+            }
+            return null;
+        });
+
+        List<Integer> positions = positions();
+        assertEquals(THREADS * TASKS_PER_THREAD, positions.size());
+        for (int i = 0; i < positions.size(); i++) {
+            assertEquals(i + 1, positions.get(i));
+        }
+    }
+
+    @Test
+    void concurrentAddsAndDeletesKeepPositionsUnique() throws Exception {
+        int initial = THREADS * TASKS_PER_THREAD;
+        for (int i = 0; i < initial; i++) {
+            db.addTask(DATE, "Исходная " + i);
+        }
+
+        // Половина потоков удаляет свои непересекающиеся наборы позиций, остальные добавляют задачи.
+        Set<Integer> deleted = new HashSet<>();
+        for (int position = 1; position <= initial; position += 2) {
+            deleted.add(position);
+        }
+        runConcurrently(thread -> () -> {
+            if (thread % 2 == 0) {
+                for (int position = 1 + thread; position <= initial; position += THREADS) {
+                    db.deleteTaskByPositionAndDate(position, DATE);
+                }
+            } else {
+                TaskDatabase target = thread % 4 == 1 ? db : otherDb;
+                for (int i = 0; i < TASKS_PER_THREAD; i++) {
+                    target.addTask(DATE, "Новая " + thread + "-" + i);
+                }
+            }
+            return null;
+        });
+
+        List<Integer> positions = positions();
+        Set<Integer> unique = new HashSet<>(positions);
+        assertEquals(positions.size(), unique.size(), "duplicate positions: " + positions);
+        assertEquals(initial - deleted.size() + THREADS / 2 * TASKS_PER_THREAD, positions.size());
+        for (int position = 1; position <= initial; position++) {
+            assertEquals(!deleted.contains(position), unique.contains(position), "position " + position);
+        }
+        int max = positions.get(positions.size() - 1);
+        for (int position = initial + 1; position <= max; position++) {
+            assertTrue(unique.contains(position), "gap at new position " + position);
+        }
+    }
+
+    /**
+     * Запускает задания всех потоков одновременно и ждет их завершения.
+     *
+     * @param tasks Задание по номеру потока.
+     */
+    private void runConcurrently(IntFunction<Callable<Void>> tasks) throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Void>> futures = new ArrayList<>();
+        for (int thread = 0; thread < THREADS; thread++) {
+            Callable<Void> task = tasks.apply(thread);
+            futures.add(executor.submit(() -> {
+                start.await();
+                return task.call();
+            }));
+        }
+        start.countDown();
+        for (Future<Void> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Читает позиции задач даты напрямую из таблицы, минуя кэш.
+     *
+     * @return Позиции по возрастанию.
+     */
+    private List<Integer> positions() throws SQLException {
+        List<Integer> positions = new ArrayList<>();
+        try (ConnectionPool.PooledConnection connection = pool.borrow()) {
+            PreparedStatement statement = connection.prepare("SELECT position FROM tasks WHERE date = ? ORDER BY position;");
+            statement.setLong(1, DATE.toEpochDay());
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    positions.add(resultSet.getInt(1));
+                }
+            }
+        }
+        return positions;
+    }
+}
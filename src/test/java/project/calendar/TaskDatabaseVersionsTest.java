@@ -0,0 +1,86 @@
+package project.calendar;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Проверки версий дат для ETag при ограниченном количестве хранимых версий.
+ */
+class TaskDatabaseVersionsTest {
+    private static final int MAX_VERSIONS = 8;
+    private static final int DATES = 100;
+    private static final LocalDate FIRST_DATE = LocalDate.of(2024, 1, 1);
+
+    @TempDir
+    Path dir;
+
+    private ConnectionPool pool;
+    private TaskDatabase db;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        pool = new ConnectionPool("jdbc:sqlite:" + dir.resolve("tasks.db"), 2, 5000);
+        new SchemaMigrations(pool).migrate();
+        db = new TaskDatabase(pool, 16, TimeUnit.MINUTES.toMillis(1), MAX_VERSIONS, new Metrics());
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.close();
+    }
+
+    @Test
+    void versionsStayBoundedAndNeverGoBack() throws Exception {
+        long[] seen = new long[DATES];
+        for (int i = 0; i < DATES * 3; i++) {
+            int changedDay = i * 7 % DATES;
+            LocalDate changedDate = FIRST_DATE.plusDays(changedDay);
+            long before = counter(db.getVersion(changedDate));
+            db.addTask(changedDate, "Задача " + i);
+
+            assertTrue(counter(db.getVersion(changedDate)) > before, "version of " + changedDate + " did not change");
+            assertTrue(db.trackedVersions() <= MAX_VERSIONS, "tracked versions: " + db.trackedVersions());
+            for (int day = 0; day < DATES; day++) {
+                long version = counter(db.getVersion(FIRST_DATE.plusDays(day)));
+                assertTrue(version >= seen[day], "version of day " + day + " went back");
+                seen[day] = version;
+            }
+        }
+    }
+
+    @Test
+    void rangeVersionCoversForgottenDates() throws Exception {
+        LocalDate date = FIRST_DATE.plusDays(3);
+        db.addTask(date, "Задача");
+        String range = db.getRangeVersion(FIRST_DATE, FIRST_DATE.plusDays(6));
+        assertEquals(db.getVersion(date), range);
+
+        for (int day = 10; day < 10 + MAX_VERSIONS; day++) {
+            db.addTask(FIRST_DATE.plusDays(day), "Другая");
+        }
+
+        assertTrue(counter(db.getRangeVersion(FIRST_DATE, FIRST_DATE.plusDays(6))) >= counter(range));
+        db.addTask(date, "Еще одна");
+        assertTrue(counter(db.getRangeVersion(FIRST_DATE, FIRST_DATE.plusDays(6))) > counter(range));
+    }
+
+    /**
+     * Извлекает значение счетчика из версии вида "идентификатор запуска-счетчик".
+     *
+     * @param version Версия.
+     * @return Значение счетчика.
+     */
+    private static long counter(String version) {
+        return Long.parseLong(version.substring(version.indexOf('-') + 1), 36);
+    }
+}
@@ -0,0 +1,100 @@
+package project.calendar;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Сервер для тестов: запускается на свободном порту с временной базой данных и заданными
+ * системными свойствами, которые снимаются при остановке.
+ */
+class TestServer implements AutoCloseable {
+    /**
+     * Свойства, заданные при запуске.
+     */
+    private final Map<String, String> properties = new LinkedHashMap<>();
+    /**
+     * HTTP-клиент тестов.
+     */
+    private final HttpClient http = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+    /**
+     * Базовый URL сервера.
+     */
+    private final String baseUrl;
+
+    /**
+     * Запускает сервер.
+     *
+     * @param dir        Каталог временной базы данных.
+     * @param properties Дополнительные системные свойства сервера.
+     * @throws IOException Если сервер не удалось запустить.
+     */
+    TestServer(Path dir, Map<String, String> properties) throws IOException {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        this.properties.put("server.port", Integer.toString(port));
+        this.properties.put("db.url", "jdbc:sqlite:" + dir.resolve("tasks.db"));
+        this.properties.putAll(properties);
+        this.properties.forEach(System::setProperty);
+        this.baseUrl = "http://localhost:" + port;
+        try {
+            Server.startServer();
+        } catch (IOException | RuntimeException e) {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * Отправляет GET-запрос.
+     *
+     * @param pathAndQuery Путь и параметры запроса.
+     * @return Ответ сервера.
+     * @throws IOException          Если возникает ошибка ввода-вывода.
+     * @throws InterruptedException Если поток прерван.
+     */
+    HttpResponse<String> get(String pathAndQuery) throws IOException, InterruptedException {
+        return http.send(HttpRequest.newBuilder(URI.create(baseUrl + pathAndQuery))
+                .timeout(Duration.ofSeconds(30))
+                .GET()
+                .build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    /**
+     * Отправляет POST-запрос с телом JSON.
+     *
+     * @param path Путь запроса.
+     * @param json Тело запроса.
+     * @return Ответ сервера.
+     * @throws IOException          Если возникает ошибка ввода-вывода.
+     * @throws InterruptedException Если поток прерван.
+     */
+    HttpResponse<String> post(String path, String json) throws IOException, InterruptedException {
+        return http.send(HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(Duration.ofSeconds(30))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    /**
+     * Останавливает сервер и снимает заданные системные свойства.
+     */
+    @Override
+    public void close() {
+        Server.stopServer();
+        properties.keySet().forEach(System::clearProperty);
+    }
+}